@@ -4,7 +4,6 @@ import com.google.common.annotations.VisibleForTesting;
 import io.codemodder.*;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -33,6 +32,7 @@ public final class AddMissingI18nCodemod extends RawFileChanger {
 
   private final TranslateClient translateClient;
   private final List<Language> languagesAvailable;
+  private RepositoryTextIndex textIndex;
 
   @Inject
   public AddMissingI18nCodemod(final TranslateClient translateClient) {
@@ -309,46 +309,36 @@ public final class AddMissingI18nCodemod extends RawFileChanger {
       final Set<PossiblyMissingKey> ourMissingOrEmptyKeys,
       final List<Path> siblings)
       throws IOException {
-    // loop through all files in projectDir recursively, ignoring binary file formats, and check if
-    // the keys are referenced
-    Path projectDir = context.codeDirectory().asPath();
-    try (var paths = Files.walk(projectDir)) {
-      try {
-        return paths
-            .filter(p -> !siblings.contains(p))
-            .filter(p -> !context.path().equals(p))
-            .filter(Files::isRegularFile)
-            .filter(p -> !isObviouslyBinaryFile(p))
-            .map(
-                path -> {
-                  List<String> lines;
-                  try {
-                    final String charset = UniversalDetector.detectCharset(path);
-                    lines = Files.readString(path, Charset.forName(charset)).lines().toList();
-                  } catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                  }
-                  for (String line : lines) {
-                    for (PossiblyMissingKey key : ourMissingOrEmptyKeys) {
-                      if (line.contains(key.key)) {
-                        return Optional.of(
-                            new MissingKey(
-                                key.languageCode,
-                                key.key,
-                                key.definitionReferences,
-                                List.of(new UsageReference(path.toString(), line))));
-                      }
-                    }
-                  }
-                  return Optional.<MissingKey>empty();
-                })
-            .flatMap(Optional::stream)
-            .toList();
-      } catch (UncheckedIOException e) {
-        // unwrap stream's unchecked IOException
-        throw e.getCause();
-      }
+    // look up all the keys at once in the text of the project, ignoring binary file formats and
+    // the properties files we're comparing, to see which are referenced
+    RepositoryTextIndex textIndex = getTextIndex(context.codeDirectory().asPath());
+    Map<String, List<RepositoryTextIndex.Line>> usagesByKey =
+        textIndex.findLinesContaining(
+            ourMissingOrEmptyKeys.stream().map(PossiblyMissingKey::key).toList(),
+            p -> siblings.contains(p) || context.path().equals(p));
+    return ourMissingOrEmptyKeys.stream()
+        .filter(key -> usagesByKey.containsKey(key.key))
+        .map(
+            key ->
+                new MissingKey(
+                    key.languageCode,
+                    key.key,
+                    key.definitionReferences,
+                    usagesByKey.get(key.key).stream()
+                        .map(line -> new UsageReference(line.file().toString(), line.text()))
+                        .toList()))
+        .toList();
+  }
+
+  /**
+   * Build the index of the project's text the first time it's needed, and share it between all the
+   * properties files this codemod visits.
+   */
+  private synchronized RepositoryTextIndex getTextIndex(final Path projectDir) throws IOException {
+    if (textIndex == null) {
+      textIndex = RepositoryTextIndex.build(projectDir, p -> !isObviouslyBinaryFile(p));
     }
+    return textIndex;
   }
 
   private List<Path> getSiblings(final Path path, final String prefix) throws IOException {
@@ -0,0 +1,205 @@
+package io.codemodder.codemods;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.mozilla.universalchardet.UniversalDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the text in the files of a repository, so that many strings can be searched for
+ * without reading every file for each one. Every run of three characters (a trigram) in each file
+ * is indexed, and only the files that contain all the trigrams of a string are read to find the
+ * lines that actually contain it.
+ *
+ * <p>Which files are candidates is decided by their contents when the index was built, but the
+ * matching lines are read from the files as they are when searched.
+ */
+final class RepositoryTextIndex {
+
+  private final List<Path> files;
+  private final List<Charset> charsets;
+  private final Map<Long, int[]> filesByTrigram;
+
+  private RepositoryTextIndex(
+      final List<Path> files, final List<Charset> charsets, final Map<Long, int[]> filesByTrigram) {
+    this.files = files;
+    this.charsets = charsets;
+    this.filesByTrigram = filesByTrigram;
+  }
+
+  /**
+   * Index the regular files under the given directory which pass the given filter. The files are
+   * read in parallel.
+   */
+  static RepositoryTextIndex build(final Path directory, final Predicate<Path> fileFilter)
+      throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(directory)) {
+      files = paths.filter(Files::isRegularFile).filter(fileFilter).toList();
+    }
+
+    List<IndexedFile> indexedFiles =
+        IntStream.range(0, files.size()).parallel().mapToObj(i -> index(files.get(i))).toList();
+
+    List<Path> readableFiles = new ArrayList<>(files.size());
+    List<Charset> charsets = new ArrayList<>(files.size());
+    Map<Long, PostingList> postings = new HashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      IndexedFile indexedFile = indexedFiles.get(i);
+      if (indexedFile == null) {
+        continue;
+      }
+      int fileId = readableFiles.size();
+      readableFiles.add(files.get(i));
+      charsets.add(indexedFile.charset());
+      for (long trigram : indexedFile.trigrams()) {
+        postings.computeIfAbsent(trigram, k -> new PostingList()).add(fileId);
+      }
+    }
+
+    Map<Long, int[]> filesByTrigram = new HashMap<>(postings.size());
+    postings.forEach((trigram, postingList) -> filesByTrigram.put(trigram, postingList.toArray()));
+    LOG.debug("Indexed {} files with {} trigrams", readableFiles.size(), filesByTrigram.size());
+    return new RepositoryTextIndex(
+        List.copyOf(readableFiles), List.copyOf(charsets), filesByTrigram);
+  }
+
+  /**
+   * Find the lines that contain each of the given strings, reading each candidate file only once.
+   *
+   * @param strings the strings to search for
+   * @param excluded the files that shouldn't be searched
+   * @return the matching lines for each string that was found, in the order the files were found
+   */
+  Map<String, List<Line>> findLinesContaining(
+      final Collection<String> strings, final Predicate<Path> excluded) throws IOException {
+    SortedMap<Integer, List<String>> stringsByCandidateFile = new TreeMap<>();
+    for (String string : strings) {
+      for (int fileId : getCandidateFiles(string)) {
+        stringsByCandidateFile.computeIfAbsent(fileId, k -> new ArrayList<>()).add(string);
+      }
+    }
+
+    Map<String, List<Line>> linesByString = new HashMap<>();
+    for (Map.Entry<Integer, List<String>> entry : stringsByCandidateFile.entrySet()) {
+      Path file = files.get(entry.getKey());
+      if (excluded.test(file)) {
+        continue;
+      }
+      List<String> lines = Files.readString(file, charsets.get(entry.getKey())).lines().toList();
+      for (String line : lines) {
+        for (String string : entry.getValue()) {
+          if (line.contains(string)) {
+            linesByString.computeIfAbsent(string, k -> new ArrayList<>()).add(new Line(file, line));
+          }
+        }
+      }
+    }
+    return linesByString;
+  }
+
+  /** A line of text in a file. */
+  record Line(Path file, String text) {
+    Line {
+      Objects.requireNonNull(file);
+      Objects.requireNonNull(text);
+    }
+  }
+
+  /** Return the files that contain all the trigrams in the given string, in ascending order. */
+  private int[] getCandidateFiles(final String string) {
+    long[] trigrams = getTrigrams(string);
+    if (trigrams.length == 0) {
+      // too short to be indexed, so any file could contain it
+      return IntStream.range(0, files.size()).toArray();
+    }
+    List<int[]> postings = new ArrayList<>(trigrams.length);
+    for (long trigram : trigrams) {
+      int[] posting = filesByTrigram.get(trigram);
+      if (posting == null) {
+        return new int[0];
+      }
+      postings.add(posting);
+    }
+    postings.sort(Comparator.comparingInt(posting -> posting.length));
+    int[] candidates = postings.get(0);
+    for (int i = 1; i < postings.size() && candidates.length > 0; i++) {
+      candidates = intersect(candidates, postings.get(i));
+    }
+    return candidates;
+  }
+
+  private static int[] intersect(final int[] a, final int[] b) {
+    int[] intersection = new int[Math.min(a.length, b.length)];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        intersection[size++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(intersection, size);
+  }
+
+  /** Read the file and gather its distinct trigrams, or return null if it can't be read. */
+  private static IndexedFile index(final Path file) {
+    try {
+      String detectedCharset = UniversalDetector.detectCharset(file);
+      Charset charset =
+          detectedCharset != null ? Charset.forName(detectedCharset) : StandardCharsets.UTF_8;
+      return new IndexedFile(charset, getTrigrams(Files.readString(file, charset)));
+    } catch (IOException | IllegalArgumentException e) {
+      LOG.debug("Couldn't index file {}", file, e);
+      return null;
+    }
+  }
+
+  /** Return the distinct trigrams in the given text, each packed into a long. */
+  private static long[] getTrigrams(final CharSequence text) {
+    if (text.length() < 3) {
+      return new long[0];
+    }
+    long[] trigrams = new long[text.length() - 2];
+    for (int i = 0; i < trigrams.length; i++) {
+      trigrams[i] =
+          ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+    return Arrays.stream(trigrams).sorted().distinct().toArray();
+  }
+
+  private record IndexedFile(Charset charset, long[] trigrams) {}
+
+  /** A growable list of file ids, which are always added in ascending order. */
+  private static final class PostingList {
+    private int[] fileIds = new int[4];
+    private int size;
+
+    void add(final int fileId) {
+      if (size == fileIds.length) {
+        fileIds = Arrays.copyOf(fileIds, size * 2);
+      }
+      fileIds[size++] = fileId;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(fileIds, size);
+    }
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(RepositoryTextIndex.class);
+}
@@ -30,9 +30,10 @@ public final class RemoveCommentedCodeCodemod extends SonarPluginJavaParserChang
    * parser (region.start().column())
    */
   private static final RegionNodeMatcher regionNodeMatcher =
-      (region, range) ->
-          region.start().line() == range.begin.line
-              && region.start().column() >= range.begin.column;
+      RegionNodeMatcher.onRegionStartLine(
+          (region, range) ->
+              region.start().line() == range.begin.line
+                  && region.start().column() >= range.begin.column);
 
   @Inject
   public RemoveCommentedCodeCodemod(
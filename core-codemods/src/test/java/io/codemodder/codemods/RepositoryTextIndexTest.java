@@ -0,0 +1,42 @@
+package io.codemodder.codemods;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class RepositoryTextIndexTest {
+
+  @Test
+  void it_finds_lines_containing_each_string(@TempDir final Path repoRoot) throws IOException {
+    Path jsp = repoRoot.resolve("web/login.jsp");
+    Files.createDirectories(jsp.getParent());
+    Files.writeString(
+        jsp, "<title>${login.title}</title>\n<button label=\"login.button.name\"></button>\n");
+    Path java = repoRoot.resolve("Login.java");
+    Files.writeString(java, "String title = bundle.get(\"login.title\");\n");
+    Path properties = repoRoot.resolve("messages_en.properties");
+    Files.writeString(properties, "login.title=Login\nlogin.button.name=Access\nzq=c\n");
+    Files.write(repoRoot.resolve("logo.png"), new byte[] {1, 2, 3, 4});
+
+    RepositoryTextIndex index =
+        RepositoryTextIndex.build(repoRoot, p -> !p.toString().endsWith(".png"));
+    Map<String, List<RepositoryTextIndex.Line>> lines =
+        index.findLinesContaining(
+            List.of("login.title", "login.button.name", "zq", "missing.key"),
+            properties::equals);
+
+    assertThat(lines).containsOnlyKeys("login.title", "login.button.name");
+    assertThat(lines.get("login.title"))
+        .extracting(RepositoryTextIndex.Line::file)
+        .containsExactlyInAnyOrder(jsp, java);
+    assertThat(lines.get("login.button.name"))
+        .containsExactly(
+            new RepositoryTextIndex.Line(jsp, "<button label=\"login.button.name\"></button>"));
+  }
+}
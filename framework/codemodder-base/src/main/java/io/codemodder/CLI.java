@@ -7,14 +7,16 @@ import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.ConsoleAppender;
 import ch.qos.logback.core.OutputStreamAppender;
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.javaparser.JavaParser;
 import com.google.common.base.Stopwatch;
-import io.codemodder.codetf.CodeTFChangesetEntry;
+import com.google.common.base.Suppliers;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
 import io.codemodder.codetf.CodeTFReport;
 import io.codemodder.codetf.CodeTFReportGenerator;
 import io.codemodder.codetf.CodeTFResult;
+import io.codemodder.javaparser.CompilationUnitCache;
+import io.codemodder.javaparser.JavaParserChanger;
 import io.codemodder.javaparser.JavaParserFacade;
 import io.codemodder.javaparser.JavaParserFactory;
 import java.io.File;
@@ -27,8 +29,9 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javax.inject.Provider;
 import net.logstash.logback.encoder.LogstashEncoder;
 import net.logstash.logback.fieldnames.LogstashCommonFieldNames;
@@ -79,12 +82,46 @@ final class CLI implements Callable<Integer> {
       defaultValue = "-1")
   private int maxWorkers;
 
+  @CommandLine.Option(
+      names = {"--max-codemod-workers"},
+      description =
+          "the maximum number of codemods to run at the same time, if they don't target any of the same files",
+      defaultValue = "1")
+  private int maxCodemodWorkers;
+
   @CommandLine.Option(
       names = {"--max-file-size"},
       description = "the maximum file size in bytes that each codemod can scan",
       defaultValue = "-1")
   private int maxFileSize;
 
+  @CommandLine.Option(
+      names = {"--execution-mode"},
+      description =
+          "the order in which to run the codemods (\"codemod\" runs each codemod over all files, \"file\" parses each file once and runs all the Java codemods on it)",
+      defaultValue = "codemod")
+  private ExecutionMode executionMode;
+
+  @CommandLine.Option(
+      names = {"--compilation-unit-cache-size"},
+      description =
+          "opt in to sharing parsed compilation units between codemods, holding up to roughly this many bytes of them in memory (0, the default, to disable)",
+      defaultValue = "0")
+  private long compilationUnitCacheSize;
+
+  @CommandLine.Option(
+      names = {"--file-cache-size"},
+      description =
+          "the maximum bytes of file contents to keep in memory between codemods, past which the least recently used are evicted",
+      defaultValue = "134217728")
+  private long fileCacheSize;
+
+  @CommandLine.Option(
+      names = {"--cache-dir"},
+      description =
+          "a directory to remember which files each codemod had nothing to do in, so they can be skipped in later runs if they haven't changed")
+  private Path cacheDirectory;
+
   @CommandLine.Option(
       names = {"--dont-exit"},
       description = "dont exit the process after running the codemods",
@@ -152,6 +189,19 @@ final class CLI implements Callable<Integer> {
       split = ",")
   private List<String> pathExcludes;
 
+  @CommandLine.Option(
+      names = {"--changed-files"},
+      description =
+          "comma-separated set of path(s) to the only files to scan, relative to the project directory",
+      split = ",")
+  private List<String> changedFiles;
+
+  @CommandLine.Option(
+      names = {"--since"},
+      description =
+          "a git ref to compare the project against, so only the files changed since then are scanned")
+  private String sinceGitRef;
+
   @CommandLine.Option(
       names = {"--codemod-include"},
       description = "comma-separated set of codemod IDs to include",
@@ -181,6 +231,13 @@ final class CLI implements Callable<Integer> {
       split = ",")
   private List<String> sarifs;
 
+  @CommandLine.Option(
+      names = {"--skip-sarif-flows"},
+      description =
+          "skip reading how data flowed to each SARIF result (code flows and graphs), to save time and memory when no codemod needs them",
+      defaultValue = "false")
+  private boolean skipSarifFlows;
+
   private final DryRunTempDirCreationStrategy dryRunTempDirCreationStrategy;
 
   /** The format for the output file. */
@@ -189,6 +246,12 @@ final class CLI implements Callable<Integer> {
     DIFF
   }
 
+  /** The order in which codemods and files are iterated. */
+  enum ExecutionMode {
+    CODEMOD,
+    FILE
+  }
+
   /** The format for the log output. */
   enum LogFormat {
     HUMAN,
@@ -234,20 +297,11 @@ final class CLI implements Callable<Integer> {
   static class DefaultFileFinder implements FileFinder {
     @Override
     public List<Path> findFiles(final Path projectDir, final IncludesExcludes includesExcludes) {
-      final List<Path> allFiles;
-      try (Stream<Path> paths = Files.walk(projectDir)) {
-        allFiles =
-            paths
-                .filter(Files::isRegularFile)
-                .filter(
-                    p -> !Files.isSymbolicLink(p)) // could cause infinite loop if we follow links
-                .filter(p -> includesExcludes.shouldInspect(p.toFile()))
-                .sorted()
-                .toList();
+      try {
+        return ProjectWalker.walk(projectDir, includesExcludes).files();
       } catch (IOException e) {
         throw new UncheckedIOException(e);
       }
-      return allFiles;
     }
   }
 
@@ -314,9 +368,53 @@ final class CLI implements Callable<Integer> {
       return -1;
     }
 
+    if (changedFiles != null && sinceGitRef != null) {
+      log.error("Changed files and a git ref to compare against cannot both be specified");
+      return ERROR_INVALID_ARGUMENT;
+    }
+
     logEnteringPhase(Logs.ExecutionPhase.SETUP);
 
+    log.trace("Creating codemod regulator");
+
+    // get codemod includes/excludes
+    final CodemodRegulator regulator;
+    if (codemodIncludes != null && codemodExcludes != null) {
+      log.error("Codemod includes and excludes cannot both be specified");
+      return ERROR_INVALID_ARGUMENT;
+    } else if (codemodIncludes == null && codemodExcludes == null) {
+      // the user didn't pass any includes, which means all are enabled
+      regulator = CodemodRegulator.of(DefaultRuleSetting.ENABLED, List.of());
+    } else if (codemodIncludes != null) {
+      regulator = CodemodRegulator.of(DefaultRuleSetting.DISABLED, codemodIncludes);
+    } else {
+      // the user only specified excludes
+      regulator = CodemodRegulator.of(DefaultRuleSetting.ENABLED, codemodExcludes);
+    }
+
+    // create the project providers
+    List<ProjectProvider> projectProviders = loadProjectProviders();
+
+    /*
+     * A dry run keeps the changes in memory when every codemod and project provider can write
+     * through an overlay. Otherwise, we fall back to running on a copy of the project.
+     */
+    FileOverlay fileOverlay = FileOverlay.disk();
+    boolean dryRunCopy = false;
     if (dryRun) {
+      FileOverlay dryRunOverlay = FileOverlay.inMemory();
+      Optional<List<ProjectProvider>> overlayProjectProviders =
+          withFileOverlay(projectProviders, dryRunOverlay);
+      if (overlayProjectProviders.isPresent() && onlyWritesThroughFileOverlay(regulator)) {
+        log.debug("dry run changes will be kept in memory");
+        fileOverlay = dryRunOverlay;
+        projectProviders = overlayProjectProviders.get();
+      } else {
+        dryRunCopy = true;
+      }
+    }
+
+    if (dryRunCopy) {
       // create a temp dir and copy all the contents into it -- this may be slow for big repos on
       // cloud i/o
       Path copiedProjectDirectory = dryRunTempDirCreationStrategy.createTempDir();
@@ -358,29 +456,59 @@ final class CLI implements Callable<Integer> {
       log.debug("including paths: {}", pathIncludes);
       log.debug("excluding paths: {}", pathExcludes);
 
-      // get all files that match
-      log.trace("Listing source directories");
-      List<SourceDirectory> sourceDirectories =
-          sourceDirectoryLister.listJavaSourceDirectories(List.of(projectDirectory));
-
-      log.trace("Listing files");
-      List<Path> filePaths = fileFinder.findFiles(projectPath, includesExcludes);
-
-      log.trace("Creating codemod regulator");
-
-      // get codemod includes/excludes
-      final CodemodRegulator regulator;
-      if (codemodIncludes != null && codemodExcludes != null) {
-        log.error("Codemod includes and excludes cannot both be specified");
-        return ERROR_INVALID_ARGUMENT;
-      } else if (codemodIncludes == null && codemodExcludes == null) {
-        // the user didn't pass any includes, which means all are enabled
-        regulator = CodemodRegulator.of(DefaultRuleSetting.ENABLED, List.of());
-      } else if (codemodIncludes != null) {
-        regulator = CodemodRegulator.of(DefaultRuleSetting.DISABLED, codemodIncludes);
+      /*
+       * When only the changed files are wanted, the project isn't walked to find them, and the
+       * source directories are only listed once a codemod first needs to resolve types.
+       */
+      boolean onlyChangedFiles = changedFiles != null || sinceGitRef != null;
+      final Supplier<List<SourceDirectory>> sourceDirectories;
+      List<Path> walkedFiles = null;
+      if (onlyChangedFiles) {
+        File sourceRoot = projectDirectory;
+        sourceDirectories =
+            Suppliers.memoize(
+                () -> {
+                  log.trace("Listing source directories");
+                  try {
+                    return sourceDirectoryLister.listJavaSourceDirectories(List.of(sourceRoot));
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+      } else if (this.fileFinder instanceof DefaultFileFinder
+          && sourceDirectoryLister instanceof SourceDirectoryLister.DefaultSourceDirectoryLister) {
+        // find the files and the source directories in the same walk
+        log.trace("Listing files and source directories");
+        ProjectWalker.Contents contents = ProjectWalker.walk(projectPath, includesExcludes);
+        sourceDirectories = Suppliers.ofInstance(contents.sourceDirectories());
+        walkedFiles = contents.files();
+      } else {
+        log.trace("Listing source directories");
+        sourceDirectories =
+            Suppliers.ofInstance(
+                sourceDirectoryLister.listJavaSourceDirectories(List.of(projectDirectory)));
+      }
+
+      // get all files that match, or only the changed ones
+      FileFinder fileFinder = this.fileFinder;
+      if (changedFiles != null) {
+        fileFinder = new ChangedFileFinder(convertToPaths(changedFiles));
+      } else if (sinceGitRef != null) {
+        try {
+          fileFinder =
+              new ChangedFileFinder(ChangedFileFinder.listGitChanges(projectPath, sinceGitRef));
+        } catch (IOException | IllegalArgumentException e) {
+          log.error("Couldn't list the files changed since {}", sinceGitRef, e);
+          return ERROR_INVALID_ARGUMENT;
+        }
+      }
+
+      final List<Path> filePaths;
+      if (walkedFiles != null) {
+        filePaths = walkedFiles;
       } else {
-        // the user only specified excludes
-        regulator = CodemodRegulator.of(DefaultRuleSetting.ENABLED, codemodExcludes);
+        log.trace("Listing files");
+        filePaths = fileFinder.findFiles(projectPath, includesExcludes);
       }
 
       // create the loader
@@ -390,8 +518,11 @@ final class CLI implements Callable<Integer> {
       List<Path> sonarJsonFiles = convertToPaths(sonarJsons);
 
       log.debug("Parsing SARIFs");
+      SarifParser sarifParser = SarifParser.create(!skipSarifFlows);
       Map<String, List<RuleSarif>> pathSarifMap =
-          SarifParser.create().parseIntoMap(sarifFiles, codeDirectory);
+          onlyChangedFiles
+              ? sarifParser.parseIntoMap(sarifFiles, codeDirectory, filePaths)
+              : sarifParser.parseIntoMap(sarifFiles, codeDirectory);
       List<ParameterArgument> codemodParameters =
           createFromParameterStrings(this.codemodParameters);
       CodemodLoader loader =
@@ -411,33 +542,56 @@ final class CLI implements Callable<Integer> {
 
       log.debug("sarif files: {}", sarifFiles.size());
 
-      // create the project providers
-      List<ProjectProvider> projectProviders = loadProjectProviders();
       List<CodeTFProvider> codeTFProviders = loadCodeTFProviders();
 
-      List<CodeTFResult> results = new ArrayList<>();
-
       /*
-       * Run the codemods on the files. Note that we cache the compilation units so that we're always retaining
-       * the original concrete syntax information (e.g., line numbers) in JavaParser from the first access. This
-       * is what allows our codemods to act on SARIF-providing tools data accurately over multiple codemods.
+       * Run the codemods on the files. Compilation units are only shared between codemods while the file they
+       * came from is unchanged and nobody has modified them, so every codemod sees a tree whose concrete syntax
+       * information (e.g., line numbers) matches the file on disk. This is what allows our codemods to act on
+       * SARIF-providing tools data accurately over multiple codemods.
        */
       logEnteringPhase(Logs.ExecutionPhase.SCANNING);
 
       Provider<JavaParser> javaParserProvider =
           () -> {
             try {
-              return javaParserFactory.create(sourceDirectories);
+              return javaParserFactory.create(sourceDirectories.get());
             } catch (IOException e) {
               throw new UncheckedIOException(e);
             }
           };
-      JavaParserFacade javaParserFacade = JavaParserFacade.from(javaParserProvider);
-      int maxFileCacheSize = 10_000;
-      FileCache fileCache = FileCache.createDefault(maxFileCacheSize);
+      CompilationUnitCache compilationUnitCache =
+          compilationUnitCacheSize > 0
+              ? CompilationUnitCache.createDefault(compilationUnitCacheSize)
+              : null;
+      JavaParserFacade javaParserFacade =
+          JavaParserFacade.from(javaParserProvider, compilationUnitCache, fileOverlay);
+      FileCache fileCache = FileCache.createWithMaxBytes(fileCacheSize, fileOverlay);
+
+      /*
+       * In file-major mode, consecutive JavaParser codemods are grouped so that each file is parsed
+       * and written once per group. Other codemods break up the groups so the overall order is
+       * kept.
+       */
+      boolean fileMajor = ExecutionMode.FILE.equals(executionMode);
 
+      /*
+       * All the codemods scan files using the same workers, so each worker only has to create its
+       * JavaParser and warm up its type solver once.
+       */
+      ExecutorService workerPool = DefaultCodemodExecutor.newWorkerPool(maxWorkers);
+      CodemodResultCache resultCache =
+          cacheDirectory != null
+              ? CodemodResultCache.inDirectory(
+                  cacheDirectory,
+                  projectPath,
+                  createResultCacheFingerprint(
+                      pathIncludes, pathExcludes, sarifFiles, sonarJsonFiles))
+              : CodemodResultCache.NONE;
+      List<CodemodScheduler.Task> tasks = new ArrayList<>();
+      List<DefaultCodemodExecutor> fileMajorGroup = new ArrayList<>();
       for (CodemodIdPair codemod : codemods) {
-        CodemodExecutor codemodExecutor;
+        DefaultCodemodExecutor codemodExecutor;
         if (useGlobalIncludesExcludes) {
           codemodExecutor =
               new DefaultCodemodExecutor(
@@ -451,7 +605,10 @@ final class CLI implements Callable<Integer> {
                   encodingDetector,
                   maxFileSize,
                   maxFiles,
-                  maxWorkers);
+                  maxWorkers,
+                  workerPool,
+                  resultCache,
+                  fileOverlay);
         } else {
           codemodExecutor =
               new DefaultCodemodExecutor(
@@ -464,45 +621,97 @@ final class CLI implements Callable<Integer> {
                   encodingDetector,
                   maxFileSize,
                   maxFiles,
-                  maxWorkers);
+                  maxWorkers,
+                  workerPool,
+                  resultCache,
+                  fileOverlay);
         }
 
-        log.info("running codemod: {}", codemod.getId());
-        CodeTFResult result = codemodExecutor.execute(filePaths);
-        results.add(result);
-
-        if (!result.getChangeset().isEmpty()) {
-          log.info("changed:");
-          result
-              .getChangeset()
-              .forEach(
-                  entry -> {
-                    log.info("  - " + entry.getPath());
-                    String indentedDiff =
-                        entry
-                            .getDiff()
-                            .lines()
-                            .map(line -> "      " + line)
-                            .collect(Collectors.joining(System.lineSeparator()));
-                    log.debug("    diff:");
-                    log.debug(indentedDiff);
-                  });
-        }
-        if (!result.getFailedFiles().isEmpty()) {
-          log.info("failed:");
-          result.getFailedFiles().forEach(f -> log.info("  - {}", f));
+        if (fileMajor && codemod.getChanger() instanceof JavaParserChanger) {
+          fileMajorGroup.add(codemodExecutor);
+          continue;
         }
+        addFileMajorTask(
+            tasks,
+            projectPath,
+            fileMajorGroup,
+            javaParserFacade,
+            fileCache,
+            fileOverlay,
+            workerPool,
+            filePaths);
+        fileMajorGroup = new ArrayList<>();
+
+        tasks.add(
+            CodemodScheduler.Task.forCodemods(
+                List.of(codemodExecutor),
+                filePaths,
+                () -> {
+                  log.info("running codemod: {}", codemod.getId());
+                  CodeTFResult result = codemodExecutor.execute(filePaths);
+                  logResult(result);
+                  return List.of(result);
+                }));
       }
+      addFileMajorTask(
+          tasks,
+          projectPath,
+          fileMajorGroup,
+          javaParserFacade,
+          fileCache,
+          fileOverlay,
+          workerPool,
+          filePaths);
 
-      Instant end = clock.instant();
-      long elapsed = end.toEpochMilli() - start.toEpochMilli();
+      /*
+       * Codemods that don't target any of the same files can run at the same time. The rest still
+       * run in priority order.
+       */
+      CodemodScheduler scheduler = new CodemodScheduler(maxCodemodWorkers);
 
-      logEnteringPhase(Logs.ExecutionPhase.REPORT);
-      logMetrics(results);
+      /*
+       * The results are only held on to if they're going into a report. Otherwise, we only keep
+       * what we need for the metrics, rather than every diff until the end of the run.
+       */
+      List<String> failedFiles = new ArrayList<>();
+      List<String> changedPaths = new ArrayList<>();
+      List<CodeTFResult> results = new ArrayList<>();
+      long elapsed;
+      try (CodeTFReportWriter reportWriter =
+          outputPath != null && OutputFormat.CODETF.equals(outputFormat)
+              ? CodeTFReportWriter.open(outputPath)
+              : null) {
+        try {
+          scheduler.run(
+              tasks,
+              result -> {
+                failedFiles.addAll(result.getFailedFiles());
+                result.getChangeset().forEach(entry -> changedPaths.add(entry.getPath()));
+                if (reportWriter != null) {
+                  results.add(result);
+                }
+              });
+        } finally {
+          workerPool.shutdown();
+        }
+        try {
+          resultCache.save();
+        } catch (IOException e) {
+          log.warn("Couldn't save codemod result cache", e);
+        }
+
+        Instant end = clock.instant();
+        elapsed = end.toEpochMilli() - start.toEpochMilli();
 
-      // write out the output if they want it
-      if (outputPath != null) {
-        if (OutputFormat.CODETF.equals(outputFormat)) {
+        logEnteringPhase(Logs.ExecutionPhase.REPORT);
+        logMetrics(failedFiles, changedPaths);
+        if (compilationUnitCache != null) {
+          log.debug("compilation unit cache: {}", compilationUnitCache.stats());
+        }
+        log.debug("file cache: {}", fileCache.stats());
+
+        // finish the output if they want it
+        if (reportWriter != null) {
           CodeTFReport report =
               reportGenerator.createReport(
                   projectDirectory.toPath(),
@@ -510,11 +719,12 @@ final class CLI implements Callable<Integer> {
                   sarifs == null ? List.of() : sarifs.stream().map(Path::of).toList(),
                   results,
                   elapsed);
-          ObjectMapper mapper = new ObjectMapper();
-          mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-          Files.writeString(outputPath, mapper.writeValueAsString(report));
+          for (CodeTFResult result : report.getResults()) {
+            reportWriter.write(result);
+          }
+          reportWriter.finish(report.getRun());
           log.debug("report file: {}", outputPath);
-        } else if (OutputFormat.DIFF.equals(outputFormat)) {
+        } else if (outputPath != null && OutputFormat.DIFF.equals(outputFormat)) {
           throw new UnsupportedOperationException("not supported yet");
         }
       }
@@ -528,7 +738,7 @@ final class CLI implements Callable<Integer> {
 
       return SUCCESS;
     } finally {
-      if (dryRun) {
+      if (dryRunCopy) {
         // delete the temp directory
         FileUtils.deleteDirectory(projectDirectory);
         log.debug("cleaned temp directory: {}", projectDirectory);
@@ -536,6 +746,99 @@ final class CLI implements Callable<Integer> {
     }
   }
 
+  /**
+   * Describe everything besides the codemod and the file contents that could change what a codemod
+   * does to a file, so results are only re-used when they would be the same. Only the results of
+   * codemods that depend on nothing but the file they're scanning are cached, so the other files in
+   * the project don't need to be part of this.
+   */
+  private String createResultCacheFingerprint(
+      final List<String> pathIncludes,
+      final List<String> pathExcludes,
+      final List<Path> sarifFiles,
+      final List<Path> sonarJsonFiles)
+      throws IOException {
+    List<String> fingerprint = new ArrayList<>();
+    fingerprint.add(String.valueOf(CLI.class.getPackage().getImplementationVersion()));
+    fingerprint.add(String.valueOf(codemodParameters));
+    fingerprint.add(String.valueOf(pathIncludes));
+    fingerprint.add(String.valueOf(pathExcludes));
+    List<Path> inputFiles = new ArrayList<>(sarifFiles);
+    inputFiles.addAll(sonarJsonFiles);
+    if (defectDojoFindingsJsonFilePath != null) {
+      inputFiles.add(defectDojoFindingsJsonFilePath);
+    }
+    if (contrastVulnerabilitiesXmlFilePath != null) {
+      inputFiles.add(contrastVulnerabilitiesXmlFilePath);
+    }
+    for (Path inputFile : inputFiles) {
+      fingerprint.add(MoreFiles.asByteSource(inputFile).hash(Hashing.sha256()).toString());
+    }
+    return String.join("\n", fingerprint);
+  }
+
+  /** Add a task to run a group of JavaParser codemods in file-major order, if there are any. */
+  private void addFileMajorTask(
+      final List<CodemodScheduler.Task> tasks,
+      final Path projectPath,
+      final List<DefaultCodemodExecutor> group,
+      final JavaParserFacade javaParserFacade,
+      final FileCache fileCache,
+      final FileOverlay fileOverlay,
+      final ExecutorService workerPool,
+      final List<Path> filePaths) {
+    if (group.isEmpty()) {
+      return;
+    }
+    tasks.add(
+        CodemodScheduler.Task.forCodemods(
+            group,
+            filePaths,
+            () -> {
+              log.info(
+                  "running codemods: {}",
+                  group.stream()
+                      .map(e -> e.getCodemod().getId())
+                      .collect(Collectors.joining(", ")));
+              FileMajorCodemodExecutor fileMajorExecutor =
+                  new FileMajorCodemodExecutor(
+                      projectPath,
+                      group,
+                      javaParserFacade,
+                      fileCache,
+                      encodingDetector,
+                      fileOverlay,
+                      workerPool);
+              List<CodeTFResult> groupResults = fileMajorExecutor.execute(filePaths);
+              groupResults.forEach(CLI::logResult);
+              return groupResults;
+            }));
+  }
+
+  private static void logResult(final CodeTFResult result) {
+    if (!result.getChangeset().isEmpty()) {
+      log.info("changed:");
+      result
+          .getChangeset()
+          .forEach(
+              entry -> {
+                log.info("  - " + entry.getPath());
+                String indentedDiff =
+                    entry
+                        .getDiff()
+                        .lines()
+                        .map(line -> "      " + line)
+                        .collect(Collectors.joining(System.lineSeparator()));
+                log.debug("    diff:");
+                log.debug(indentedDiff);
+              });
+    }
+    if (!result.getFailedFiles().isEmpty()) {
+      log.info("failed:");
+      result.getFailedFiles().forEach(f -> log.info("  - {}", f));
+    }
+  }
+
   private List<Path> convertToPaths(final List<String> pathsStr) {
     return pathsStr != null ? pathsStr.stream().map(Path::of).toList() : List.of();
   }
@@ -602,15 +905,7 @@ final class CLI implements Callable<Integer> {
     rootLogger.setLevel(Level.DEBUG);
   }
 
-  private static void logMetrics(final List<CodeTFResult> results) {
-    List<String> failedFiles = results.stream().flatMap(r -> r.getFailedFiles().stream()).toList();
-
-    List<String> changedFiles =
-        results.stream()
-            .flatMap(r -> r.getChangeset().stream())
-            .map(CodeTFChangesetEntry::getPath)
-            .toList();
-
+  private static void logMetrics(final List<String> failedFiles, final List<String> changedFiles) {
     long uniqueChangedFiles = changedFiles.stream().distinct().count();
     long uniqueFailedFiles = failedFiles.stream().distinct().count();
 
@@ -627,6 +922,43 @@ final class CLI implements Callable<Integer> {
     return codeTFProviders;
   }
 
+  /**
+   * Ask each project provider for a version of itself that works through the given overlay.
+   *
+   * @return the providers, or empty if any of them can only work with the files on disk
+   */
+  private static Optional<List<ProjectProvider>> withFileOverlay(
+      final List<ProjectProvider> projectProviders, final FileOverlay fileOverlay) {
+    List<ProjectProvider> overlayProjectProviders = new ArrayList<>();
+    for (ProjectProvider projectProvider : projectProviders) {
+      Optional<ProjectProvider> overlayProjectProvider =
+          projectProvider.withFileOverlay(fileOverlay);
+      if (overlayProjectProvider.isEmpty()) {
+        return Optional.empty();
+      }
+      overlayProjectProviders.add(overlayProjectProvider.get());
+    }
+    return Optional.of(overlayProjectProviders);
+  }
+
+  /**
+   * Returns true if all the enabled codemods write their changes through the {@link
+   * CodemodInvocationContext#fileOverlay()}. The framework does the writing for JavaParser and
+   * regex codemods, but other codemods may write to the files directly.
+   */
+  private boolean onlyWritesThroughFileOverlay(final CodemodRegulator regulator) {
+    return codemodTypes.stream()
+        .filter(
+            type -> {
+              Codemod codemod = type.getAnnotation(Codemod.class);
+              return codemod == null || regulator.isAllowed(codemod.id());
+            })
+        .allMatch(
+            type ->
+                JavaParserChanger.class.isAssignableFrom(type)
+                    || RegexFileChanger.class.isAssignableFrom(type));
+  }
+
   private List<ProjectProvider> loadProjectProviders() {
     List<ProjectProvider> projectProviders = new ArrayList<>();
     ServiceLoader<ProjectProvider> loader = ServiceLoader.load(ProjectProvider.class);
@@ -0,0 +1,88 @@
+package io.codemodder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Finds only the files from a given list of changed files, rather than walking the whole project.
+ * The list can be given directly or taken from the local git repository.
+ */
+final class ChangedFileFinder implements FileFinder {
+
+  private final List<Path> changedFiles;
+
+  /**
+   * @param changedFiles the changed files, which are resolved against the project directory if
+   *     they're relative
+   */
+  ChangedFileFinder(final List<Path> changedFiles) {
+    this.changedFiles = List.copyOf(Objects.requireNonNull(changedFiles));
+  }
+
+  @Override
+  public List<Path> findFiles(final Path projectDir, final IncludesExcludes includesExcludes) {
+    Path absoluteProjectDir = projectDir.toAbsolutePath().normalize();
+    return changedFiles.stream()
+        .map(file -> absoluteProjectDir.resolve(file).normalize())
+        .filter(file -> file.startsWith(absoluteProjectDir))
+        .filter(Files::isRegularFile)
+        .filter(file -> !Files.isSymbolicLink(file))
+        .filter(file -> includesExcludes.shouldInspect(file.toFile()))
+        .distinct()
+        .sorted()
+        .toList();
+  }
+
+  /**
+   * List the files under the given directory that are different in the working tree than they were
+   * at the given git ref, along with any untracked files that aren't ignored. This only consults
+   * the local repository.
+   *
+   * @param projectDir a directory inside a git working tree
+   * @param gitRef the commit, branch or tag to compare against
+   * @return the changed files, relative to the project directory
+   */
+  static List<Path> listGitChanges(final Path projectDir, final String gitRef) throws IOException {
+    if (gitRef.isBlank() || gitRef.startsWith("-")) {
+      throw new IllegalArgumentException("Invalid git ref: " + gitRef);
+    }
+    List<Path> changedFiles = new ArrayList<>();
+    changedFiles.addAll(
+        runGit(projectDir, "diff", "--name-only", "--relative", "-z", gitRef, "--"));
+    changedFiles.addAll(runGit(projectDir, "ls-files", "--others", "--exclude-standard", "-z"));
+    return changedFiles;
+  }
+
+  /** Run a git command that prints NUL-separated paths, and return those paths. */
+  private static List<Path> runGit(final Path directory, final String... args) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add("git");
+    command.addAll(Arrays.asList(args));
+    Process process =
+        new ProcessBuilder(command)
+            .directory(directory.toFile())
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+    String output;
+    try (InputStream stdout = process.getInputStream()) {
+      output = new String(stdout.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    try {
+      int rc = process.waitFor();
+      if (rc != 0) {
+        throw new IOException("error code seen from git execution: " + rc + " " + command);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("problem waiting for git process execution", e);
+    }
+    return Arrays.stream(output.split("\0")).filter(path -> !path.isEmpty()).map(Path::of).toList();
+  }
+}
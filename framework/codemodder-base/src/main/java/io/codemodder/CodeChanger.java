@@ -44,4 +44,14 @@ public interface CodeChanger {
   default boolean shouldRun() {
     return true;
   }
+
+  /**
+   * Returns true if what this codemod does to a file depends only on the file's own contents, and
+   * not on any other files in the project, like other sources it resolves symbols from or the build
+   * files it reads dependencies from. Only then can a run skip a file that this codemod already
+   * found nothing to do in, because it hasn't changed since.
+   */
+  default boolean dependsOnlyOnFile() {
+    return false;
+  }
 }
@@ -0,0 +1,80 @@
+package io.codemodder;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.codemodder.codetf.CodeTFReport;
+import io.codemodder.codetf.CodeTFResult;
+import io.codemodder.codetf.CodeTFRun;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Writes a {@link CodeTFReport} to a file one {@link CodeTFResult} at a time, so the whole report
+ * (and every diff in it) never has to be serialized into one big String. The results are written
+ * first, and the run is written last.
+ */
+final class CodeTFReportWriter implements Closeable {
+
+  private final Path outputFile;
+  private final ObjectMapper mapper;
+  private final JsonGenerator generator;
+  private boolean finished;
+
+  private CodeTFReportWriter(final Path outputFile) throws IOException {
+    this.outputFile = Objects.requireNonNull(outputFile);
+    this.mapper = new ObjectMapper();
+    mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    this.generator =
+        mapper.getFactory().createGenerator(Files.newOutputStream(outputFile), JsonEncoding.UTF8);
+    generator.writeStartObject();
+    generator.writeArrayFieldStart("results");
+  }
+
+  /** Start writing a report to the given file, replacing anything that's already there. */
+  static CodeTFReportWriter open(final Path outputFile) throws IOException {
+    return new CodeTFReportWriter(outputFile);
+  }
+
+  /** Append a result to the report. */
+  synchronized void write(final CodeTFResult result) throws IOException {
+    if (finished) {
+      throw new IllegalStateException("report is already finished");
+    }
+    mapper.writeValue(generator, result);
+  }
+
+  /** Write the run and close the report. No more results can be written after this. */
+  synchronized void finish(final CodeTFRun run) throws IOException {
+    if (finished) {
+      throw new IllegalStateException("report is already finished");
+    }
+    generator.writeEndArray();
+    generator.writeFieldName("run");
+    mapper.writeValue(generator, run);
+    generator.writeEndObject();
+    finished = true;
+    generator.close();
+  }
+
+  /**
+   * Close the report. If it wasn't finished, the incomplete file is deleted rather than left
+   * behind.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    try {
+      generator.close();
+    } finally {
+      Files.deleteIfExists(outputFile);
+    }
+  }
+}
@@ -28,6 +28,14 @@ public interface CodemodInvocationContext {
   /** The list of dependencies that were found at pom file */
   Collection<DependencyGAV> dependencies();
 
+  /**
+   * Where the codemod should write its changes to the file. During a dry run, this may keep the
+   * changes in memory rather than writing them to disk.
+   */
+  default FileOverlay fileOverlay() {
+    return FileOverlay.disk();
+  }
+
   /**
    * Convenience method for stream-wise processing lines of the file being changed with line
    * numbers.
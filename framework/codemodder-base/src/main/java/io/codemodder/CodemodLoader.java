@@ -67,10 +67,28 @@ public final class CodemodLoader {
           });
     }
 
+    // validate all the codemods, even the ones that won't run
+    final Set<String> codemodIds = new HashSet<>();
+    for (final Class<? extends CodeChanger> type : orderedCodemodTypes) {
+      final Codemod codemodAnnotation = type.getAnnotation(Codemod.class);
+      validateRequiredFields(codemodAnnotation);
+      final String codemodId = codemodAnnotation.id();
+      if (codemodIds.contains(codemodId)) {
+        throw new UnsupportedOperationException("multiple codemods under id: " + codemodId);
+      }
+      codemodIds.add(codemodId);
+    }
+
+    // only the codemods that will run are loaded, so providers don't scan for the others
+    final List<Class<? extends CodeChanger>> allowedCodemodTypes =
+        orderedCodemodTypes.stream()
+            .filter(type -> codemodRegulator.isAllowed(type.getAnnotation(Codemod.class).id()))
+            .toList();
+
     // get all the injectable parameters
     Set<String> packagesScanned = new HashSet<>();
     List<Parameter> injectableParameters = new ArrayList<>();
-    for (Class<? extends CodeChanger> codemodType : orderedCodemodTypes) {
+    for (Class<? extends CodeChanger> codemodType : allowedCodemodTypes) {
       String packageName = codemodType.getPackageName();
       if (!packagesScanned.contains(packageName)) {
         packagesScanned.add(packageName);
@@ -116,7 +134,7 @@ public final class CodemodLoader {
               includedFiles,
               pathIncludes,
               pathExcludes,
-              orderedCodemodTypes,
+              allowedCodemodTypes,
               allWantedSarifs,
               sonarJsonFiles,
               defectDojoFindingsJsonFile,
@@ -127,24 +145,14 @@ public final class CodemodLoader {
     // record which changers are associated with which codemod ids
     final List<CodemodIdPair> codemods = new ArrayList<>();
 
-    // validate and instantiate the codemods
+    // instantiate the codemods
     log.trace("Instantiating codemods");
     final Injector injector = Guice.createInjector(allModules);
-    log.trace("Codemods instantiated");
-    final Set<String> codemodIds = new HashSet<>();
-    for (final Class<? extends CodeChanger> type : orderedCodemodTypes) {
-      final Codemod codemodAnnotation = type.getAnnotation(Codemod.class);
-      validateRequiredFields(codemodAnnotation);
-      final CodeChanger codeChanger = injector.getInstance(type);
-      final String codemodId = codemodAnnotation.id();
-      if (codemodIds.contains(codemodId)) {
-        throw new UnsupportedOperationException("multiple codemods under id: " + codemodId);
-      }
-      codemodIds.add(codemodId);
-      if (codemodRegulator.isAllowed(codemodId)) {
-        codemods.add(new CodemodIdPair(codemodId, codeChanger));
-      }
+    for (final Class<? extends CodeChanger> type : allowedCodemodTypes) {
+      final String codemodId = type.getAnnotation(Codemod.class).id();
+      codemods.add(new CodemodIdPair(codemodId, injector.getInstance(type)));
     }
+    log.trace("Codemods instantiated");
     this.codemods = Collections.unmodifiableList(codemods);
   }
 
@@ -0,0 +1,56 @@
+package io.codemodder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Remembers, from one run to the next, which files a codemod scanned without changing anything or
+ * reporting any unfixed findings, so they can be skipped if their contents haven't changed since.
+ */
+interface CodemodResultCache {
+
+  /** A cache that never remembers anything. */
+  CodemodResultCache NONE =
+      new CodemodResultCache() {
+        @Override
+        public boolean isUnchanged(
+            final CodemodIdPair codemod, final Path file, final String contents) {
+          return false;
+        }
+
+        @Override
+        public void recordUnchanged(
+            final CodemodIdPair codemod, final Path file, final String contents) {}
+
+        @Override
+        public void save() {}
+      };
+
+  /**
+   * Returns true if the codemod already scanned the file with exactly these contents, and found
+   * nothing to do.
+   */
+  boolean isUnchanged(CodemodIdPair codemod, Path file, String contents);
+
+  /** Remember that the codemod found nothing to do in the file with these contents. */
+  void recordUnchanged(CodemodIdPair codemod, Path file, String contents);
+
+  /**
+   * Write out everything that was confirmed during this run for the next run to use, along with
+   * what was remembered for the files this run didn't scan.
+   */
+  void save() throws IOException;
+
+  /**
+   * Create a cache that's stored in the given directory.
+   *
+   * @param cacheDir the directory to store the cache in, which is created if needed
+   * @param projectDir the project being scanned, so files can be remembered by relative path
+   * @param runFingerprint a description of everything besides the codemod and the file contents
+   *     that could affect the outcome, like the codemodder version, parameters and tool results
+   */
+  static CodemodResultCache inDirectory(
+      final Path cacheDir, final Path projectDir, final String runFingerprint) {
+    return new DefaultCodemodResultCache(cacheDir, projectDir, runFingerprint);
+  }
+}
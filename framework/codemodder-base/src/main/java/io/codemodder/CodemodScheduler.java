@@ -0,0 +1,175 @@
+package io.codemodder;
+
+import io.codemodder.codetf.CodeTFResult;
+import io.codemodder.javaparser.JavaParserChanger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs codemods concurrently when they can't interfere with each other. The tasks are given in
+ * {@link CodemodExecutionPriority} order, and a task only waits for the earlier tasks that target
+ * at least one of the same files, so codemods with disjoint targets run in parallel while
+ * overlapping codemods still run in priority order.
+ */
+final class CodemodScheduler {
+
+  /** The max number of tasks we'll run at the same time. */
+  private final int maxConcurrentTasks;
+
+  CodemodScheduler(final int maxConcurrentTasks) {
+    this.maxConcurrentTasks = maxConcurrentTasks;
+  }
+
+  /**
+   * Some work that changes files.
+   *
+   * @param targetFiles the files the task may change, only asked for if tasks may run concurrently
+   * @param exclusive whether the task may change files other than its targets, in which case it
+   *     never runs alongside any other task
+   * @param work the work, returning a {@link CodeTFResult} for each codemod it ran
+   */
+  record Task(
+      Supplier<Set<Path>> targetFiles, boolean exclusive, Supplier<List<CodeTFResult>> work) {
+
+    Task {
+      Objects.requireNonNull(targetFiles);
+      Objects.requireNonNull(work);
+    }
+
+    /**
+     * Create a task for running the given codemods. Codemods that aren't JavaParser-based may
+     * change files they weren't given (e.g., build files), so they run exclusively.
+     */
+    static Task forCodemods(
+        final List<DefaultCodemodExecutor> codemodExecutors,
+        final List<Path> filePaths,
+        final Supplier<List<CodeTFResult>> work) {
+      boolean exclusive =
+          codemodExecutors.stream()
+              .anyMatch(e -> !(e.getCodemod().getChanger() instanceof JavaParserChanger));
+      Supplier<Set<Path>> targetFiles =
+          () -> {
+            Set<Path> targets = new LinkedHashSet<>();
+            for (DefaultCodemodExecutor codemodExecutor : codemodExecutors) {
+              targets.addAll(
+                  codemodExecutor.findTargetFiles(
+                      codemodExecutor.createCodemodRunner(), filePaths));
+            }
+            return targets;
+          };
+      return new Task(targetFiles, exclusive, work);
+    }
+  }
+
+  /**
+   * Run all the tasks.
+   *
+   * @return the results of all the tasks, in the same order the tasks were given
+   */
+  List<CodeTFResult> run(final List<Task> tasks) {
+    List<CodeTFResult> results = new ArrayList<>();
+    run(tasks, results::add);
+    return results;
+  }
+
+  /**
+   * Run all the tasks, handing over each task's results as soon as it and every task before it are
+   * finished, so the results don't have to be held until the end.
+   *
+   * @param resultConsumer receives the results of all the tasks, in the same order the tasks were
+   *     given, always from the calling thread
+   */
+  void run(final List<Task> tasks, final Consumer<CodeTFResult> resultConsumer) {
+    if (maxConcurrentTasks == 1 || tasks.size() < 2) {
+      tasks.forEach(task -> task.work().get().forEach(resultConsumer));
+      return;
+    }
+
+    int workers = maxConcurrentTasks != -1 ? maxConcurrentTasks : tasks.size();
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    try {
+      List<CompletableFuture<List<CodeTFResult>>> futures = schedule(tasks, executor);
+      for (int i = 0; i < futures.size(); i++) {
+        futures.get(i).join().forEach(resultConsumer);
+        // we don't need to keep the results around once they're handed over
+        futures.set(i, null);
+      }
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Start each task as soon as the tasks that must happen before it are finished. For every file,
+   * we remember the last task that targeted it, so each task only depends on its most recent
+   * overlapping predecessors, and transitively on all the earlier ones.
+   */
+  private static List<CompletableFuture<List<CodeTFResult>>> schedule(
+      final List<Task> tasks, final ExecutorService executor) {
+    List<CompletableFuture<List<CodeTFResult>>> futures = new ArrayList<>();
+    Map<Path, CompletableFuture<?>> lastTaskForFile = new HashMap<>();
+    List<CompletableFuture<?>> sinceLastExclusive = new ArrayList<>();
+    CompletableFuture<?> lastExclusive = CompletableFuture.completedFuture(null);
+
+    // find the target files of every task at the same time, rather than one task after another
+    List<CompletableFuture<Set<Path>>> targetFilesByTask =
+        tasks.stream()
+            .map(
+                task ->
+                    task.exclusive()
+                        ? CompletableFuture.completedFuture(Set.<Path>of())
+                        : CompletableFuture.supplyAsync(task.targetFiles(), executor))
+            .toList();
+
+    for (int i = 0; i < tasks.size(); i++) {
+      Task task = tasks.get(i);
+      Set<CompletableFuture<?>> predecessors = new LinkedHashSet<>();
+      predecessors.add(lastExclusive);
+      Set<Path> targetFiles = targetFilesByTask.get(i).join();
+      if (task.exclusive()) {
+        predecessors.addAll(sinceLastExclusive);
+      } else {
+        for (Path targetFile : targetFiles) {
+          CompletableFuture<?> predecessor = lastTaskForFile.get(targetFile);
+          if (predecessor != null) {
+            predecessors.add(predecessor);
+          }
+        }
+      }
+
+      // a failed predecessor shouldn't stop this task from running, just like it wouldn't serially
+      CompletableFuture<List<CodeTFResult>> future =
+          CompletableFuture.allOf(predecessors.toArray(CompletableFuture[]::new))
+              .handle((ignored, error) -> null)
+              .thenApplyAsync(ignored -> task.work().get(), executor);
+      futures.add(future);
+
+      if (task.exclusive()) {
+        lastExclusive = future;
+        sinceLastExclusive.clear();
+        lastTaskForFile.clear();
+      } else {
+        sinceLastExclusive.add(future);
+        targetFiles.forEach(targetFile -> lastTaskForFile.put(targetFile, future));
+      }
+    }
+    return futures;
+  }
+}
@@ -2,18 +2,15 @@ package io.codemodder;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicReference;
 
 final class DefaultCodeDirectory implements CodeDirectory {
 
   private final Path repositoryDir;
+  private volatile TrailingPathIndex trailingPathIndex;
 
   DefaultCodeDirectory(final Path repositoryDir) {
     if (!Files.exists(repositoryDir)) {
@@ -36,9 +33,6 @@ final class DefaultCodeDirectory implements CodeDirectory {
 
   @Override
   public Optional<Path> findFilesWithTrailingPath(final String path) throws IOException {
-    // find the files with the trailing path
-    AtomicReference<Path> found = new AtomicReference<>();
-
     final String cleanPath =
         path.trim()
             .replace("\\\\", "\\")
@@ -46,18 +40,24 @@ final class DefaultCodeDirectory implements CodeDirectory {
             .replace('\\', File.separatorChar)
             .replace('/', File.separatorChar);
 
-    Files.walkFileTree(
-        repositoryDir,
-        new SimpleFileVisitor<>() {
-          @Override
-          public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
-            if (file.toString().endsWith(cleanPath)) {
-              found.set(file);
-              return FileVisitResult.TERMINATE;
-            }
-            return FileVisitResult.CONTINUE;
-          }
-        });
-    return Optional.ofNullable(found.get());
+    return getTrailingPathIndex().find(cleanPath);
+  }
+
+  /**
+   * Get the index of the files in the directory, walking it the first time it's needed. Tools can
+   * report thousands of partial paths, so they're all looked up in the same index.
+   */
+  private TrailingPathIndex getTrailingPathIndex() throws IOException {
+    TrailingPathIndex index = trailingPathIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = trailingPathIndex;
+        if (index == null) {
+          index = TrailingPathIndex.build(repositoryDir);
+          trailingPathIndex = index;
+        }
+      }
+    }
+    return index;
   }
 }
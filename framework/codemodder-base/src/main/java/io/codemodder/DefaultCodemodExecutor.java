@@ -2,7 +2,6 @@ package io.codemodder;
 
 import static java.util.Collections.emptyMap;
 
-import com.github.difflib.DiffUtils;
 import com.github.difflib.UnifiedDiffUtils;
 import io.codemodder.codetf.*;
 import io.codemodder.javaparser.JavaParserChanger;
@@ -42,9 +41,22 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
    */
   private final int maxFiles;
 
-  /** The max number of workers we'll use to scan files. */
+  /** The max number of workers we'll use to scan files, if we have to create our own pool. */
   private final int maxWorkers;
 
+  /**
+   * The pool shared by the whole run, if there is one. Reusing the same threads across codemods
+   * means each worker only builds its {@link com.github.javaparser.JavaParser} and warms up its
+   * type solver once per run.
+   */
+  private final ExecutorService workerPool;
+
+  /** Remembers which files this codemod had nothing to do in, from one run to the next. */
+  private final CodemodResultCache resultCache;
+
+  /** Where files are read from and changes are written to. */
+  private final FileOverlay fileOverlay;
+
   DefaultCodemodExecutor(
       final Path projectDir,
       final CodemodIdPair codemod,
@@ -56,6 +68,41 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
       final int maxFileSize,
       final int maxFiles,
       final int maxWorkers) {
+    this(
+        projectDir,
+        codemod,
+        projectProviders,
+        codetfProviders,
+        fileCache,
+        javaParserFacade,
+        encodingDetector,
+        maxFileSize,
+        maxFiles,
+        maxWorkers,
+        null,
+        CodemodResultCache.NONE,
+        FileOverlay.disk());
+  }
+
+  /**
+   * Create an executor that scans files using the given run-scoped worker pool, rather than
+   * creating and tearing down a pool of its own, skips the files the given cache says it had
+   * nothing to do in last time, and reads and writes files through the given overlay.
+   */
+  DefaultCodemodExecutor(
+      final Path projectDir,
+      final CodemodIdPair codemod,
+      final List<ProjectProvider> projectProviders,
+      final List<CodeTFProvider> codetfProviders,
+      final FileCache fileCache,
+      final JavaParserFacade javaParserFacade,
+      final EncodingDetector encodingDetector,
+      final int maxFileSize,
+      final int maxFiles,
+      final int maxWorkers,
+      final ExecutorService workerPool,
+      final CodemodResultCache resultCache,
+      final FileOverlay fileOverlay) {
     this.projectDir = Objects.requireNonNull(projectDir);
     this.includesExcludes = IncludesExcludes.any();
     this.perCodemodIncludesExcludes = true;
@@ -68,6 +115,9 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
     this.maxFileSize = maxFileSize;
     this.maxFiles = maxFiles;
     this.maxWorkers = maxWorkers;
+    this.workerPool = workerPool;
+    this.resultCache = Objects.requireNonNull(resultCache);
+    this.fileOverlay = Objects.requireNonNull(fileOverlay);
   }
 
   DefaultCodemodExecutor(
@@ -82,6 +132,43 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
       final int maxFileSize,
       final int maxFiles,
       final int maxWorkers) {
+    this(
+        projectDir,
+        includesExcludes,
+        codemod,
+        projectProviders,
+        codetfProviders,
+        fileCache,
+        javaParserFacade,
+        encodingDetector,
+        maxFileSize,
+        maxFiles,
+        maxWorkers,
+        null,
+        CodemodResultCache.NONE,
+        FileOverlay.disk());
+  }
+
+  /**
+   * Create an executor that scans files using the given run-scoped worker pool, rather than
+   * creating and tearing down a pool of its own, skips the files the given cache says it had
+   * nothing to do in last time, and reads and writes files through the given overlay.
+   */
+  DefaultCodemodExecutor(
+      final Path projectDir,
+      final IncludesExcludes includesExcludes,
+      final CodemodIdPair codemod,
+      final List<ProjectProvider> projectProviders,
+      final List<CodeTFProvider> codetfProviders,
+      final FileCache fileCache,
+      final JavaParserFacade javaParserFacade,
+      final EncodingDetector encodingDetector,
+      final int maxFileSize,
+      final int maxFiles,
+      final int maxWorkers,
+      final ExecutorService workerPool,
+      final CodemodResultCache resultCache,
+      final FileOverlay fileOverlay) {
     this.projectDir = Objects.requireNonNull(projectDir);
     this.includesExcludes = Objects.requireNonNull(includesExcludes);
     this.perCodemodIncludesExcludes = false;
@@ -94,6 +181,9 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
     this.maxFileSize = maxFileSize;
     this.maxFiles = maxFiles;
     this.maxWorkers = maxWorkers;
+    this.workerPool = workerPool;
+    this.resultCache = Objects.requireNonNull(resultCache);
+    this.fileOverlay = Objects.requireNonNull(fileOverlay);
   }
 
   @Override
@@ -106,150 +196,262 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
     /*
      *  Create the right CodemodRunner based on the type of CodeChanger.
      */
-    CodemodRunner codemodRunner;
-    if (codeChanger instanceof JavaParserChanger) {
-      if (perCodemodIncludesExcludes) {
-        codemodRunner =
-            new JavaParserCodemodRunner(
-                javaParserFacade, (JavaParserChanger) codeChanger, projectDir, encodingDetector);
-      } else {
-        codemodRunner =
-            new JavaParserCodemodRunner(
-                javaParserFacade,
-                (JavaParserChanger) codeChanger,
-                projectDir,
-                includesExcludes,
-                encodingDetector);
-      }
-    } else if (codeChanger instanceof RawFileChanger) {
-      if (perCodemodIncludesExcludes) {
-        codemodRunner = new RawFileCodemodRunner((RawFileChanger) codeChanger, projectDir);
-      } else {
-        codemodRunner = new RawFileCodemodRunner((RawFileChanger) codeChanger, includesExcludes);
-      }
-    } else {
-      throw new UnsupportedOperationException(
-          "unsupported codeChanger type: " + codeChanger.getClass().getName());
-    }
+    CodemodRunner codemodRunner = createCodemodRunner();
 
     /*
      * Filter the files to those that the CodemodRunner supports.
      */
-    List<Path> codemodTargetFiles =
-        filePaths.stream()
-            .filter(codemodRunner::supports)
-            .sorted()
-            .limit(maxFiles != -1 ? maxFiles : Long.MAX_VALUE)
-            .sorted()
-            .toList();
+    List<Path> codemodTargetFiles = findTargetFiles(codemodRunner, filePaths);
 
     /*
      * The changeset doesn't need to be thread-safe because it's only added to within a synchronized block.
      */
     List<CodeTFChangesetEntry> changeset = new ArrayList<>();
 
-    int workers = maxWorkers != -1 ? maxWorkers : 1;
-    ExecutorService executor = Executors.newFixedThreadPool(workers);
-    CompletionService<String> service = new ExecutorCompletionService<>(executor);
+    ExecutorService executor = workerPool != null ? workerPool : newWorkerPool(maxWorkers);
+    Map<Path, Future<?>> futures = new LinkedHashMap<>();
 
     List<UnfixedFinding> unfixedFindings = new CopyOnWriteArrayList<>();
 
-    // for each file, add a task to the completion service
+    // for each file, add a task to the worker pool
     for (Path filePath : codemodTargetFiles) {
 
-      executor.submit(
-          () -> {
-            // create the context necessary for the codemod to run
-            LineIncludesExcludes lineIncludesExcludes =
-                includesExcludes.getIncludesExcludesForFile(filePath.toFile());
-
-            try {
-
-              if (maxFileSize != -1) {
-                long size = Files.size(filePath);
-                if (size > maxFileSize) {
+      futures.put(
+          filePath,
+          executor.submit(
+              () -> {
+                try {
+
+                  if (isTooBig(filePath)) {
+                    unscannableFiles.add(filePath);
+                    return;
+                  }
+
+                  final String beforeFileContents;
+                  try {
+                    beforeFileContents = fileCache.get(filePath);
+                  } catch (final MalformedInputException e) {
+                    log.warn("file uses unsupported character encoding: {}", filePath);
+                    unscannableFiles.add(filePath);
+                    return;
+                  }
+
+                  // skip the file if we already know there's nothing to do in it
+                  if (isKnownUnchanged(filePath, beforeFileContents)) {
+                    return;
+                  }
+
+                  // create the context necessary for the codemod to run
+                  RecordingFileOverlay recordingOverlay =
+                      new RecordingFileOverlay(fileOverlay, filePath);
+                  CodemodInvocationContext context =
+                      createContext(
+                          codeDirectory,
+                          filePath,
+                          beforeFileContents,
+                          getDependencies(filePath),
+                          recordingOverlay);
+
+                  // run the codemod on the file
+                  CodemodFileScanningResult codemodFileScanningResult = codemodRunner.run(context);
+                  recordIfUnchanged(filePath, beforeFileContents, codemodFileScanningResult);
+                  List<CodemodChange> codemodChanges = codemodFileScanningResult.changes();
+                  if (!codemodChanges.isEmpty()) {
+                    // use what the codemod wrote, rather than reading it back, if we can
+                    Optional<String> writtenContents = recordingOverlay.writtenContents();
+                    String afterFileContents =
+                        writtenContents.isPresent()
+                            ? writtenContents.get()
+                            : fileOverlay.readString(filePath);
+                    synchronized (this) {
+                      FilesUpdateResult updateResult =
+                          updateFiles(
+                              filePath,
+                              beforeFileContents,
+                              afterFileContents,
+                              codemodChanges,
+                              getAiMetadata(codemodFileScanningResult));
+                      unscannableFiles.addAll(updateResult.filesFailedToChange());
+                      changeset.addAll(updateResult.changeset());
+                    }
+                  }
+
+                  unfixedFindings.addAll(codemodFileScanningResult.unfixedFindings());
+
+                } catch (Exception e) {
                   unscannableFiles.add(filePath);
-                  return;
+                  log.error("Problem scanning file {}", filePath, e);
                 }
-              }
+              }));
+    }
 
-              final String beforeFileContents;
-              try {
-                beforeFileContents = fileCache.get(filePath);
-              } catch (final MalformedInputException e) {
-                log.warn("file uses unsupported character encoding: {}", filePath);
-                unscannableFiles.add(filePath);
-                return;
-              }
+    unscannableFiles.addAll(awaitAll(futures, TIMEOUT_MINUTES));
+    if (executor != workerPool) {
+      executor.shutdown();
+    }
 
-              Collection<DependencyGAV> deps =
-                  projectProviders.stream()
-                      .flatMap(
-                          provider -> {
-                            try {
-                              return provider.getAllDependencies(projectDir, filePath).stream();
-                            } catch (Exception e) {
-                              log.error("Problem getting dependencies for file {}", filePath, e);
-                              return Stream.empty();
-                            }
-                          })
-                      .toList();
-
-              CodemodInvocationContext context =
-                  new DefaultCodemodInvocationContext(
-                      codeDirectory,
-                      filePath,
-                      beforeFileContents,
-                      codemod.getId(),
-                      lineIncludesExcludes,
-                      deps);
-
-              // run the codemod on the file
-              CodemodFileScanningResult codemodFileScanningResult = codemodRunner.run(context);
-              final CodeTFAiMetadata codeTFAiMetadata;
-              if (codemodFileScanningResult instanceof AIMetadataProvider aiMetadataProvider) {
-                codeTFAiMetadata = aiMetadataProvider.codeTFAiMetadata();
-              } else {
-                codeTFAiMetadata = null;
-              }
-              List<CodemodChange> codemodChanges = codemodFileScanningResult.changes();
-              if (!codemodChanges.isEmpty()) {
-                synchronized (this) {
-                  FilesUpdateResult updateResult =
-                      updateFiles(
-                          codeChanger,
-                          filePath,
-                          beforeFileContents,
-                          codemodChanges,
-                          codeTFAiMetadata);
-                  unscannableFiles.addAll(updateResult.filesFailedToChange());
-                  changeset.addAll(updateResult.changeset());
-                }
-              }
+    // files that timed out may still be finishing up, so don't read the changeset while they do
+    synchronized (this) {
+      return createResult(unscannableFiles, List.copyOf(changeset), unfixedFindings);
+    }
+  }
 
-              unfixedFindings.addAll(codemodFileScanningResult.unfixedFindings());
+  /** Create a pool for scanning files with the given max number of workers. */
+  static ExecutorService newWorkerPool(final int maxWorkers) {
+    int workers = maxWorkers != -1 ? maxWorkers : 1;
+    return Executors.newFixedThreadPool(workers);
+  }
 
-            } catch (Exception e) {
-              unscannableFiles.add(filePath);
-              log.error("Problem scanning file {}", filePath, e);
-            }
-          });
+  /**
+   * Wait for the given file scanning tasks to finish, for up to the given number of minutes in all.
+   * Tasks that haven't finished by then are cancelled.
+   *
+   * @return the files whose tasks didn't finish
+   */
+  static List<Path> awaitAll(final Map<Path, Future<?>> futures, final long timeoutMinutes) {
+    long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(timeoutMinutes);
+    List<Path> unfinishedFiles = new ArrayList<>();
+    for (Map.Entry<Path, Future<?>> entry : futures.entrySet()) {
+      Future<?> future = entry.getValue();
+      try {
+        future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (ExecutionException e) {
+        log.error("Problem running scanning thread", e.getCause());
+      } catch (TimeoutException e) {
+        log.error("Timed out scanning file {}", entry.getKey());
+        future.cancel(true);
+        unfinishedFiles.add(entry.getKey());
+      } catch (InterruptedException e) {
+        log.error("Problem waiting for scanning threads to exit", e);
+        Thread.currentThread().interrupt();
+        futures.forEach(
+            (file, unfinished) -> {
+              if (unfinished.cancel(true)) {
+                unfinishedFiles.add(file);
+              }
+            });
+        return unfinishedFiles;
+      }
     }
+    return unfinishedFiles;
+  }
 
-    executor.shutdown();
-    try {
-      boolean success = executor.awaitTermination(10, TimeUnit.MINUTES);
-      log.trace("Success running codemod: {}", success);
-      while (!executor.isTerminated()) {
-        final Future<String> future = service.poll(5, TimeUnit.SECONDS);
-        if (future != null) {
-          log.trace("Finished: {}", future.get());
-        }
+  /** The codemod this executor runs. */
+  CodemodIdPair getCodemod() {
+    return codemod;
+  }
+
+  /** Create the right {@link CodemodRunner} based on the type of {@link CodeChanger}. */
+  CodemodRunner createCodemodRunner() {
+    CodeChanger codeChanger = codemod.getChanger();
+    if (codeChanger instanceof JavaParserChanger javaParserChanger) {
+      // detect encodings from the contents we've already read, rather than reading files again
+      EncodingDetector cachedEncodingDetector =
+          file -> fileCache.getEncoding(file, encodingDetector);
+      if (perCodemodIncludesExcludes) {
+        return new JavaParserCodemodRunner(
+            javaParserFacade, javaParserChanger, projectDir, cachedEncodingDetector);
+      }
+      return new JavaParserCodemodRunner(
+          javaParserFacade,
+          javaParserChanger,
+          projectDir,
+          includesExcludes,
+          cachedEncodingDetector);
+    } else if (codeChanger instanceof RawFileChanger rawFileChanger) {
+      if (perCodemodIncludesExcludes) {
+        return new RawFileCodemodRunner(rawFileChanger, projectDir);
       }
-    } catch (Exception e) {
-      log.error("Problem waiting for scanning threads to exit", e);
+      return new RawFileCodemodRunner(rawFileChanger, includesExcludes);
     }
+    throw new UnsupportedOperationException(
+        "unsupported codeChanger type: " + codeChanger.getClass().getName());
+  }
+
+  /** Filter the files to those that the {@link CodemodRunner} supports, honoring the max files. */
+  List<Path> findTargetFiles(final CodemodRunner codemodRunner, final List<Path> filePaths) {
+    return filePaths.stream()
+        .filter(codemodRunner::supports)
+        .sorted()
+        .limit(maxFiles != -1 ? maxFiles : Long.MAX_VALUE)
+        .sorted()
+        .toList();
+  }
+
+  /** Returns true if the file is larger than the max file size we're allowed to scan. */
+  boolean isTooBig(final Path filePath) throws IOException {
+    return maxFileSize != -1 && Files.size(filePath) > maxFileSize;
+  }
+
+  /** Returns true if an earlier run found nothing for this codemod to do in these contents. */
+  boolean isKnownUnchanged(final Path filePath, final String contents) {
+    return cachesResults() && resultCache.isUnchanged(codemod, filePath, contents);
+  }
+
+  /** If the codemod found nothing to do in these contents, remember it for later runs. */
+  void recordIfUnchanged(
+      final Path filePath, final String contents, final CodemodFileScanningResult result) {
+    if (cachesResults() && result.changes().isEmpty() && result.unfixedFindings().isEmpty()) {
+      resultCache.recordUnchanged(codemod, filePath, contents);
+    }
+  }
 
+  /**
+   * Returns true if the codemod's results can be cached by the file's contents, because it has
+   * declared that what it does to a file depends only on the file.
+   */
+  private boolean cachesResults() {
+    return codemod.getChanger().dependsOnlyOnFile();
+  }
+
+  /** Ask all the project providers for the dependencies available to the given file. */
+  Collection<DependencyGAV> getDependencies(final Path filePath) {
+    return projectProviders.stream()
+        .flatMap(
+            provider -> {
+              try {
+                return provider.getAllDependencies(projectDir, filePath).stream();
+              } catch (Exception e) {
+                log.error("Problem getting dependencies for file {}", filePath, e);
+                return Stream.empty();
+              }
+            })
+        .toList();
+  }
+
+  /** Create the context necessary for the codemod to run on the given file contents. */
+  CodemodInvocationContext createContext(
+      final CodeDirectory codeDirectory,
+      final Path filePath,
+      final String contents,
+      final Collection<DependencyGAV> dependencies) {
+    return createContext(codeDirectory, filePath, contents, dependencies, fileOverlay);
+  }
+
+  private CodemodInvocationContext createContext(
+      final CodeDirectory codeDirectory,
+      final Path filePath,
+      final String contents,
+      final Collection<DependencyGAV> dependencies,
+      final FileOverlay contextFileOverlay) {
+    LineIncludesExcludes lineIncludesExcludes =
+        includesExcludes.getIncludesExcludesForFile(filePath.toFile());
+    return new DefaultCodemodInvocationContext(
+        codeDirectory,
+        filePath,
+        contents,
+        codemod.getId(),
+        lineIncludesExcludes,
+        dependencies,
+        contextFileOverlay);
+  }
+
+  /** Build the final {@link CodeTFResult} from everything gathered while scanning. */
+  CodeTFResult createResult(
+      final Collection<Path> unscannableFiles,
+      final List<CodeTFChangesetEntry> changeset,
+      final List<UnfixedFinding> unfixedFindings) {
+    CodeChanger codeChanger = codemod.getChanger();
     DetectionTool detectionTool = null;
     if (codeChanger instanceof FixOnlyCodeChanger fixOnlyCodeChanger) {
       detectionTool = new DetectionTool(fixOnlyCodeChanger.vendorName());
@@ -277,18 +479,27 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
     return result;
   }
 
+  static CodeTFAiMetadata getAiMetadata(final CodemodFileScanningResult scanningResult) {
+    if (scanningResult instanceof AIMetadataProvider aiMetadataProvider) {
+      return aiMetadataProvider.codeTFAiMetadata();
+    }
+    return null;
+  }
+
   /**
    * This file method does the hard work of updating files, based on a list of codemod changes
    * reported to have occurred.
    */
-  private FilesUpdateResult updateFiles(
-      final CodeChanger codeChanger,
+  FilesUpdateResult updateFiles(
       final Path filePath,
       final String beforeFileContents,
+      final String afterContents,
       final List<CodemodChange> codemodChanges,
       final CodeTFAiMetadata codeTFAiMetadata)
       throws IOException {
 
+    CodeChanger codeChanger = codemod.getChanger();
+
     List<Path> filesFailedToChange = List.of();
 
     // update the dependencies in the manifest file if needed
@@ -323,14 +534,14 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
     // make sure we add the file's entry first, then the dependency entries, so the causality
     // is clear
     List<String> beforeFile = beforeFileContents.lines().toList();
-    String afterContents = Files.readString(filePath);
     List<String> afterFile = afterContents.lines().toList();
+    List<Integer> changedLines = codemodChanges.stream().map(CodemodChange::lineNumber).toList();
     List<String> patchDiff =
         UnifiedDiffUtils.generateUnifiedDiff(
             filePath.getFileName().toString(),
             filePath.getFileName().toString(),
             beforeFile,
-            DiffUtils.diff(beforeFile, afterFile),
+            RegionDiff.diff(beforeFile, afterFile, changedLines),
             3);
 
     String diff = String.join("\n", patchDiff);
@@ -350,8 +561,9 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
             null));
     changeset.addAll(dependencyChangesetEntries);
 
-    // update the cache
+    // update the caches
     fileCache.overrideEntry(filePath, afterContents);
+    javaParserFacade.invalidate(filePath);
     dependencyChangesetEntries.forEach(
         entry -> fileCache.removeEntry(projectDir.resolve(entry.getPath())));
 
@@ -397,8 +609,13 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
     List<DependencyGAV> skippedDependencies = new ArrayList<>();
     List<CodeTFChangesetEntry> pkgChanges = new ArrayList<>();
     for (ProjectProvider projectProvider : projectProviders) {
-      DependencyUpdateResult result =
-          projectProvider.updateDependencies(projectDir, file, dependencies);
+      // manifests may be shared with codemods running concurrently on other files
+      Path manifest =
+          projectProvider.findManifest(projectDir, file).orElse(projectDir).toAbsolutePath();
+      DependencyUpdateResult result;
+      synchronized (manifestLocks.computeIfAbsent(manifest.normalize(), k -> new Object())) {
+        result = projectProvider.updateDependencies(projectDir, file, dependencies);
+      }
       unscannableFiles.addAll(result.erroredFiles().stream().map(Path::toAbsolutePath).toList());
       pkgChanges.addAll(result.packageChanges());
       for (DependencyGAV dependency : result.injectedPackages()) {
@@ -452,8 +669,17 @@ final class DefaultCodemodExecutor implements CodemodExecutor {
   }
 
   /** Describes the results of updating files after a codemod execution. */
-  private record FilesUpdateResult(
+  record FilesUpdateResult(
       List<CodeTFChangesetEntry> changeset, List<Path> filesFailedToChange) {}
 
+  /** How long a codemod may take to scan all of its files. */
+  static final long TIMEOUT_MINUTES = 10;
+
+  /**
+   * A lock for each manifest, or for each project whose manifests aren't known, so that only the
+   * updates to the same manifest are made one at a time.
+   */
+  private static final Map<Path, Object> manifestLocks = new ConcurrentHashMap<>();
+
   private static final Logger log = LoggerFactory.getLogger(DefaultCodemodExecutor.class);
 }
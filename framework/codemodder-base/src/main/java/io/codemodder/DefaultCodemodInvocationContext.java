@@ -10,7 +10,8 @@ record DefaultCodemodInvocationContext(
     String contents,
     String codemodId,
     LineIncludesExcludes lineIncludesExcludes,
-    Collection<DependencyGAV> dependencies)
+    Collection<DependencyGAV> dependencies,
+    FileOverlay fileOverlay)
     implements CodemodInvocationContext {
 
   DefaultCodemodInvocationContext {
@@ -20,5 +21,6 @@ record DefaultCodemodInvocationContext(
     Objects.requireNonNull(codemodId);
     Objects.requireNonNull(lineIncludesExcludes);
     Objects.requireNonNull(dependencies);
+    Objects.requireNonNull(fileOverlay);
   }
 }
@@ -0,0 +1,183 @@
+package io.codemodder;
+
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores a file per codemod in the cache directory, named for a hash of everything that could
+ * change the codemod's outcome besides the file contents. Each line holds the hash of a file's
+ * contents and its path relative to the project.
+ */
+final class DefaultCodemodResultCache implements CodemodResultCache {
+
+  private final Path cacheDir;
+  private final Path projectDir;
+  private final String runFingerprint;
+  private final Map<String, CodemodEntries> entriesByCodemod;
+
+  DefaultCodemodResultCache(
+      final Path cacheDir, final Path projectDir, final String runFingerprint) {
+    this.cacheDir = Objects.requireNonNull(cacheDir);
+    this.projectDir = projectDir.toAbsolutePath().normalize();
+    this.runFingerprint = Objects.requireNonNull(runFingerprint);
+    this.entriesByCodemod = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public boolean isUnchanged(final CodemodIdPair codemod, final Path file, final String contents) {
+    CodemodEntries entries = getEntries(codemod);
+    if (entries.cacheFile == null) {
+      return false;
+    }
+    String path = getRelativePath(file);
+    String contentsHash = hash(contents);
+    if (contentsHash.equals(entries.previous.get(path))) {
+      entries.confirmed.put(path, contentsHash);
+      return true;
+    }
+    entries.stale.add(path);
+    return false;
+  }
+
+  @Override
+  public void recordUnchanged(final CodemodIdPair codemod, final Path file, final String contents) {
+    CodemodEntries entries = getEntries(codemod);
+    if (entries.cacheFile != null) {
+      entries.confirmed.put(getRelativePath(file), hash(contents));
+    }
+  }
+
+  @Override
+  public void save() throws IOException {
+    Files.createDirectories(cacheDir);
+    for (CodemodEntries entries : entriesByCodemod.values()) {
+      if (entries.cacheFile == null) {
+        continue;
+      }
+      // files this run didn't get to keep what was remembered for them
+      Map<String, String> merged = new TreeMap<>(entries.previous);
+      merged.keySet().removeAll(entries.stale);
+      merged.putAll(entries.confirmed);
+      List<String> lines = new ArrayList<>(merged.size());
+      merged.forEach((path, contentsHash) -> lines.add(contentsHash + "\t" + path));
+      // write to the side first so a run that dies halfway doesn't leave a truncated cache
+      Path tempFile = Files.createTempFile(cacheDir, "codemod", ".tmp");
+      Files.write(tempFile, lines, StandardCharsets.UTF_8);
+      Files.move(tempFile, entries.cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private CodemodEntries getEntries(final CodemodIdPair codemod) {
+    return entriesByCodemod.computeIfAbsent(
+        codemod.getId(),
+        id -> {
+          Optional<String> codemodFingerprint = getCodemodFingerprint(codemod);
+          if (codemodFingerprint.isEmpty()) {
+            log.debug("Can't tell which version of {} is running, not caching it", id);
+            return new CodemodEntries(null, Map.of());
+          }
+          Path cacheFile = cacheDir.resolve(codemodFingerprint.get() + ".txt");
+          return new CodemodEntries(cacheFile, load(cacheFile));
+        });
+  }
+
+  /**
+   * Describe the codemod and its version, along with everything else about this run. Builds that
+   * don't say what version they are, like those from an IDE, are described by the bytes of the
+   * codemod's class instead, so changing it doesn't re-use what an older build found. If neither
+   * can be found, the codemod can't be described.
+   */
+  private Optional<String> getCodemodFingerprint(final CodemodIdPair codemod) {
+    Class<? extends CodeChanger> changerType = codemod.getChanger().getClass();
+    String version = changerType.getPackage().getImplementationVersion();
+    if (version == null) {
+      Optional<String> classHash = hashClass(changerType);
+      if (classHash.isEmpty()) {
+        return Optional.empty();
+      }
+      version = classHash.get();
+    }
+    String fingerprint =
+        String.join("\n", runFingerprint, codemod.getId(), changerType.getName(), version);
+    return Optional.of(Hashing.sha256().hashString(fingerprint, StandardCharsets.UTF_8).toString());
+  }
+
+  private static Optional<String> hashClass(final Class<?> type) {
+    ClassLoader classLoader = type.getClassLoader();
+    String resourceName = type.getName().replace('.', '/') + ".class";
+    try (InputStream classBytes =
+        classLoader != null ? classLoader.getResourceAsStream(resourceName) : null) {
+      if (classBytes == null) {
+        return Optional.empty();
+      }
+      return Optional.of(Hashing.sha256().hashBytes(classBytes.readAllBytes()).toString());
+    } catch (IOException e) {
+      log.warn("Couldn't read class {}", type.getName(), e);
+      return Optional.empty();
+    }
+  }
+
+  private static Map<String, String> load(final Path cacheFile) {
+    Map<String, String> entries = new HashMap<>();
+    try {
+      for (String line : Files.readAllLines(cacheFile, StandardCharsets.UTF_8)) {
+        int tab = line.indexOf('\t');
+        if (tab > 0) {
+          entries.put(line.substring(tab + 1), line.substring(0, tab));
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // nothing has been remembered for this codemod yet
+    } catch (IOException e) {
+      log.warn("Couldn't read codemod result cache {}, ignoring it", cacheFile, e);
+      entries.clear();
+    }
+    return entries;
+  }
+
+  private String getRelativePath(final Path file) {
+    return projectDir.relativize(file.toAbsolutePath().normalize()).toString();
+  }
+
+  private static String hash(final String contents) {
+    return Hashing.sha256().hashString(contents, StandardCharsets.UTF_8).toString();
+  }
+
+  /**
+   * What was remembered for a codemod last time, what's been confirmed during this run, and which
+   * files no longer have the contents that were remembered for them. There's no cache file when the
+   * codemod's results can't be cached.
+   */
+  private static final class CodemodEntries {
+    private final Path cacheFile;
+    private final Map<String, String> previous;
+    private final Map<String, String> confirmed;
+    private final Set<String> stale;
+
+    private CodemodEntries(final Path cacheFile, final Map<String, String> previous) {
+      this.cacheFile = cacheFile;
+      this.previous = previous;
+      this.confirmed = new ConcurrentHashMap<>();
+      this.stale = ConcurrentHashMap.newKeySet();
+    }
+  }
+
+  private static final Logger log = LoggerFactory.getLogger(DefaultCodemodResultCache.class);
+}
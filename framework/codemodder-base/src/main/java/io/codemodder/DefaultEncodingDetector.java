@@ -11,4 +11,17 @@ final class DefaultEncodingDetector implements EncodingDetector {
     String encoding = UniversalDetector.detectCharset(originalJavaFile);
     return Optional.ofNullable(encoding);
   }
+
+  @Override
+  public boolean detectsFromContents() {
+    return true;
+  }
+
+  @Override
+  public Optional<String> detect(final byte[] contents) {
+    UniversalDetector detector = new UniversalDetector(null);
+    detector.handleData(contents, 0, contents.length);
+    detector.dataEnd();
+    return Optional.ofNullable(detector.getDetectedCharset());
+  }
 }
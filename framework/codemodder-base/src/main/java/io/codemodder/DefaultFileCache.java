@@ -0,0 +1,240 @@
+package io.codemodder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the contents of files, and the encodings detected for them, evicting the least recently
+ * used files once there are too many, or once their contents would take up too much memory.
+ *
+ * <p>Entries are weighed by the memory their contents take up. Strings whose characters all fit in
+ * a byte (like most source code) are stored with a byte per character, and others with two.
+ *
+ * <p>The encodings already detected for evicted files are remembered, since the contents read for
+ * them again may have been changed by then. When it hadn't been detected yet, it's detected from
+ * the file on disk instead. Only so many unchanged files are remembered, since reading them again
+ * gives back their original contents, but files that have been changed are remembered for as long
+ * as the cache is used, so their original encoding is never lost.
+ */
+final class DefaultFileCache implements FileCache {
+
+  private final FileOverlay fileOverlay;
+  private final Cache<Path, Entry> cache;
+  private final Cache<Path, EvictedEntry> evictedEntries;
+  private final Map<Path, EvictedEntry> evictedChangedEntries;
+  private volatile boolean forgotEvictedEntries;
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder evictions;
+  private final LongAdder bytes;
+
+  private DefaultFileCache(
+      final FileOverlay fileOverlay, final long maxFiles, final long maxBytes) {
+    this.fileOverlay = Objects.requireNonNull(fileOverlay);
+    this.evictedEntries =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_EVICTED_ENTRIES)
+            .<Path, EvictedEntry>removalListener(
+                notification -> {
+                  if (notification.wasEvicted()) {
+                    forgotEvictedEntries = true;
+                  }
+                })
+            .build();
+    this.evictedChangedEntries = new ConcurrentHashMap<>();
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+    this.bytes = new LongAdder();
+    CacheBuilder<Path, Entry> builder =
+        CacheBuilder.newBuilder()
+            .removalListener(
+                notification -> {
+                  bytes.add(-notification.getValue().weight);
+                  if (notification.wasEvicted()) {
+                    evictions.increment();
+                    Entry entry = notification.getValue();
+                    EvictedEntry evictedEntry =
+                        new EvictedEntry(entry.getKnownEncoding(), entry.changed);
+                    if (entry.changed) {
+                      evictedChangedEntries.put(notification.getKey(), evictedEntry);
+                    } else {
+                      evictedEntries.put(notification.getKey(), evictedEntry);
+                    }
+                  }
+                });
+    if (maxBytes != -1) {
+      builder = builder.maximumWeight(maxBytes).weigher((path, entry) -> entry.weight);
+    } else {
+      builder = builder.maximumSize(maxFiles);
+    }
+    this.cache = builder.build();
+  }
+
+  /** Create a cache that holds up to the given number of files. */
+  static DefaultFileCache withMaxFiles(final long maxFiles, final FileOverlay fileOverlay) {
+    return new DefaultFileCache(fileOverlay, maxFiles, -1);
+  }
+
+  /** Create a cache that holds files whose contents take up to the given number of bytes. */
+  static DefaultFileCache withMaxBytes(final long maxBytes, final FileOverlay fileOverlay) {
+    return new DefaultFileCache(fileOverlay, -1, maxBytes);
+  }
+
+  @Override
+  public String get(final Path path) throws IOException {
+    Entry entry = cache.getIfPresent(path);
+    if (entry != null) {
+      hits.increment();
+      return entry.contents;
+    }
+    misses.increment();
+    String contents = fileOverlay.readString(path);
+    EvictedEntry evictedEntry = getEvictedEntry(path);
+    if (evictedEntry != null) {
+      // the contents may have been changed since they were first read
+      put(path, new Entry(contents, null, evictedEntry.encoding(), evictedEntry.changed()));
+    } else {
+      put(path, new Entry(contents, contents, null, false));
+    }
+    return contents;
+  }
+
+  @Override
+  public void overrideEntry(final Path path, final String contents) {
+    Entry entry = cache.getIfPresent(path);
+    if (entry != null) {
+      put(path, entry.withContents(contents));
+      return;
+    }
+    EvictedEntry evictedEntry = getEvictedEntry(path);
+    if (evictedEntry != null) {
+      // it was evicted, but it's just been used, so it's worth caching again
+      put(path, new Entry(contents, null, evictedEntry.encoding(), true));
+    } else if (forgotEvictedEntries) {
+      // it may have been read and forgotten, in which case the file on disk is still its original
+      put(path, new Entry(contents, null, null, true));
+    } else {
+      throw new IllegalArgumentException("cache entry must be for an existing key");
+    }
+  }
+
+  @Override
+  public void removeEntry(final Path path) {
+    cache.invalidate(path);
+    evictedEntries.invalidate(path);
+    evictedChangedEntries.remove(path);
+  }
+
+  @Override
+  public Optional<String> getEncoding(final Path path, final EncodingDetector encodingDetector)
+      throws IOException {
+    Entry entry = cache.getIfPresent(path);
+    if (entry != null) {
+      return entry.getEncoding(path, encodingDetector);
+    }
+    EvictedEntry evictedEntry = getEvictedEntry(path);
+    if (evictedEntry != null) {
+      return evictedEntry.encoding() != null
+          ? evictedEntry.encoding()
+          : encodingDetector.detect(path);
+    }
+    return FileCache.super.getEncoding(path, encodingDetector);
+  }
+
+  @Override
+  public Stats stats() {
+    return new Stats(hits.sum(), misses.sum(), evictions.sum(), cache.size(), bytes.sum());
+  }
+
+  /** Return what's remembered about the file if it was evicted, or null. */
+  private EvictedEntry getEvictedEntry(final Path path) {
+    EvictedEntry evictedEntry = evictedChangedEntries.get(path);
+    return evictedEntry != null ? evictedEntry : evictedEntries.getIfPresent(path);
+  }
+
+  private void put(final Path path, final Entry entry) {
+    bytes.add(entry.weight);
+    cache.put(path, entry);
+  }
+
+  /** Return roughly how many bytes the string takes up in memory. */
+  private static int weigh(final String contents) {
+    for (int i = 0; i < contents.length(); i++) {
+      if (contents.charAt(i) > 0xFF) {
+        return saturatedWeight(2L * contents.length());
+      }
+    }
+    return saturatedWeight(contents.length());
+  }
+
+  private static int saturatedWeight(final long weight) {
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(1, weight));
+  }
+
+  /**
+   * The cached contents of a file, and its encoding once it's been detected. Until then, the
+   * contents first read are kept to detect it from, since the cached contents may have been changed
+   * since. If they weren't kept, it's detected from the file on disk.
+   */
+  private static final class Entry {
+    private final String contents;
+    private final int weight;
+    private final boolean changed;
+    private String firstContents;
+    private Optional<String> encoding;
+
+    private Entry(
+        final String contents,
+        final String firstContents,
+        final Optional<String> encoding,
+        final boolean changed) {
+      this.contents = contents;
+      this.firstContents = firstContents;
+      this.encoding = encoding;
+      this.changed = changed;
+      this.weight = weigh(contents);
+    }
+
+    private synchronized Optional<String> getEncoding(
+        final Path path, final EncodingDetector encodingDetector) throws IOException {
+      if (encoding == null) {
+        encoding =
+            firstContents != null && encodingDetector.detectsFromContents()
+                ? encodingDetector.detect(firstContents.getBytes(StandardCharsets.UTF_8))
+                : encodingDetector.detect(path);
+        firstContents = null;
+      }
+      return encoding;
+    }
+
+    /** Returns the encoding if it's been detected, or null. */
+    private synchronized Optional<String> getKnownEncoding() {
+      return encoding;
+    }
+
+    private synchronized Entry withContents(final String newContents) {
+      return new Entry(newContents, firstContents, encoding, true);
+    }
+  }
+
+  /**
+   * What's remembered about an evicted file: its encoding, or null if it wasn't detected, and
+   * whether its contents were changed.
+   */
+  private record EvictedEntry(Optional<String> encoding, boolean changed) {}
+
+  /**
+   * How many evicted files that weren't changed to remember. Files are usually overridden right
+   * after they're read, so only the most recently evicted ones need to be remembered.
+   */
+  private static final int MAX_EVICTED_ENTRIES = 10_000;
+}
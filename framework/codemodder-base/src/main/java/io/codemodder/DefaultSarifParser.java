@@ -3,26 +3,51 @@ package io.codemodder;
 import com.contrastsecurity.sarif.Result;
 import com.contrastsecurity.sarif.Run;
 import com.contrastsecurity.sarif.SarifSchema210;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Reads SARIF files in parallel, each straight from disk into the SARIF model. When asked to, the
+ * parts of each result that describe how data flowed to it (code flows, which hold the thread
+ * flows, and graphs) are skipped over as they're read, since they're often most of the file and few
+ * codemods look at them.
+ */
 final class DefaultSarifParser implements SarifParser {
 
+  /** Mappers are thread-safe once configured, so every file is read with the same one. */
+  private static final ObjectMapper mapperWithFlows = new ObjectMapper();
+
+  private static final ObjectMapper mapperWithoutFlows =
+      new ObjectMapper()
+          .addMixIn(Result.class, ResultWithoutFlows.class)
+          .addMixIn(Run.class, RunWithoutFlows.class);
+
+  @JsonIgnoreProperties({"codeFlows", "graphs", "graphTraversals"})
+  private abstract static class ResultWithoutFlows {}
+
+  @JsonIgnoreProperties({"graphs", "threadFlowLocations"})
+  private abstract static class RunWithoutFlows {}
+
+  private final ObjectMapper mapper;
+
+  DefaultSarifParser(final boolean readFlows) {
+    this.mapper = readFlows ? mapperWithFlows : mapperWithoutFlows;
+  }
+
   private Optional<SarifSchema210> readSarifFile(final Path sarifFile) {
-    try {
-      log.trace("Reading input file: {}", sarifFile);
-      InputStream stream = Files.newInputStream(sarifFile);
-      log.trace("Parsing to SARIF input files");
-      SarifSchema210 sarif = new ObjectMapper().readValue(stream, SarifSchema210.class);
-      log.trace("Parsed SARIF input files");
+    log.trace("Reading input file: {}", sarifFile);
+    try (InputStream stream = Files.newInputStream(sarifFile)) {
+      SarifSchema210 sarif = mapper.readValue(stream, SarifSchema210.class);
+      log.trace("Parsed SARIF input file: {}", sarifFile);
       return Optional.of(sarif);
     } catch (final IOException e) {
       log.error("Problem deserializing SARIF file: {}", sarifFile, e);
@@ -35,12 +60,14 @@ final class DefaultSarifParser implements SarifParser {
       final String toolName,
       final RuleDescriptor rule,
       final SarifSchema210 sarif,
+      final List<Result> ruleResults,
       final CodeDirectory codeDirectory,
       final List<RuleSarifFactory> factories) {
     for (final var factory : factories) {
       log.trace("Building SARIF: {}", factory.getClass().getSimpleName());
       final var maybeRuleSarif =
-          factory.build(toolName, rule.ruleId, rule.messageText, sarif, codeDirectory);
+          factory.build(
+              toolName, rule.ruleId, rule.messageText, sarif, ruleResults, codeDirectory);
       if (maybeRuleSarif.isPresent()) {
         return Optional.of(Map.entry(toolName, maybeRuleSarif.get()));
       }
@@ -74,30 +101,42 @@ final class DefaultSarifParser implements SarifParser {
         result.getRuleId(), result.getMessage() != null ? result.getMessage().getText() : null);
   }
 
-  private Stream<Map.Entry<String, RuleSarif>> fromSarif(
-      final Run run, final SarifSchema210 sarif, final CodeDirectory codeDirectory) {
-    // driver name
-    final var toolName = run.getTool().getDriver().getName();
-    log.trace("Loading SARIF rule factories");
-    final List<RuleSarifFactory> factories =
-        ServiceLoader.load(RuleSarifFactory.class).stream()
-            .map(ServiceLoader.Provider::get)
-            .toList();
-    log.trace("Done loading SARIF rule factories");
-    final var runResults = run.getResults();
-    final var allResults =
-        runResults != null
-            ? runResults.stream()
-                .map(result -> extractRuleId(result, run))
-                .filter(Objects::nonNull)
-                .filter(ruleDescriptor -> ruleDescriptor.ruleId != null)
-                .collect(Collectors.toMap(r -> r.ruleId, r -> r, (r1, r2) -> r1))
-                .values()
-                .stream()
-            : Stream.<RuleDescriptor>empty();
-
-    return allResults.flatMap(
-        rule -> tryToBuild(toolName, rule, sarif, codeDirectory, factories).stream());
+  /**
+   * Build the {@link RuleSarif}s for every rule with results in the document. The results are
+   * grouped by rule in one pass over the document, so each {@link RuleSarif} can be handed just the
+   * results for its rule rather than looking through all of them again.
+   */
+  private List<Map.Entry<String, RuleSarif>> fromSarif(
+      final SarifSchema210 sarif,
+      final CodeDirectory codeDirectory,
+      final List<RuleSarifFactory> factories) {
+    Map<String, List<Result>> resultsByRule = new HashMap<>();
+    List<Map.Entry<String, Collection<RuleDescriptor>>> rulesByRun = new ArrayList<>();
+    for (Run run : sarif.getRuns()) {
+      // driver name
+      final var toolName = run.getTool().getDriver().getName();
+      Map<String, RuleDescriptor> rules = new LinkedHashMap<>();
+      if (run.getResults() != null) {
+        for (Result result : run.getResults()) {
+          RuleDescriptor rule = extractRuleId(result, run);
+          if (rule != null && rule.ruleId != null) {
+            rules.putIfAbsent(rule.ruleId, rule);
+            resultsByRule.computeIfAbsent(rule.ruleId, k -> new ArrayList<>()).add(result);
+          }
+        }
+      }
+      rulesByRun.add(Map.entry(toolName, rules.values()));
+    }
+
+    List<Map.Entry<String, RuleSarif>> ruleSarifs = new ArrayList<>();
+    for (Map.Entry<String, Collection<RuleDescriptor>> runRules : rulesByRun) {
+      for (RuleDescriptor rule : runRules.getValue()) {
+        List<Result> ruleResults = List.copyOf(resultsByRule.get(rule.ruleId));
+        tryToBuild(runRules.getKey(), rule, sarif, ruleResults, codeDirectory, factories)
+            .ifPresent(ruleSarifs::add);
+      }
+    }
+    return ruleSarifs;
   }
 
   /**
@@ -107,21 +146,71 @@ final class DefaultSarifParser implements SarifParser {
   @Override
   public Map<String, List<RuleSarif>> parseIntoMap(
       final List<Path> sarifFiles, final CodeDirectory codeDirectory) {
+    return parseIntoMap(sarifFiles, codeDirectory, UnaryOperator.identity());
+  }
+
+  @Override
+  public Map<String, List<RuleSarif>> parseIntoMap(
+      final List<Path> sarifFiles,
+      final CodeDirectory codeDirectory,
+      final Collection<Path> onlyFiles) {
+    return parseIntoMap(
+        sarifFiles, codeDirectory, sarif -> retainResultsIn(sarif, codeDirectory, onlyFiles));
+  }
+
+  /** Drop the results of every run that aren't located in one of the given files. */
+  private static SarifSchema210 retainResultsIn(
+      final SarifSchema210 sarif, final CodeDirectory codeDirectory, final Collection<Path> files) {
+    for (Run run : sarif.getRuns()) {
+      List<Result> results = run.getResults();
+      if (results == null || results.isEmpty()) {
+        continue;
+      }
+      SarifResultIndex index = SarifResultIndex.build(codeDirectory.asPath(), results);
+      Set<Result> retained = Collections.newSetFromMap(new IdentityHashMap<>());
+      files.forEach(file -> retained.addAll(index.get(file)));
+      run.setResults(results.stream().filter(retained::contains).collect(Collectors.toList()));
+    }
+    return sarif;
+  }
+
+  /**
+   * Read and index the SARIF files in parallel, then organize the {@link RuleSarif}s by tool name,
+   * in the order the files were given.
+   */
+  private Map<String, List<RuleSarif>> parseIntoMap(
+      final List<Path> sarifFiles,
+      final CodeDirectory codeDirectory,
+      final UnaryOperator<SarifSchema210> preprocessor) {
+    if (sarifFiles.isEmpty()) {
+      return new HashMap<>();
+    }
+
+    // the service loader uses this thread's class loader, so we don't leave it to the workers
+    log.trace("Loading SARIF rule factories");
+    final List<RuleSarifFactory> factories =
+        ServiceLoader.load(RuleSarifFactory.class).stream()
+            .map(ServiceLoader.Provider::get)
+            .toList();
+    log.trace("Done loading SARIF rule factories");
+
+    List<List<Map.Entry<String, RuleSarif>>> ruleSarifsByFile =
+        sarifFiles.parallelStream()
+            .map(
+                sarifFile ->
+                    readSarifFile(sarifFile)
+                        .map(preprocessor)
+                        .map(sarif -> fromSarif(sarif, codeDirectory, factories))
+                        .orElse(List.of()))
+            .toList();
+
     final var map = new HashMap<String, List<RuleSarif>>();
-    sarifFiles.stream()
-        .flatMap(f -> readSarifFile(f).stream())
-        .flatMap(
-            sarif -> sarif.getRuns().stream().flatMap(run -> fromSarif(run, sarif, codeDirectory)))
+    ruleSarifsByFile.stream()
+        .flatMap(List::stream)
         .forEach(
             p -> {
               log.trace("Merging SARIF results");
-              map.merge(
-                  p.getKey(),
-                  new ArrayList<>(Collections.singletonList(p.getValue())),
-                  (l1, l2) -> {
-                    l1.add(l2.get(0));
-                    return l1;
-                  });
+              map.computeIfAbsent(p.getKey(), k -> new ArrayList<>()).add(p.getValue());
             });
     return map;
   }
@@ -0,0 +1,29 @@
+package io.codemodder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Reads and writes straight through to disk. */
+final class DiskFileOverlay implements FileOverlay {
+
+  static final DiskFileOverlay INSTANCE = new DiskFileOverlay();
+
+  private DiskFileOverlay() {}
+
+  @Override
+  public byte[] readAllBytes(final Path file) throws IOException {
+    return Files.readAllBytes(file);
+  }
+
+  @Override
+  public void write(final Path file, final byte[] contents) throws IOException {
+    Files.write(file, contents);
+  }
+
+  @Override
+  public String readString(final Path file, final Charset charset) throws IOException {
+    return Files.readString(file, charset);
+  }
+}
@@ -9,6 +9,22 @@ public interface EncodingDetector {
   /** Try to detect the encoding of a file. */
   Optional<String> detect(Path file) throws IOException;
 
+  /**
+   * Returns true if this detector can detect the encoding of a file from contents that have already
+   * been read, with {@link #detect(byte[])}. Otherwise, it's only asked about the file.
+   */
+  default boolean detectsFromContents() {
+    return false;
+  }
+
+  /**
+   * Try to detect the encoding of a file from its contents, for when they've already been read.
+   * This is only called on detectors that say they can with {@link #detectsFromContents()}.
+   */
+  default Optional<String> detect(final byte[] contents) {
+    throw new UnsupportedOperationException("this detector only detects the encoding of files");
+  }
+
   static EncodingDetector create() {
     return new DefaultEncodingDetector();
   }
@@ -1,14 +1,13 @@
 package io.codemodder;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
 
 /**
- * A cache for file contents. We cache contents because generally memory is cheap and fast. We may
- * want to offer configuration here eventually for situations where the opposite is true.
+ * A cache for file contents. We cache contents because generally memory is cheap and fast, but the
+ * cache can be bounded by how much memory the contents take up for situations where it isn't.
  */
 public interface FileCache {
 
@@ -21,38 +20,54 @@ public interface FileCache {
   /** Remove the string contents of a file from the cache if it exists. */
   void removeEntry(final Path resolve);
 
+  /**
+   * Get the encoding of a file, detected from its contents in the cache rather than by reading the
+   * file again. Cached contents were read as valid UTF-8, so encoding them again gives back the
+   * bytes that were read. The default cache detects it from the contents it first read for the
+   * file, and caches the result alongside them. Detectors that don't detect encodings from contents
+   * are asked about the file.
+   */
+  default Optional<String> getEncoding(final Path path, final EncodingDetector encodingDetector)
+      throws IOException {
+    if (!encodingDetector.detectsFromContents()) {
+      return encodingDetector.detect(path);
+    }
+    return encodingDetector.detect(get(path).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Return the statistics gathered so far. Caches that don't gather any return zeros. */
+  default Stats stats() {
+    return new Stats(0, 0, 0, 0, 0);
+  }
+
+  /**
+   * The statistics about the effectiveness of the cache, useful for sizing it. The bytes are
+   * roughly how much memory the cached contents take up.
+   */
+  record Stats(long hitCount, long missCount, long evictionCount, long size, long bytes) {}
+
   static FileCache createDefault() {
     return createDefault(10_000);
   }
 
   static FileCache createDefault(final int maxSize) {
-    return new FileCache() {
-      private final Map<Path, String> fileCache = new ConcurrentHashMap<>();
-
-      @Override
-      public String get(final Path path) throws IOException {
-        String contents = fileCache.get(path);
-        if (contents == null) {
-          contents = Files.readString(path);
-          if (fileCache.size() < maxSize) {
-            fileCache.put(path, contents);
-          }
-        }
-        return contents;
-      }
-
-      @Override
-      public void overrideEntry(final Path path, final String contents) {
-        if (!fileCache.containsKey(path)) {
-          throw new IllegalArgumentException("cache entry must be for an existing key");
-        }
-        fileCache.put(path, contents);
-      }
-
-      @Override
-      public void removeEntry(final Path path) {
-        fileCache.remove(path);
-      }
-    };
+    return createDefault(maxSize, FileOverlay.disk());
+  }
+
+  /**
+   * Create a cache that holds up to the given number of files, evicting the least recently used
+   * beyond that, and reads files that aren't cached yet through the given overlay.
+   */
+  static FileCache createDefault(final int maxSize, final FileOverlay fileOverlay) {
+    return DefaultFileCache.withMaxFiles(maxSize, fileOverlay);
+  }
+
+  /**
+   * Create a cache that holds files whose contents take up to the given number of bytes of memory,
+   * evicting the least recently used beyond that, and reads files that aren't cached yet through
+   * the given overlay.
+   */
+  static FileCache createWithMaxBytes(final long maxBytes, final FileOverlay fileOverlay) {
+    return DefaultFileCache.withMaxBytes(maxBytes, fileOverlay);
   }
 }
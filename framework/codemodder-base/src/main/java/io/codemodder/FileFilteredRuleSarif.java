@@ -0,0 +1,110 @@
+package io.codemodder;
+
+import com.contrastsecurity.sarif.Region;
+import com.contrastsecurity.sarif.Result;
+import com.contrastsecurity.sarif.Run;
+import com.contrastsecurity.sarif.SarifSchema210;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/** A {@link RuleSarif} that only has the results of another one located in the given files. */
+final class FileFilteredRuleSarif implements RuleSarif {
+
+  /** Copies documents and runs without their runs and results, which are filtered separately. */
+  private static final ObjectMapper copier =
+      new ObjectMapper()
+          .addMixIn(SarifSchema210.class, SarifWithoutRuns.class)
+          .addMixIn(Run.class, RunWithoutResults.class);
+
+  @JsonIgnoreProperties("runs")
+  private interface SarifWithoutRuns {}
+
+  @JsonIgnoreProperties("results")
+  private interface RunWithoutResults {}
+
+  private final RuleSarif ruleSarif;
+  private final CodeDirectory codeDirectory;
+  private final Set<Path> files;
+  private volatile SarifSchema210 rawDocument;
+
+  FileFilteredRuleSarif(
+      final RuleSarif ruleSarif, final CodeDirectory codeDirectory, final Collection<Path> files) {
+    this.ruleSarif = Objects.requireNonNull(ruleSarif);
+    this.codeDirectory = Objects.requireNonNull(codeDirectory);
+    this.files = files.stream().map(FileFilteredRuleSarif::normalize).collect(Collectors.toSet());
+  }
+
+  @Override
+  public List<Region> getRegionsFromResultsByRule(final Path path) {
+    return isIncluded(path) ? ruleSarif.getRegionsFromResultsByRule(path) : List.of();
+  }
+
+  @Override
+  public List<Result> getResultsByLocationPath(final Path path) {
+    return isIncluded(path) ? ruleSarif.getResultsByLocationPath(path) : List.of();
+  }
+
+  @Override
+  public SarifSchema210 rawDocument() {
+    if (rawDocument == null) {
+      synchronized (this) {
+        if (rawDocument == null) {
+          rawDocument = buildRawDocument();
+        }
+      }
+    }
+    return rawDocument;
+  }
+
+  /**
+   * Copy the document with only the results located in the files. The document it wraps may be
+   * shared, so unlike {@link DefaultSarifParser}, the results can't be dropped in place.
+   */
+  private SarifSchema210 buildRawDocument() {
+    SarifSchema210 sarif = ruleSarif.rawDocument();
+    SarifSchema210 copy = copier.convertValue(sarif, SarifSchema210.class);
+    if (sarif.getRuns() != null) {
+      copy.setRuns(sarif.getRuns().stream().map(this::onlyResultsInFiles).toList());
+    }
+    return copy;
+  }
+
+  private Run onlyResultsInFiles(final Run run) {
+    List<Result> results = run.getResults();
+    if (results == null || results.isEmpty()) {
+      return run;
+    }
+    SarifResultIndex index = SarifResultIndex.build(codeDirectory.asPath(), results);
+    Set<Result> retained = Collections.newSetFromMap(new IdentityHashMap<>());
+    files.forEach(file -> retained.addAll(index.get(file)));
+    Run copy = copier.convertValue(run, Run.class);
+    copy.setResults(results.stream().filter(retained::contains).collect(Collectors.toList()));
+    return copy;
+  }
+
+  @Override
+  public String getRule() {
+    return ruleSarif.getRule();
+  }
+
+  @Override
+  public String getDriver() {
+    return ruleSarif.getDriver();
+  }
+
+  private boolean isIncluded(final Path path) {
+    return files.contains(normalize(path));
+  }
+
+  private static Path normalize(final Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+}
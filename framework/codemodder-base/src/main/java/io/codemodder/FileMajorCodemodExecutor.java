@@ -0,0 +1,250 @@
+package io.codemodder;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import io.codemodder.codetf.CodeTFChangesetEntry;
+import io.codemodder.codetf.CodeTFResult;
+import io.codemodder.codetf.UnfixedFinding;
+import io.codemodder.javaparser.JavaParserChanger;
+import io.codemodder.javaparser.JavaParserFacade;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a group of {@link JavaParserChanger} codemods in "file-major" order. Instead of every
+ * codemod reading, parsing and writing every file, each worker takes a file, parses it once, lets
+ * every codemod that supports the file visit the same {@link CompilationUnit} in order, and writes
+ * the file once at the end. Each codemod still gets its own {@link CodeTFResult}, with diffs that
+ * describe only the changes it made.
+ */
+final class FileMajorCodemodExecutor {
+
+  private final Path projectDir;
+  private final List<DefaultCodemodExecutor> codemodExecutors;
+  private final JavaParserFacade javaParserFacade;
+  private final FileCache fileCache;
+  private final EncodingDetector encodingDetector;
+  private final FileOverlay fileOverlay;
+
+  /** The pool used to scan files, which may be shared by the whole run. */
+  private final ExecutorService workerPool;
+
+  FileMajorCodemodExecutor(
+      final Path projectDir,
+      final List<DefaultCodemodExecutor> codemodExecutors,
+      final JavaParserFacade javaParserFacade,
+      final FileCache fileCache,
+      final EncodingDetector encodingDetector,
+      final FileOverlay fileOverlay,
+      final ExecutorService workerPool) {
+    this.projectDir = Objects.requireNonNull(projectDir);
+    this.codemodExecutors = List.copyOf(codemodExecutors);
+    this.javaParserFacade = Objects.requireNonNull(javaParserFacade);
+    this.fileCache = Objects.requireNonNull(fileCache);
+    this.encodingDetector = Objects.requireNonNull(encodingDetector);
+    this.fileOverlay = Objects.requireNonNull(fileOverlay);
+    this.workerPool = Objects.requireNonNull(workerPool);
+    for (DefaultCodemodExecutor codemodExecutor : this.codemodExecutors) {
+      if (!(codemodExecutor.getCodemod().getChanger() instanceof JavaParserChanger)) {
+        throw new IllegalArgumentException(
+            "file-major execution only supports JavaParser codemods: "
+                + codemodExecutor.getCodemod().getId());
+      }
+    }
+  }
+
+  /**
+   * Execute all the codemods on the given file paths.
+   *
+   * @return a {@link CodeTFResult} for each codemod, in the same order the codemods were given
+   */
+  List<CodeTFResult> execute(final List<Path> filePaths) {
+    DefaultCodeDirectory codeDirectory = new DefaultCodeDirectory(projectDir);
+
+    // the workers find each codemod's files at the same time, before any of them are scanned
+    List<Future<List<Path>>> targetFiles = new ArrayList<>();
+    for (DefaultCodemodExecutor codemodExecutor : codemodExecutors) {
+      targetFiles.add(
+          workerPool.submit(
+              () ->
+                  codemodExecutor.findTargetFiles(
+                      codemodExecutor.createCodemodRunner(), filePaths)));
+    }
+
+    // figure out which codemods want which files, preserving codemod order for each file
+    List<CodemodState> states = new ArrayList<>();
+    Map<Path, List<CodemodState>> codemodsByFile = new TreeMap<>();
+    for (int i = 0; i < codemodExecutors.size(); i++) {
+      CodemodState state = new CodemodState(codemodExecutors.get(i));
+      states.add(state);
+      for (Path filePath : awaitTargetFiles(targetFiles, i)) {
+        codemodsByFile.computeIfAbsent(filePath, k -> new ArrayList<>()).add(state);
+      }
+    }
+
+    Map<Path, Future<?>> futures = new LinkedHashMap<>();
+    codemodsByFile.forEach(
+        (filePath, fileStates) ->
+            futures.put(
+                filePath, workerPool.submit(() -> scanFile(codeDirectory, filePath, fileStates))));
+    // every codemod gets as long as it would have had running on its own
+    List<Path> unfinishedFiles =
+        DefaultCodemodExecutor.awaitAll(
+            futures, DefaultCodemodExecutor.TIMEOUT_MINUTES * states.size());
+    for (Path unfinishedFile : unfinishedFiles) {
+      codemodsByFile
+          .get(unfinishedFile)
+          .forEach(state -> state.unscannableFiles.add(unfinishedFile));
+    }
+
+    return states.stream()
+        .map(
+            state ->
+                state.codemodExecutor.createResult(
+                    state.unscannableFiles, List.copyOf(state.changeset), state.unfixedFindings))
+        .toList();
+  }
+
+  /**
+   * Wait for the target files of the codemod at the given index. If they couldn't be found, the
+   * rest are no longer needed, and the problem is thrown as it would have been on this thread.
+   */
+  private static List<Path> awaitTargetFiles(
+      final List<Future<List<Path>>> targetFiles, final int index) {
+    try {
+      return targetFiles.get(index).get();
+    } catch (ExecutionException e) {
+      targetFiles.forEach(future -> future.cancel(true));
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Problem finding target files", e.getCause());
+    } catch (InterruptedException e) {
+      targetFiles.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while finding target files", e);
+    }
+  }
+
+  /**
+   * Parse the file once and hand the same {@link CompilationUnit} to each codemod in turn. If a
+   * codemod fails, its partial changes are discarded by re-parsing from the last good contents.
+   */
+  private void scanFile(
+      final CodeDirectory codeDirectory, final Path filePath, final List<CodemodState> states) {
+    final String originalContents;
+    try {
+      if (states.get(0).codemodExecutor.isTooBig(filePath)) {
+        states.forEach(state -> state.unscannableFiles.add(filePath));
+        return;
+      }
+      originalContents = fileCache.get(filePath);
+    } catch (MalformedInputException e) {
+      log.warn("file uses unsupported character encoding: {}", filePath);
+      states.forEach(state -> state.unscannableFiles.add(filePath));
+      return;
+    } catch (Exception e) {
+      log.error("Problem reading file {}", filePath, e);
+      states.forEach(state -> state.unscannableFiles.add(filePath));
+      return;
+    }
+
+    String contents = originalContents;
+    CompilationUnit cu = null;
+    Collection<DependencyGAV> dependencies = null;
+    for (CodemodState state : states) {
+      DefaultCodemodExecutor codemodExecutor = state.codemodExecutor;
+      try {
+        if (codemodExecutor.isKnownUnchanged(filePath, contents)) {
+          continue;
+        }
+        if (cu == null) {
+          cu = javaParserFacade.parseJavaFile(filePath);
+        }
+        if (dependencies == null) {
+          dependencies = codemodExecutor.getDependencies(filePath);
+        }
+        CodemodInvocationContext context =
+            codemodExecutor.createContext(codeDirectory, filePath, contents, dependencies);
+        JavaParserChanger changer = (JavaParserChanger) codemodExecutor.getCodemod().getChanger();
+        CodemodFileScanningResult scanningResult = changer.visit(context, cu);
+        codemodExecutor.recordIfUnchanged(filePath, contents, scanningResult);
+        List<CodemodChange> codemodChanges = scanningResult.changes();
+        if (!codemodChanges.isEmpty()) {
+          String afterContents = LexicalPreservingPrinter.print(cu);
+          // only the manifest updates are made one at a time, and the state is thread-safe
+          DefaultCodemodExecutor.FilesUpdateResult updateResult =
+              codemodExecutor.updateFiles(
+                  filePath,
+                  contents,
+                  afterContents,
+                  codemodChanges,
+                  DefaultCodemodExecutor.getAiMetadata(scanningResult));
+          state.unscannableFiles.addAll(updateResult.filesFailedToChange());
+          state.changeset.addAll(updateResult.changeset());
+          if (updateResult.changeset().size() > 1) {
+            // a manifest was changed, so the dependencies may be different now
+            dependencies = null;
+          }
+          contents = afterContents;
+        }
+        state.unfixedFindings.addAll(scanningResult.unfixedFindings());
+      } catch (Exception e) {
+        state.unscannableFiles.add(filePath);
+        log.error("Problem scanning file {}", filePath, e);
+        // the tree may have been left half-changed, so start again from the last good contents
+        cu = null;
+        try {
+          writeIfChanged(filePath, originalContents, contents);
+        } catch (IOException ioe) {
+          log.error("Problem writing file {}", filePath, ioe);
+          states.forEach(s -> s.unscannableFiles.add(filePath));
+          return;
+        }
+      }
+    }
+
+    try {
+      writeIfChanged(filePath, originalContents, contents);
+    } catch (IOException e) {
+      log.error("Problem writing file {}", filePath, e);
+      states.forEach(state -> state.unscannableFiles.add(filePath));
+    }
+  }
+
+  private void writeIfChanged(
+      final Path filePath, final String originalContents, final String contents)
+      throws IOException {
+    if (contents.equals(originalContents) || contents.equals(fileOverlay.readString(filePath))) {
+      return;
+    }
+    String encodingName = fileCache.getEncoding(filePath, encodingDetector).orElse("UTF-8");
+    Charset encoding = Charset.forName(encodingName);
+    fileOverlay.writeString(filePath, contents, encoding);
+  }
+
+  /** The results being gathered for a single codemod across all the files. */
+  private static final class CodemodState {
+    private final DefaultCodemodExecutor codemodExecutor;
+    private final Set<Path> unscannableFiles = new ConcurrentSkipListSet<>();
+    private final List<CodeTFChangesetEntry> changeset =
+        Collections.synchronizedList(new ArrayList<>());
+    private final List<UnfixedFinding> unfixedFindings = new CopyOnWriteArrayList<>();
+
+    private CodemodState(final DefaultCodemodExecutor codemodExecutor) {
+      this.codemodExecutor = codemodExecutor;
+    }
+  }
+
+  private static final Logger log = LoggerFactory.getLogger(FileMajorCodemodExecutor.class);
+}
@@ -0,0 +1,58 @@
+package io.codemodder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Where codemods read and write the files they change. Normally that's the project on disk, but
+ * during a dry run the changes can be kept to the side instead, so the project is never touched and
+ * doesn't have to be copied first.
+ */
+public interface FileOverlay {
+
+  /** Read the current contents of the file. */
+  byte[] readAllBytes(Path file) throws IOException;
+
+  /** Replace the contents of the file. */
+  void write(Path file, byte[] contents) throws IOException;
+
+  /**
+   * Read the current contents of the file as UTF-8.
+   *
+   * @throws java.nio.charset.MalformedInputException if the file isn't valid UTF-8
+   */
+  default String readString(final Path file) throws IOException {
+    return readString(file, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Read the current contents of the file in the given encoding.
+   *
+   * @throws java.nio.charset.CharacterCodingException if the file can't be decoded
+   */
+  default String readString(final Path file, final Charset charset) throws IOException {
+    return charset.newDecoder().decode(ByteBuffer.wrap(readAllBytes(file))).toString();
+  }
+
+  /** Replace the contents of the file with the given string in the given encoding. */
+  default void writeString(final Path file, final String contents, final Charset charset)
+      throws IOException {
+    write(file, contents.getBytes(charset));
+  }
+
+  /** Reads and writes the files on disk. */
+  static FileOverlay disk() {
+    return DiskFileOverlay.INSTANCE;
+  }
+
+  /**
+   * Reads the files on disk, but keeps anything written in memory. Reads of a file that's been
+   * written return what was written.
+   */
+  static FileOverlay inMemory() {
+    return new InMemoryFileOverlay();
+  }
+}
@@ -0,0 +1,35 @@
+package io.codemodder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps written files in memory, keyed by their absolute path, and falls back to disk for
+ * everything else. Only the files a codemod actually changes are ever held, which is usually a tiny
+ * part of the project.
+ */
+final class InMemoryFileOverlay implements FileOverlay {
+
+  private final Map<Path, byte[]> writtenFiles = new ConcurrentHashMap<>();
+
+  @Override
+  public byte[] readAllBytes(final Path file) throws IOException {
+    byte[] contents = writtenFiles.get(normalize(file));
+    return contents != null ? contents.clone() : Files.readAllBytes(file);
+  }
+
+  @Override
+  public void write(final Path file, final byte[] contents) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      throw new IOException("only existing files can be changed: " + file);
+    }
+    writtenFiles.put(normalize(file), contents.clone());
+  }
+
+  private static Path normalize(final Path file) {
+    return file.toAbsolutePath().normalize();
+  }
+}
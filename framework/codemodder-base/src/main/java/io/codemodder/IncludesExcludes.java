@@ -14,6 +14,15 @@ public interface IncludesExcludes {
   /** Do we have any includes that match the file and line number? */
   LineIncludesExcludes getIncludesExcludesForFile(File file);
 
+  /**
+   * Returns true if every file under the given directory is excluded, other than the dependency
+   * manifests, which are always inspected. This lets us skip matching the files under it one by
+   * one.
+   */
+  default boolean excludesEverythingUnder(final File directory) {
+    return false;
+  }
+
   class Default implements IncludesExcludes {
 
     private final List<PathMatcher> pathIncludes;
@@ -33,12 +42,14 @@ public interface IncludesExcludes {
       if ("pom.xml".equalsIgnoreCase(file.getName())) {
         return true;
       }
+      // normalize the path once, rather than once per pattern
+      String path = PathMatcher.normalize(file);
       if (!pathIncludes.isEmpty()) {
         for (PathMatcher pathInclude : pathIncludes) {
-          if (pathInclude.matches(file)) {
+          if (pathInclude.matchesNormalizedPath(path)) {
             // if there is an exclude, we honor that
             for (PathMatcher pathExclude : pathExcludes) {
-              if (pathExclude.matches(file)) {
+              if (pathExclude.matchesNormalizedPath(path)) {
                 if (!pathExclude.targetsLine()) {
                   return false;
                 }
@@ -51,13 +62,24 @@ public interface IncludesExcludes {
       }
 
       for (PathMatcher pathExclude : pathExcludes) {
-        if (!pathExclude.targetsLine() && pathExclude.matches(file)) {
+        if (!pathExclude.targetsLine() && pathExclude.matchesNormalizedPath(path)) {
           return false;
         }
       }
       return true;
     }
 
+    @Override
+    public boolean excludesEverythingUnder(final File directory) {
+      String path = PathMatcher.normalize(directory);
+      for (PathMatcher pathExclude : pathExcludes) {
+        if (!pathExclude.targetsLine() && pathExclude.matchesEverythingUnder(path)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
     @Override
     public LineIncludesExcludes getIncludesExcludesForFile(final File file) {
       final Set<Integer> allowedLines = new HashSet<>();
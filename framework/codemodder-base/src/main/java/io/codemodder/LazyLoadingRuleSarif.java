@@ -10,11 +10,12 @@ import javax.inject.Provider;
 
 /**
  * A {@link RuleSarif} that lazily loads an underlying {@link RuleSarif} when needed. This can be
- * used to delay execution.
+ * used to delay execution. The underlying {@link RuleSarif} is only ever loaded once, even when
+ * codemods running on different threads need it at the same time.
  */
 public class LazyLoadingRuleSarif implements RuleSarif {
 
-  private RuleSarif ruleSarif;
+  private volatile RuleSarif ruleSarif;
   private final Provider<RuleSarif> ruleSarifProvider;
 
   public LazyLoadingRuleSarif(final Provider<RuleSarif> ruleSarifProvider) {
@@ -30,9 +31,14 @@ public class LazyLoadingRuleSarif implements RuleSarif {
 
   private void checkInitialized() {
     if (ruleSarif == null) {
-      ruleSarif = ruleSarifProvider.get();
-      if (ruleSarif == null) {
-        throw new IllegalStateException("SARIF must be provided");
+      synchronized (this) {
+        if (ruleSarif == null) {
+          RuleSarif loaded = ruleSarifProvider.get();
+          if (loaded == null) {
+            throw new IllegalStateException("SARIF must be provided");
+          }
+          ruleSarif = loaded;
+        }
       }
     }
   }
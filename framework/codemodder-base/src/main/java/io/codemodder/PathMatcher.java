@@ -13,6 +13,12 @@ public final class PathMatcher {
   private final String repositoryRootPath;
   private final java.nio.file.PathMatcher matcher;
 
+  /**
+   * For patterns that end in {@code /**}, matches the directories everything under which the
+   * pattern matches.
+   */
+  private final java.nio.file.PathMatcher subtreeMatcher;
+
   public PathMatcher(
       final FileSystem fs,
       final File repositoryRoot,
@@ -21,17 +27,45 @@ public final class PathMatcher {
     this.repositoryRootPath = Path.of(repositoryRoot.getAbsolutePath()).normalize().toString();
     Objects.requireNonNull(pathPattern);
     this.matcher = fs.getPathMatcher("glob:" + pathPattern);
+    this.subtreeMatcher =
+        pathPattern.endsWith("/**") && pathPattern.length() > 3
+            ? fs.getPathMatcher("glob:" + pathPattern.substring(0, pathPattern.length() - 3))
+            : null;
     this.line = line;
   }
 
   /** Return if this path matcher matches the given file. */
   public boolean matches(final File file) {
-    String candidateFilePath = Path.of(file.getAbsolutePath()).normalize().toString();
+    return matchesNormalizedPath(normalize(file));
+  }
+
+  /**
+   * Return if this path matcher matches the file with the given path, which has already been
+   * through {@link #normalize(File)}. This saves normalizing the path again for every pattern.
+   */
+  boolean matchesNormalizedPath(final String candidateFilePath) {
+    return matcher.matches(relativize(candidateFilePath));
+  }
+
+  /**
+   * Return if this path matcher matches every file under the directory with the given path, which
+   * has already been through {@link #normalize(File)}.
+   */
+  boolean matchesEverythingUnder(final String directoryPath) {
+    return subtreeMatcher != null && subtreeMatcher.matches(relativize(directoryPath));
+  }
+
+  /** Return the absolute, normalized path of the given file, as the matchers expect it. */
+  static String normalize(final File file) {
+    return Path.of(file.getAbsolutePath()).normalize().toString();
+  }
+
+  private Path relativize(final String candidateFilePath) {
     String relativeCandidateFilePath = candidateFilePath.substring(repositoryRootPath.length());
     if (!relativeCandidateFilePath.startsWith("/")) {
       relativeCandidateFilePath = "/" + relativeCandidateFilePath;
     }
-    return matcher.matches(Paths.get(relativeCandidateFilePath));
+    return Paths.get(relativeCandidateFilePath);
   }
 
   public Integer line() {
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /** A type that plugins can implement to provide a project management functions to codemods. */
 public interface ProjectProvider {
@@ -17,4 +18,21 @@ public interface ProjectProvider {
 
   /** Returns all dependencies found at given file */
   Collection<DependencyGAV> getAllDependencies(Path projectDir, Path file);
+
+  /**
+   * Return a provider that reads and writes the project's manifests through the given overlay, or
+   * empty if this provider can only work with the files on disk.
+   */
+  default Optional<ProjectProvider> withFileOverlay(final FileOverlay fileOverlay) {
+    return Optional.empty();
+  }
+
+  /**
+   * Find the manifest that the dependencies of the given file would be added to, so that updates to
+   * different manifests can be made at the same time. By default it's unknown, and this provider's
+   * updates are made one at a time for the whole project.
+   */
+  default Optional<Path> findManifest(final Path projectDir, final Path file) {
+    return Optional.empty();
+  }
 }
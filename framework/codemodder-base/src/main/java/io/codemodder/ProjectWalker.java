@@ -0,0 +1,168 @@
+package io.codemodder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Walks a project once, in parallel, to find both the files to inspect and the Java source
+ * directories. This replaces a walk by {@link CLI.DefaultFileFinder} followed by another by {@link
+ * SourceDirectoryLister.DefaultSourceDirectoryLister}, with the same results.
+ *
+ * <p>The {@code .git} directory is never walked. Under a directory that's excluded entirely, like
+ * one matched by an exclude of its {@code target} directories, files aren't matched against the
+ * patterns one by one, and only the dependency manifests, which are always inspected, are kept.
+ */
+final class ProjectWalker {
+
+  /** What was found in the project. */
+  record Contents(List<Path> files, List<SourceDirectory> sourceDirectories) {
+    Contents {
+      Objects.requireNonNull(files);
+      Objects.requireNonNull(sourceDirectories);
+    }
+  }
+
+  private final IncludesExcludes includesExcludes;
+  private final Queue<Path> files;
+  private final Queue<SourceRoot> sourceRoots;
+
+  private ProjectWalker(final IncludesExcludes includesExcludes) {
+    this.includesExcludes = Objects.requireNonNull(includesExcludes);
+    this.files = new ConcurrentLinkedQueue<>();
+    this.sourceRoots = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Walk the project, returning the files that should be inspected and the Java source directories,
+   * each in sorted order.
+   */
+  static Contents walk(final Path projectDir, final IncludesExcludes includesExcludes)
+      throws IOException {
+    ProjectWalker walker = new ProjectWalker(includesExcludes);
+    try {
+      ForkJoinPool.commonPool().invoke(walker.walkOf(projectDir, false, List.of()));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    List<SourceDirectory> sourceDirectories = new ArrayList<>();
+    for (SourceRoot sourceRoot : walker.sourceRoots) {
+      sourceDirectories.add(
+          SourceDirectory.createDefault(
+              sourceRoot.path().toAbsolutePath(),
+              sourceRoot.files().stream().sorted().toList()));
+    }
+    sourceDirectories.sort(null);
+    return new Contents(walker.files.stream().sorted().toList(), List.copyOf(sourceDirectories));
+  }
+
+  private DirectoryWalk walkOf(
+      final Path directory, final boolean parentExcluded, final List<SourceRoot> parentRoots) {
+    boolean excluded =
+        parentExcluded || includesExcludes.excludesEverythingUnder(directory.toFile());
+    List<SourceRoot> roots = parentRoots;
+    if (isSourceRoot(directory)) {
+      roots = new ArrayList<>(parentRoots);
+      roots.add(newSourceRoot(directory));
+    }
+    return new DirectoryWalk(directory, excluded, roots);
+  }
+
+  private SourceRoot newSourceRoot(final Path directory) {
+    SourceRoot sourceRoot = new SourceRoot(directory, new ConcurrentLinkedQueue<>());
+    sourceRoots.add(sourceRoot);
+    return sourceRoot;
+  }
+
+  /** Lists one directory, and walks its subdirectories in parallel. */
+  private final class DirectoryWalk extends RecursiveAction {
+
+    private final Path directory;
+    private final boolean excluded;
+    private final List<SourceRoot> roots;
+
+    private DirectoryWalk(
+        final Path directory, final boolean excluded, final List<SourceRoot> roots) {
+      this.directory = directory;
+      this.excluded = excluded;
+      this.roots = roots;
+    }
+
+    @Override
+    protected void compute() {
+      List<DirectoryWalk> subdirectories = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+        for (Path entry : entries) {
+          BasicFileAttributes attributes =
+              Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          if (attributes.isDirectory()) {
+            if (!GIT_DIRECTORY.equals(entry.getFileName().toString())) {
+              subdirectories.add(walkOf(entry, excluded, roots));
+            }
+          } else if (attributes.isRegularFile()) {
+            if (excluded
+                ? isDependencyManifest(entry)
+                : includesExcludes.shouldInspect(entry.toFile())) {
+              files.add(entry);
+            }
+            addToSourceRoots(entry);
+          } else if (attributes.isSymbolicLink()) {
+            // links are never followed, but linked sources are still part of their directory
+            if (Files.isRegularFile(entry)) {
+              addToSourceRoots(entry);
+            } else if (Files.isDirectory(entry) && isSourceRoot(entry)) {
+              newSourceRoot(entry);
+            }
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      invokeAll(subdirectories);
+    }
+
+    private void addToSourceRoots(final Path file) {
+      if (roots.isEmpty()) {
+        return;
+      }
+      String path = file.toAbsolutePath().toString();
+      String lowerCasePath = path.toLowerCase();
+      if (lowerCasePath.endsWith(".java") && !lowerCasePath.contains(testDirToken)) {
+        roots.forEach(root -> root.files().add(path));
+      }
+    }
+  }
+
+  /** A Java source directory and the source files found under it so far. */
+  private record SourceRoot(Path path, Collection<String> files) {}
+
+  private static boolean isSourceRoot(final Path directory) {
+    return directory.toAbsolutePath().toString().toLowerCase().endsWith(javaSourceDir);
+  }
+
+  private static boolean isDependencyManifest(final Path file) {
+    return "pom.xml".equalsIgnoreCase(file.getFileName().toString());
+  }
+
+  private static final String GIT_DIRECTORY = ".git";
+
+  private static final String javaSourceDir =
+      "src" + File.separatorChar + "main" + File.separatorChar + "java";
+
+  private static final String testDirToken =
+      "test" + File.separatorChar + "java" + File.separatorChar;
+}
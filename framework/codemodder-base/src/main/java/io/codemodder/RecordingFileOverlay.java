@@ -0,0 +1,55 @@
+package io.codemodder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Passes reads and writes through to another overlay, remembering the contents last written to one
+ * file as a string, so they don't have to be read back and decoded again.
+ */
+final class RecordingFileOverlay implements FileOverlay {
+
+  private final FileOverlay delegate;
+  private final Path file;
+  private volatile String writtenContents;
+
+  RecordingFileOverlay(final FileOverlay delegate, final Path file) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.file = Objects.requireNonNull(file);
+  }
+
+  @Override
+  public byte[] readAllBytes(final Path path) throws IOException {
+    return delegate.readAllBytes(path);
+  }
+
+  @Override
+  public String readString(final Path path, final Charset charset) throws IOException {
+    return delegate.readString(path, charset);
+  }
+
+  @Override
+  public void write(final Path path, final byte[] contents) throws IOException {
+    delegate.write(path, contents);
+    if (file.equals(path)) {
+      writtenContents = null;
+    }
+  }
+
+  @Override
+  public void writeString(final Path path, final String contents, final Charset charset)
+      throws IOException {
+    delegate.writeString(path, contents, charset);
+    if (file.equals(path)) {
+      writtenContents = contents;
+    }
+  }
+
+  /** The contents last written to the file as a string, unless it was written as bytes since. */
+  Optional<String> writtenContents() {
+    return Optional.ofNullable(writtenContents);
+  }
+}
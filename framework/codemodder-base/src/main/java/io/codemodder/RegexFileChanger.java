@@ -3,7 +3,6 @@ package io.codemodder;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.StringReader;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -41,11 +40,16 @@ public abstract class RegexFileChanger extends RawFileChanger {
     this.dependenciesRequired = dependenciesRequired;
   }
 
+  @Override
+  public boolean dependsOnlyOnFile() {
+    return true;
+  }
+
   @Override
   public CodemodFileScanningResult visitFile(final CodemodInvocationContext context)
       throws IOException {
     final List<CodemodChange> changes = new ArrayList<>();
-    final String fileContents = Files.readString(context.path());
+    final String fileContents = context.fileOverlay().readString(context.path());
     final Matcher matcher = pattern.matcher(fileContents);
     StringBuilder rebuiltContents = null;
     int lastEnd = 0;
@@ -108,7 +112,7 @@ public abstract class RegexFileChanger extends RawFileChanger {
       return CodemodFileScanningResult.withOnlyChanges(changes);
     }
 
-    Files.write(context.path(), rebuiltContents.toString().getBytes());
+    context.fileOverlay().write(context.path(), rebuiltContents.toString().getBytes());
     return CodemodFileScanningResult.withOnlyChanges(changes);
   }
 
@@ -0,0 +1,158 @@
+package io.codemodder;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Chunk;
+import com.github.difflib.patch.Patch;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Diffs the lines of a file before and after a codemod changed it, running the diff algorithm only
+ * over the regions around the lines the codemod said it changed, rather than over the whole file.
+ *
+ * <p>The lines the two versions have in common at the start and end are never diffed. The first and
+ * last lines that differ are always treated as changed, so changes a codemod didn't report (like
+ * added imports) are still found. Between the regions, the unchanged lines of the original are
+ * looked for in the new version, to line the next region up. If they can't be found, the regions on
+ * either side are diffed together, so at worst this falls back to a full diff of everything between
+ * the common start and end. Either way, the patch always turns the original lines into the new
+ * ones.
+ */
+final class RegionDiff {
+
+  private RegionDiff() {}
+
+  /**
+   * Diff the given lines, focusing on the regions around the given line numbers (1-based, in the
+   * original lines).
+   */
+  static Patch<String> diff(
+      final List<String> before, final List<String> after, final Collection<Integer> changedLines) {
+    int common = Math.min(before.size(), after.size());
+    int prefix = 0;
+    while (prefix < common && before.get(prefix).equals(after.get(prefix))) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < common - prefix
+        && before.get(before.size() - 1 - suffix).equals(after.get(after.size() - 1 - suffix))) {
+      suffix++;
+    }
+    int beforeEnd = before.size() - suffix;
+    int afterEnd = after.size() - suffix;
+
+    Patch<String> patch = new Patch<>();
+    if (prefix == beforeEnd) {
+      // nothing was changed or removed, only added
+      addDeltas(patch, before, prefix, beforeEnd, after, prefix, afterEnd);
+      return patch;
+    }
+
+    List<int[]> regions = regionsAround(changedLines, prefix, beforeEnd);
+    int afterStart = prefix;
+    int i = 0;
+    while (i < regions.size()) {
+      int beforeStart = regions.get(i)[0];
+      int regionEnd = regions.get(i)[1];
+      int afterRegionEnd = afterEnd;
+      int gap = 0;
+      // grow the region until the unchanged lines after it can be found in the new version
+      while (i < regions.size() - 1) {
+        int nextStart = regions.get(i + 1)[0];
+        int found = indexOf(after, afterStart, afterEnd, before.subList(regionEnd, nextStart));
+        if (found != -1) {
+          afterRegionEnd = found;
+          gap = nextStart - regionEnd;
+          break;
+        }
+        i++;
+        regionEnd = regions.get(i)[1];
+      }
+      addDeltas(patch, before, beforeStart, regionEnd, after, afterStart, afterRegionEnd);
+      afterStart = afterRegionEnd + gap;
+      i++;
+    }
+    return patch;
+  }
+
+  /**
+   * Return the sorted, non-overlapping regions of the original lines to diff, as start and end
+   * indexes. The first region starts at the first line that differs, and the last ends after the
+   * last line that does.
+   */
+  private static List<int[]> regionsAround(
+      final Collection<Integer> changedLines, final int start, final int end) {
+    SortedSet<Integer> lines = new TreeSet<>();
+    lines.add(start);
+    lines.add(end - 1);
+    for (Integer line : changedLines) {
+      int index = line - 1;
+      if (index >= start && index < end) {
+        lines.add(index);
+      }
+    }
+
+    List<int[]> regions = new ArrayList<>();
+    for (int line : lines) {
+      int regionStart = Math.max(start, line - REGION_RADIUS);
+      int regionEnd = Math.min(end, line + REGION_RADIUS + 1);
+      int[] last = regions.isEmpty() ? null : regions.get(regions.size() - 1);
+      if (last != null && regionStart < last[1] + MIN_ANCHOR_LINES) {
+        last[1] = Math.max(last[1], regionEnd);
+      } else {
+        regions.add(new int[] {regionStart, regionEnd});
+      }
+    }
+    return regions;
+  }
+
+  /**
+   * Return the first index, between the given bounds, at which the given lines appear, or -1 if
+   * they don't.
+   */
+  private static int indexOf(
+      final List<String> lines, final int from, final int to, final List<String> wanted) {
+    for (int i = from; i + wanted.size() <= to; i++) {
+      if (lines.subList(i, i + wanted.size()).equals(wanted)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Diff the given ranges of the lines and add the deltas, moved into place, to the patch. */
+  private static void addDeltas(
+      final Patch<String> patch,
+      final List<String> before,
+      final int beforeStart,
+      final int beforeEnd,
+      final List<String> after,
+      final int afterStart,
+      final int afterEnd) {
+    Patch<String> regionPatch =
+        DiffUtils.diff(
+            before.subList(beforeStart, beforeEnd), after.subList(afterStart, afterEnd));
+    for (AbstractDelta<String> delta : regionPatch.getDeltas()) {
+      patch.addDelta(
+          delta.withChunks(
+              moved(delta.getSource(), beforeStart), moved(delta.getTarget(), afterStart)));
+    }
+  }
+
+  private static Chunk<String> moved(final Chunk<String> chunk, final int offset) {
+    return new Chunk<>(chunk.getPosition() + offset, chunk.getLines());
+  }
+
+  /** How many lines on either side of a changed line are diffed with it. */
+  private static final int REGION_RADIUS = 3;
+
+  /**
+   * Regions closer together than this are diffed together, since a short run of unchanged lines is
+   * too likely to appear elsewhere to line the regions up by.
+   */
+  private static final int MIN_ANCHOR_LINES = 8;
+}
@@ -13,27 +13,56 @@ public interface RegionNodeMatcher {
   /** Return true if the given {@link Region} matches the given {@link Range}. */
   boolean matches(SourceCodeRegion region, Range range);
 
+  /**
+   * Return true if this only ever matches nodes that begin on the first line of the region, which
+   * lets callers look up the candidate nodes by line instead of testing every node.
+   */
+  default boolean matchesOnlyOnRegionStartLine() {
+    return false;
+  }
+
+  /**
+   * Return a matcher that behaves like the given one, which must only ever match nodes that begin
+   * on the first line of the region.
+   */
+  static RegionNodeMatcher onRegionStartLine(final RegionNodeMatcher matcher) {
+    return new RegionNodeMatcher() {
+      @Override
+      public boolean matches(final SourceCodeRegion region, final Range range) {
+        return matcher.matches(region, range);
+      }
+
+      @Override
+      public boolean matchesOnlyOnRegionStartLine() {
+        return true;
+      }
+    };
+  }
+
   /**
    * Return true if the {@link Node} and {@link Region} start and end at the same location. Some
    * SARIF providers seem report an end column that is +1 more than you think -- the spec probably
    * says the value is exclusive or something.
    */
   RegionNodeMatcher EXACT_MATCH =
-      (region, range) ->
-          region.start().line() == range.begin.line
-              && region.start().column() == range.begin.column
-              && (region.end().line() != null ? region.end().line() : region.start().line())
-                  == range.end.line
-              && (region.end().column() == range.end.column + 1
-                  || region.end().column() == range.end.column);
+      onRegionStartLine(
+          (region, range) ->
+              region.start().line() == range.begin.line
+                  && region.start().column() == range.begin.column
+                  && (region.end().line() != null ? region.end().line() : region.start().line())
+                      == range.end.line
+                  && (region.end().column() == range.end.column + 1
+                      || region.end().column() == range.end.column));
 
   /** Return true if the {@link Node} is {@link Region} start at the same location. */
   RegionNodeMatcher MATCHES_START =
-      (region, range) ->
-          region.start().line() == range.begin.line
-              && region.start().column() == range.begin.column;
+      onRegionStartLine(
+          (region, range) ->
+              region.start().line() == range.begin.line
+                  && region.start().column() == range.begin.column);
 
-  RegionNodeMatcher MATCHES_LINE = (region, range) -> region.start().line() == range.begin.line;
+  RegionNodeMatcher MATCHES_LINE =
+      onRegionStartLine((region, range) -> region.start().line() == range.begin.line);
 
   /**
    * Return true when the given {@link Region} is inside the given {@link Range}.
@@ -1,6 +1,8 @@
 package io.codemodder;
 
+import com.contrastsecurity.sarif.Result;
 import com.contrastsecurity.sarif.SarifSchema210;
+import java.util.List;
 import java.util.Optional;
 
 /** Builds {@link RuleSarif}s. */
@@ -13,4 +15,18 @@ public interface RuleSarifFactory {
       String messageText,
       SarifSchema210 sarif,
       CodeDirectory codeDirectory);
+
+  /**
+   * Builds {@link RuleSarif}s if it supports {@code toolName}, given the results in {@code sarif}
+   * for the rule, which have already been found. By default, they're found again.
+   */
+  default Optional<RuleSarif> build(
+      final String toolName,
+      final String rule,
+      final String messageText,
+      final SarifSchema210 sarif,
+      final List<Result> ruleResults,
+      final CodeDirectory codeDirectory) {
+    return build(toolName, rule, messageText, sarif, codeDirectory);
+  }
 }
@@ -1,8 +1,11 @@
 package io.codemodder;
 
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Parses a list of sarif {@link Path}s to a {@link Map} of {@link RuleSarif}s organized by tool
@@ -16,7 +19,40 @@ public interface SarifParser {
    */
   Map<String, List<RuleSarif>> parseIntoMap(List<Path> sarifFiles, CodeDirectory codeDirectory);
 
+  /**
+   * Like {@link #parseIntoMap(List, CodeDirectory)}, but only keeps the results located in one of
+   * the given files. By default, everything is parsed and then filtered, but implementations may
+   * drop the results for the rest of the project as soon as they're read.
+   */
+  default Map<String, List<RuleSarif>> parseIntoMap(
+      final List<Path> sarifFiles,
+      final CodeDirectory codeDirectory,
+      final Collection<Path> onlyFiles) {
+    Map<String, List<RuleSarif>> ruleSarifsByTool = parseIntoMap(sarifFiles, codeDirectory);
+    Map<String, List<RuleSarif>> filtered = new HashMap<>();
+    ruleSarifsByTool.forEach(
+        (tool, ruleSarifs) ->
+            filtered.put(
+                tool,
+                ruleSarifs.stream()
+                    .<RuleSarif>map(
+                        ruleSarif -> new FileFilteredRuleSarif(ruleSarif, codeDirectory, onlyFiles))
+                    .collect(Collectors.toList())));
+    return filtered;
+  }
+
+  /** Create a parser that reads everything in the SARIF files. */
   static SarifParser create() {
-    return new DefaultSarifParser();
+    return new DefaultSarifParser(true);
+  }
+
+  /**
+   * Create a parser that may skip how data flowed to each result (its code flows and graphs), which
+   * can be most of a SARIF file.
+   *
+   * @param readFlows whether to read the data flows, because a codemod needs them
+   */
+  static SarifParser create(final boolean readFlows) {
+    return new DefaultSarifParser(readFlows);
   }
 }
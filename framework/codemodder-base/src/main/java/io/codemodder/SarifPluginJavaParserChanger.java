@@ -9,6 +9,7 @@ import com.google.common.annotations.VisibleForTesting;
 import io.codemodder.codetf.FixedFinding;
 import io.codemodder.javaparser.ChangesResult;
 import io.codemodder.javaparser.JavaParserChanger;
+import io.codemodder.javaparser.NodePositionIndex;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -99,7 +100,7 @@ public abstract class SarifPluginJavaParserChanger<T extends Node> extends JavaP
 
   public CodemodFileScanningResult visit(
       final CodemodInvocationContext context, final CompilationUnit cu) {
-    List<? extends Node> allNodes = cu.findAll(nodeType);
+    NodePositionIndex nodeIndex = NodePositionIndex.forType(cu, nodeType);
     List<Result> results = sarif.getResultsByLocationPath(context.path());
 
     /*
@@ -120,23 +121,26 @@ public abstract class SarifPluginJavaParserChanger<T extends Node> extends JavaP
      * we should invest into a general solution if this doesn't scale.
      */
     List<CodemodChange> codemodChanges = new ArrayList<>();
+    if (nodeIndex.all().isEmpty()) {
+      return CodemodFileScanningResult.withOnlyChanges(codemodChanges);
+    }
     for (Result result : results) {
-      for (Node node : allNodes) {
-        SourceCodeRegion region = regionExtractor.from(result);
-        if (!nodeType.isAssignableFrom(node.getClass())) {
-          continue;
-        }
-        if (context.lineIncludesExcludes().matches(region.start().line())) {
-          if (node.getRange().isPresent()) {
-            Range range = node.getRange().get();
-            if (regionNodeMatcher.matches(region, range)) {
-              ChangesResult changeSuccessful = onResultFound(context, cu, (T) node, result);
-              if (changeSuccessful.areChangesApplied()) {
-                codemodChanges.add(
-                    buildCodemodChange(
-                        region.start().line(), changeSuccessful.getDependenciesRequired(), result));
-              }
-            }
+      SourceCodeRegion region = regionExtractor.from(result);
+      if (!context.lineIncludesExcludes().matches(region.start().line())) {
+        continue;
+      }
+      List<Node> candidates =
+          regionNodeMatcher.matchesOnlyOnRegionStartLine()
+              ? nodeIndex.beginningOnLine(region.start().line())
+              : nodeIndex.all();
+      for (Node node : candidates) {
+        Range range = node.getRange().get();
+        if (regionNodeMatcher.matches(region, range)) {
+          ChangesResult changeSuccessful = onResultFound(context, cu, (T) node, result);
+          if (changeSuccessful.areChangesApplied()) {
+            codemodChanges.add(
+                buildCodemodChange(
+                    region.start().line(), changeSuccessful.getDependenciesRequired(), result));
           }
         }
       }
@@ -0,0 +1,108 @@
+package io.codemodder;
+
+import com.contrastsecurity.sarif.Location;
+import com.contrastsecurity.sarif.PhysicalLocation;
+import com.contrastsecurity.sarif.Result;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of SARIF results by the file their first location points to, so that a {@link RuleSarif}
+ * can find the results for a file without scanning every result or touching the file system. Paths
+ * are normalized and, when they're inside the repository, made relative to it.
+ */
+public final class SarifResultIndex {
+
+  private final Path repositoryRoot;
+  private final Path realRepositoryRoot;
+  private final Map<Path, List<Result>> resultsByPath;
+
+  private SarifResultIndex(final Path repositoryRoot, final Collection<Result> results) {
+    this.repositoryRoot = repositoryRoot.toAbsolutePath().normalize();
+    this.realRepositoryRoot = toRealPath(this.repositoryRoot);
+    Map<Path, List<Result>> resultsByPath = new HashMap<>();
+    for (Result result : results) {
+      getLocationPath(result)
+          .ifPresent(
+              path -> resultsByPath.computeIfAbsent(path, k -> new ArrayList<>()).add(result));
+    }
+    resultsByPath.replaceAll((path, pathResults) -> List.copyOf(pathResults));
+    this.resultsByPath = Map.copyOf(resultsByPath);
+  }
+
+  /**
+   * Index the given results, resolving the relative URIs in their first location against the
+   * repository root.
+   */
+  public static SarifResultIndex build(
+      final Path repositoryRoot, final Collection<Result> results) {
+    Objects.requireNonNull(repositoryRoot);
+    Objects.requireNonNull(results);
+    return new SarifResultIndex(repositoryRoot, results);
+  }
+
+  /**
+   * Get the results whose first location points to the given file.
+   *
+   * @param path the file being scanned
+   * @return the results associated with the given file, in the order they were given
+   */
+  public List<Result> get(final Path path) {
+    return resultsByPath.getOrDefault(toKey(path.toAbsolutePath().normalize()), List.of());
+  }
+
+  private Optional<Path> getLocationPath(final Result result) {
+    List<Location> locations = result.getLocations();
+    if (locations == null || locations.isEmpty()) {
+      return Optional.empty();
+    }
+    PhysicalLocation physicalLocation = locations.get(0).getPhysicalLocation();
+    if (physicalLocation == null
+        || physicalLocation.getArtifactLocation() == null
+        || physicalLocation.getArtifactLocation().getUri() == null) {
+      return Optional.empty();
+    }
+    String uri = physicalLocation.getArtifactLocation().getUri();
+    try {
+      Path path = uri.startsWith("file:") ? Path.of(URI.create(uri)) : Path.of(uri);
+      return Optional.of(toKey(repositoryRoot.resolve(path).normalize()));
+    } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+      log.debug("Couldn't understand file referenced in SARIF: {}", uri, e);
+      return Optional.empty();
+    }
+  }
+
+  private Path toKey(final Path absolutePath) {
+    if (absolutePath.startsWith(repositoryRoot)) {
+      return repositoryRoot.relativize(absolutePath);
+    } else if (absolutePath.startsWith(realRepositoryRoot)) {
+      return realRepositoryRoot.relativize(absolutePath);
+    }
+    return absolutePath;
+  }
+
+  /**
+   * The repository may be reached through a symbolic link, so we remember where it really is. This
+   * is the only time the file system is consulted.
+   */
+  private static Path toRealPath(final Path path) {
+    try {
+      return path.toRealPath();
+    } catch (IOException e) {
+      return path;
+    }
+  }
+
+  private static final Logger log = LoggerFactory.getLogger(SarifResultIndex.class);
+}
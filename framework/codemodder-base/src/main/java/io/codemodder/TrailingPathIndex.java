@@ -0,0 +1,78 @@
+package io.codemodder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * An index of the files in a directory by their names, so that files can be found by the end of
+ * their paths without walking the directory for every lookup.
+ *
+ * <p>The names are kept reversed and sorted, so the files whose names end with some text are found
+ * by looking up a range, and a file with an exact name by looking up one key. Only the files with
+ * the right name are then checked against the whole trailing path.
+ */
+final class TrailingPathIndex {
+
+  private final NavigableMap<String, List<Path>> filesByReversedName;
+
+  private TrailingPathIndex(final NavigableMap<String, List<Path>> filesByReversedName) {
+    this.filesByReversedName = filesByReversedName;
+  }
+
+  /** Walk the directory once and index every file in it. */
+  static TrailingPathIndex build(final Path directory) throws IOException {
+    NavigableMap<String, List<Path>> filesByReversedName = new TreeMap<>();
+    Files.walkFileTree(
+        directory,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+            Path fileName = file.getFileName();
+            String name = fileName != null ? fileName.toString() : "";
+            filesByReversedName.computeIfAbsent(reverse(name), k -> new ArrayList<>()).add(file);
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return new TrailingPathIndex(filesByReversedName);
+  }
+
+  /**
+   * Find a file whose path ends with the given text, which uses the platform's separators. If more
+   * than one does, the first in path order is returned.
+   */
+  Optional<Path> find(final String trailingPath) {
+    int lastSeparator = trailingPath.lastIndexOf(File.separatorChar);
+    String reversedName = reverse(trailingPath.substring(lastSeparator + 1));
+    Collection<List<Path>> candidates;
+    if (lastSeparator == -1) {
+      // the path may only be the end of a file name
+      candidates =
+          filesByReversedName
+              .subMap(reversedName, true, reversedName + Character.MAX_VALUE, false)
+              .values();
+    } else {
+      List<Path> files = filesByReversedName.get(reversedName);
+      candidates = files != null ? List.of(files) : List.of();
+    }
+    return candidates.stream()
+        .flatMap(List::stream)
+        .filter(file -> file.toString().endsWith(trailingPath))
+        .min(Comparator.naturalOrder());
+  }
+
+  private static String reverse(final String name) {
+    return new StringBuilder(name).reverse().toString();
+  }
+}
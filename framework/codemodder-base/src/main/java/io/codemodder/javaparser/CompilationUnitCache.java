@@ -0,0 +1,42 @@
+package io.codemodder.javaparser;
+
+import com.github.javaparser.ast.CompilationUnit;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * A memory-bounded cache of parsed {@link CompilationUnit}s, keyed by the file path and a hash of
+ * the file contents. This allows codemods that don't change a file to share the work of parsing it.
+ */
+public interface CompilationUnitCache {
+
+  /**
+   * Get the cached {@link CompilationUnit} for the given file, if there is one for the exact same
+   * contents and it hasn't been modified since it was cached.
+   */
+  Optional<CompilationUnit> get(Path file, String contentHash);
+
+  /**
+   * Cache the given {@link CompilationUnit}, which must be freshly parsed from contents with the
+   * given hash and size.
+   */
+  void put(Path file, String contentHash, long contentSize, CompilationUnit cu);
+
+  /** Forget any {@link CompilationUnit} cached for the given file. */
+  void invalidate(Path file);
+
+  /** Return the statistics gathered so far. */
+  Stats stats();
+
+  /** The statistics about the effectiveness of the cache, useful for sizing it. */
+  record Stats(long hitCount, long missCount, long evictionCount, long size) {}
+
+  /**
+   * Create a cache that holds compilation units taking up to roughly the given number of bytes of
+   * memory, estimated from the size of their source. The compilation units are softly referenced,
+   * so they will also be evicted under heap pressure.
+   */
+  static CompilationUnitCache createDefault(final long maxBytes) {
+    return new DefaultCompilationUnitCache(maxBytes);
+  }
+}
@@ -0,0 +1,89 @@
+package io.codemodder.javaparser;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@inheritDoc}
+ *
+ * <p>Entries are weighed by an estimate of the memory their tree takes up, evicted
+ * least-recently-used first when the budget is exceeded, and held by soft references. Every cached
+ * tree is observed, so a tree that a codemod has modified (whether it reported changes or not) is
+ * never handed out again.
+ */
+final class DefaultCompilationUnitCache implements CompilationUnitCache {
+
+  private final Cache<Path, Entry> cache;
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder evictions;
+
+  DefaultCompilationUnitCache(final long maxBytes) {
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .<Path, Entry>weigher((path, entry) -> entry.weight)
+            .softValues()
+            .removalListener(
+                notification -> {
+                  if (notification.wasEvicted()) {
+                    evictions.increment();
+                  }
+                })
+            .build();
+  }
+
+  @Override
+  public Optional<CompilationUnit> get(final Path file, final String contentHash) {
+    Entry entry = cache.getIfPresent(file);
+    if (entry == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+    if (entry.modified.isModified() || !entry.contentHash.equals(contentHash)) {
+      cache.invalidate(file);
+      misses.increment();
+      return Optional.empty();
+    }
+    hits.increment();
+    return Optional.of(entry.cu);
+  }
+
+  @Override
+  public void put(
+      final Path file, final String contentHash, final long contentSize, final CompilationUnit cu) {
+    ModificationObserver observer = new ModificationObserver();
+    cu.register(observer, Node.ObserverRegistrationMode.SELF_PROPAGATING);
+    long estimatedSize = contentSize * ESTIMATED_TREE_BYTES_PER_SOURCE_BYTE;
+    int weight = (int) Math.min(Integer.MAX_VALUE, Math.max(1, estimatedSize));
+    cache.put(file, new Entry(Objects.requireNonNull(contentHash), cu, observer, weight));
+  }
+
+  @Override
+  public void invalidate(final Path file) {
+    cache.invalidate(file);
+  }
+
+  @Override
+  public Stats stats() {
+    return new Stats(hits.sum(), misses.sum(), evictions.sum(), cache.size());
+  }
+
+  private record Entry(
+      String contentHash, CompilationUnit cu, ModificationObserver modified, int weight) {}
+
+  /**
+   * A tree, with its tokens and the data kept to print it back with its original formatting, takes
+   * up about an order of magnitude more memory than its source.
+   */
+  private static final long ESTIMATED_TREE_BYTES_PER_SOURCE_BYTE = 10;
+}
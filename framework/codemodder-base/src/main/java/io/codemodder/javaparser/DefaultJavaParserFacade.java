@@ -3,20 +3,41 @@ package io.codemodder.javaparser;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import com.google.common.hash.Hashing;
+import io.codemodder.FileOverlay;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
 import javax.inject.Provider;
 
 final class DefaultJavaParserFacade implements JavaParserFacade {
 
   private final Provider<JavaParser> parserProvider;
   private final ThreadLocal<JavaParser> javaParserRef;
+  private final CompilationUnitCache cache;
+  private final FileOverlay fileOverlay;
 
   DefaultJavaParserFacade(final Provider<JavaParser> parserProvider) {
+    this(parserProvider, null, FileOverlay.disk());
+  }
+
+  DefaultJavaParserFacade(
+      final Provider<JavaParser> parserProvider, final CompilationUnitCache cache) {
+    this(parserProvider, cache, FileOverlay.disk());
+  }
+
+  DefaultJavaParserFacade(
+      final Provider<JavaParser> parserProvider,
+      final CompilationUnitCache cache,
+      final FileOverlay fileOverlay) {
     this.parserProvider = Objects.requireNonNull(parserProvider);
     this.javaParserRef = new ThreadLocal<>();
+    this.cache = cache;
+    this.fileOverlay = Objects.requireNonNull(fileOverlay);
   }
 
   @Override
@@ -27,7 +48,46 @@ final class DefaultJavaParserFacade implements JavaParserFacade {
       javaParserRef.set(parser);
     }
 
-    final ParseResult<CompilationUnit> result = parser.parse(file);
+    byte[] contents = fileOverlay.readAllBytes(file);
+    Charset encoding = parser.getParserConfiguration().getCharacterEncoding();
+    if (cache == null) {
+      return parse(file, parseContents(parser, file, contents, encoding));
+    }
+
+    String contentHash = Hashing.murmur3_128().hashBytes(contents).toString();
+    Optional<CompilationUnit> cached = cache.get(file, contentHash);
+    if (cached.isPresent()) {
+      // the tree may have been parsed on another thread, so point it at this thread's resolver
+      CompilationUnit cu = cached.get();
+      parser
+          .getParserConfiguration()
+          .getSymbolResolver()
+          .ifPresent(resolver -> cu.setData(Node.SYMBOL_RESOLVER_KEY, resolver));
+      return cu;
+    }
+
+    CompilationUnit cu = parse(file, parseContents(parser, file, contents, encoding));
+    cache.put(file, contentHash, contents.length, cu);
+    return cu;
+  }
+
+  @Override
+  public void invalidate(final Path file) {
+    if (cache != null) {
+      cache.invalidate(file);
+    }
+  }
+
+  /** Parse the contents of the file, remembering where they came from. */
+  private static ParseResult<CompilationUnit> parseContents(
+      final JavaParser parser, final Path file, final byte[] contents, final Charset encoding) {
+    ParseResult<CompilationUnit> result = parser.parse(new String(contents, encoding));
+    result.getResult().ifPresent(cu -> cu.setStorage(file, encoding));
+    return result;
+  }
+
+  private static CompilationUnit parse(final Path file, final ParseResult<CompilationUnit> result)
+      throws JavaParseException {
     if (!result.isSuccessful()) {
       throw new JavaParseException(
           "Error while parsing file " + file + " encountered problems: " + result.getProblems());
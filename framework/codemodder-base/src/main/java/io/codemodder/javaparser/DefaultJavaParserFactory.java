@@ -4,23 +4,32 @@ import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
 import io.codemodder.SourceDirectory;
 import java.util.List;
 
 final class DefaultJavaParserFactory implements JavaParserFactory {
 
+  /** The index for the source directories we were last asked about, shared by all threads. */
+  private SourceTypeIndex sourceTypeIndex;
+
   @Override
   public JavaParser create(final List<SourceDirectory> sourceDirectories) {
     final JavaParser javaParser = new JavaParser();
     final CombinedTypeSolver combinedTypeSolver = new CombinedTypeSolver();
     combinedTypeSolver.add(new ReflectionTypeSolver());
-    sourceDirectories.forEach(
-        javaDirectory -> combinedTypeSolver.add(new JavaParserTypeSolver(javaDirectory.path())));
+    combinedTypeSolver.add(new IndexedSourceTypeSolver(getSourceTypeIndex(sourceDirectories)));
     ParserConfiguration parserConfiguration = javaParser.getParserConfiguration();
     parserConfiguration.setLanguageLevel(ParserConfiguration.LanguageLevel.BLEEDING_EDGE);
     parserConfiguration.setSymbolResolver(new JavaSymbolSolver(combinedTypeSolver));
     return javaParser;
   }
+
+  private synchronized SourceTypeIndex getSourceTypeIndex(
+      final List<SourceDirectory> sourceDirectories) {
+    if (sourceTypeIndex == null || !sourceTypeIndex.isFor(sourceDirectories)) {
+      sourceTypeIndex = SourceTypeIndex.build(sourceDirectories);
+    }
+    return sourceTypeIndex;
+  }
 }
@@ -0,0 +1,89 @@
+package io.codemodder.javaparser;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.cache.GuavaCache;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.google.common.cache.CacheBuilder;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Solves types from the project source directories, like a {@link JavaParserTypeSolver} per source
+ * directory would, but only consults the source directories that the shared {@link SourceTypeIndex}
+ * says could declare the type. An instance belongs to a single thread, and so do the files it
+ * parses, since the declarations it returns are tied to its parent type solver, and JavaParser's
+ * trees fill in their symbol data lazily without any locking.
+ */
+final class IndexedSourceTypeSolver implements TypeSolver {
+
+  private final SourceTypeIndex index;
+  private final JavaParser javaParser;
+  private final JavaParserTypeSolver[] sourceDirectorySolvers;
+  private final Cache<Path, Optional<CompilationUnit>> parsedFiles;
+  private final Cache<Path, List<CompilationUnit>> parsedDirectories;
+  private TypeSolver parent;
+
+  IndexedSourceTypeSolver(final SourceTypeIndex index) {
+    this.index = Objects.requireNonNull(index);
+    this.javaParser =
+        new JavaParser(
+            new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.BLEEDING_EDGE));
+    this.sourceDirectorySolvers = new JavaParserTypeSolver[index.roots().size()];
+    this.parsedFiles = new GuavaCache<>(CacheBuilder.newBuilder().softValues().build());
+    this.parsedDirectories = new GuavaCache<>(CacheBuilder.newBuilder().softValues().build());
+  }
+
+  @Override
+  public TypeSolver getParent() {
+    return parent;
+  }
+
+  @Override
+  public void setParent(final TypeSolver parent) {
+    Objects.requireNonNull(parent);
+    if (this.parent != null) {
+      throw new IllegalStateException("This TypeSolver already has a parent.");
+    }
+    if (parent == this) {
+      throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+    }
+    this.parent = parent;
+  }
+
+  @Override
+  public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(final String name) {
+    for (int rootIndex : index.candidateRoots(name)) {
+      SymbolReference<ResolvedReferenceTypeDeclaration> ref =
+          getSourceDirectorySolver(rootIndex).tryToSolveType(name);
+      if (ref.isSolved()) {
+        return ref;
+      }
+    }
+    return SymbolReference.unsolved();
+  }
+
+  private JavaParserTypeSolver getSourceDirectorySolver(final int rootIndex) {
+    JavaParserTypeSolver solver = sourceDirectorySolvers[rootIndex];
+    if (solver == null) {
+      solver =
+          new JavaParserTypeSolver(
+              index.roots().get(rootIndex),
+              javaParser,
+              parsedFiles,
+              parsedDirectories,
+              new GuavaCache<>(CacheBuilder.newBuilder().softValues().build()));
+      solver.setParent(this);
+      sourceDirectorySolvers[rootIndex] = solver;
+    }
+    return solver;
+  }
+}
@@ -5,9 +5,7 @@ import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinte
 import io.codemodder.*;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Objects;
 
@@ -63,7 +61,7 @@ public final class JavaParserCodemodRunner implements CodemodRunner {
       String encodingName = encodingDetector.detect(file).orElse("UTF-8");
       Charset encoding = Charset.forName(encodingName);
       String modified = (LexicalPreservingPrinter.print(cu));
-      Files.writeString(file, modified, encoding, StandardOpenOption.TRUNCATE_EXISTING);
+      context.fileOverlay().writeString(file, modified, encoding);
     }
     return result;
   }
@@ -2,20 +2,22 @@ package io.codemodder.javaparser;
 
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import io.codemodder.FileOverlay;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Objects;
 import javax.inject.Provider;
 
 /**
- * Responsible for parsing Java files and maintaining the compilation units across different
- * accesses.
+ * Responsible for parsing Java files and, optionally, maintaining the compilation units across
+ * different accesses.
  */
 public interface JavaParserFacade {
 
   /**
-   * Return the {@link CompilationUnit} for the given Java file. If the given file has not been seen
-   * before, it will be cached and all future invocations will return the same {@link
-   * CompilationUnit}.
+   * Return the {@link CompilationUnit} for the given Java file. If a cache is in use and the file
+   * hasn't changed since it was last parsed, and the last {@link CompilationUnit} returned for it
+   * hasn't been modified, that same {@link CompilationUnit} may be returned.
    *
    * @param file a Java file path
    * @throws IOException when the file cannot be read and parsed
@@ -24,8 +26,38 @@ public interface JavaParserFacade {
    */
   CompilationUnit parseJavaFile(Path file) throws IOException;
 
+  /**
+   * Forget anything remembered about the given file, because it has been changed on disk.
+   *
+   * @param file a Java file path
+   */
+  default void invalidate(final Path file) {}
+
   /** Return a simple implementation of the {@link JavaParserFacade} interface. */
   static JavaParserFacade from(final Provider<JavaParser> parser) {
     return new DefaultJavaParserFacade(parser);
   }
+
+  /**
+   * Return an implementation of the {@link JavaParserFacade} interface that shares unchanged
+   * compilation units between accesses using the given cache.
+   */
+  static JavaParserFacade from(
+      final Provider<JavaParser> parser, final CompilationUnitCache compilationUnitCache) {
+    return new DefaultJavaParserFacade(parser, Objects.requireNonNull(compilationUnitCache));
+  }
+
+  /**
+   * Return an implementation of the {@link JavaParserFacade} interface that reads files through the
+   * given overlay, so it sees the changes kept there, and shares unchanged compilation units using
+   * the given cache, if there is one.
+   *
+   * @param compilationUnitCache the cache to use, or null to parse the file every time
+   */
+  static JavaParserFacade from(
+      final Provider<JavaParser> parser,
+      final CompilationUnitCache compilationUnitCache,
+      final FileOverlay fileOverlay) {
+    return new DefaultJavaParserFacade(parser, compilationUnitCache, fileOverlay);
+  }
 }
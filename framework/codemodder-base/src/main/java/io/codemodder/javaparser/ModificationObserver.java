@@ -0,0 +1,50 @@
+package io.codemodder.javaparser;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.observer.AstObserver;
+import com.github.javaparser.ast.observer.AstObserverAdapter;
+import com.github.javaparser.ast.observer.ObservableProperty;
+
+/**
+ * Remembers if any change was made to the tree it observes. It should be registered with {@link
+ * Node.ObserverRegistrationMode#SELF_PROPAGATING} so that it also observes nodes added later.
+ */
+final class ModificationObserver extends AstObserverAdapter {
+
+  private volatile boolean modified;
+
+  boolean isModified() {
+    return modified;
+  }
+
+  @Override
+  public void propertyChange(
+      final Node observedNode,
+      final ObservableProperty property,
+      final Object oldValue,
+      final Object newValue) {
+    modified = true;
+  }
+
+  @Override
+  public void parentChange(
+      final Node observedNode, final Node previousParent, final Node newParent) {
+    modified = true;
+  }
+
+  @Override
+  public void listChange(
+      final NodeList<?> observedNode,
+      final AstObserver.ListChangeType type,
+      final int index,
+      final Node nodeAddedOrRemoved) {
+    modified = true;
+  }
+
+  @Override
+  public void listReplacement(
+      final NodeList<?> observedNode, final int index, final Node oldNode, final Node newNode) {
+    modified = true;
+  }
+}
@@ -0,0 +1,96 @@
+package io.codemodder.javaparser;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An index of nodes by the line they begin on, so that finding the nodes at a location reported by
+ * a tool doesn't require testing every node in the file. Only nodes with a range are indexed.
+ *
+ * <p>The index is a snapshot of the nodes when it was built. The indexes returned by {@link
+ * #forType(CompilationUnit, Class)} are shared by everyone working on the same {@link
+ * CompilationUnit}, until the tree is modified.
+ */
+public final class NodePositionIndex {
+
+  private final List<Node> nodes;
+  private final NavigableMap<Integer, List<Node>> nodesByBeginLine;
+
+  private NodePositionIndex(final Collection<? extends Node> nodes) {
+    this.nodes = new ArrayList<>(nodes.size());
+    this.nodesByBeginLine = new TreeMap<>();
+    for (Node node : nodes) {
+      node.getRange()
+          .ifPresent(
+              range -> {
+                this.nodes.add(node);
+                nodesByBeginLine
+                    .computeIfAbsent(range.begin.line, k -> new ArrayList<>())
+                    .add(node);
+              });
+    }
+  }
+
+  /** Index the given nodes. */
+  public static NodePositionIndex of(final Collection<? extends Node> nodes) {
+    return new NodePositionIndex(nodes);
+  }
+
+  /**
+   * Return the index of all the nodes of the given type in the given {@link CompilationUnit},
+   * building it only if nobody has since it was last modified.
+   */
+  public static NodePositionIndex forType(
+      final CompilationUnit cu, final Class<? extends Node> nodeType) {
+    SharedIndexes shared = cu.containsData(SHARED_INDEXES) ? cu.getData(SHARED_INDEXES) : null;
+    if (shared == null || shared.observer.isModified()) {
+      if (shared != null) {
+        ModificationObserver oldObserver = shared.observer;
+        cu.walk(node -> node.unregister(oldObserver));
+      }
+      shared = new SharedIndexes();
+      cu.register(shared.observer, Node.ObserverRegistrationMode.SELF_PROPAGATING);
+      cu.setData(SHARED_INDEXES, shared);
+    }
+    return shared.indexesByType.computeIfAbsent(nodeType, type -> of(cu.findAll(type)));
+  }
+
+  /** Return all the indexed nodes, in the order they were given. */
+  public List<Node> all() {
+    return nodes;
+  }
+
+  /** Return the nodes that begin on the given line, in the order they were given. */
+  public List<Node> beginningOnLine(final int line) {
+    return nodesByBeginLine.getOrDefault(line, List.of());
+  }
+
+  /** Return the nodes that begin on any of the lines in the given range, inclusive. */
+  public List<Node> beginningBetweenLines(final int startLine, final int endLine) {
+    if (startLine == endLine) {
+      return beginningOnLine(startLine);
+    }
+    if (startLine > endLine) {
+      return List.of();
+    }
+    List<Node> found = new ArrayList<>();
+    nodesByBeginLine.subMap(startLine, true, endLine, true).values().forEach(found::addAll);
+    return found;
+  }
+
+  /** The indexes shared by everyone working on a {@link CompilationUnit}. */
+  private static final class SharedIndexes {
+    private final ModificationObserver observer = new ModificationObserver();
+    private final Map<Class<? extends Node>, NodePositionIndex> indexesByType = new HashMap<>();
+  }
+
+  private static final DataKey<SharedIndexes> SHARED_INDEXES = new DataKey<>() {};
+}
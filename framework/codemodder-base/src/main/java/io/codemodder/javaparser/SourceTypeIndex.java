@@ -0,0 +1,98 @@
+package io.codemodder.javaparser;
+
+import io.codemodder.SourceDirectory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * An index of which source directories hold Java files in which packages, built once per run and
+ * shared by the type solvers of every thread. It lets a type solver go straight to the few source
+ * directories that could declare a type, rather than asking every one of them. It holds no parsed
+ * files, since their trees aren't safe to resolve types in from several threads at once.
+ */
+final class SourceTypeIndex {
+
+  private final List<SourceDirectory> sourceDirectories;
+  private final List<Path> roots;
+
+  /** The source directories (by index) that have files in each package directory. */
+  private final Map<String, List<Integer>> rootsByPackageDirectory;
+
+  private SourceTypeIndex(final List<SourceDirectory> sourceDirectories) {
+    this.sourceDirectories = sourceDirectories;
+    this.roots = new ArrayList<>();
+    this.rootsByPackageDirectory = new HashMap<>();
+    for (SourceDirectory sourceDirectory : sourceDirectories) {
+      Path root = sourceDirectory.path().toAbsolutePath();
+      if (!Files.isDirectory(root)) {
+        throw new IllegalStateException("SrcDir does not exist or is not a directory: " + root);
+      }
+      int rootIndex = roots.size();
+      roots.add(root);
+      for (String file : sourceDirectory.files()) {
+        Path relativeFile = root.relativize(Path.of(file).toAbsolutePath());
+        String packageDirectory = toPackageDirectory(relativeFile.getParent());
+        List<Integer> packageRoots =
+            rootsByPackageDirectory.computeIfAbsent(packageDirectory, k -> new ArrayList<>());
+        if (packageRoots.isEmpty() || packageRoots.get(packageRoots.size() - 1) != rootIndex) {
+          packageRoots.add(rootIndex);
+        }
+      }
+    }
+  }
+
+  static SourceTypeIndex build(final List<SourceDirectory> sourceDirectories) {
+    return new SourceTypeIndex(List.copyOf(sourceDirectories));
+  }
+
+  /** Returns true if this index was built from the given source directories. */
+  boolean isFor(final List<SourceDirectory> sourceDirectories) {
+    return this.sourceDirectories.equals(sourceDirectories);
+  }
+
+  List<Path> roots() {
+    return roots;
+  }
+
+  /**
+   * Return the indexes of the source directories that could declare the given type, in order. A
+   * type named {@code a.b.C.D} could be declared in a file named for any prefix of the name, or in
+   * any other file in the same package as that file, so we need a source directory with files in
+   * any of the {@code a/b/C}, {@code a/b}, {@code a} or top-level package directories.
+   */
+  List<Integer> candidateRoots(final String typeName) {
+    TreeSet<Integer> candidates = new TreeSet<>();
+    addCandidates(candidates, "");
+    StringBuilder packageDirectory = new StringBuilder();
+    String[] nameElements = typeName.split("\\.");
+    for (int i = 0; i < nameElements.length - 1; i++) {
+      if (i > 0) {
+        packageDirectory.append('/');
+      }
+      packageDirectory.append(nameElements[i]);
+      addCandidates(candidates, packageDirectory.toString());
+    }
+    return List.copyOf(candidates);
+  }
+
+  private void addCandidates(final TreeSet<Integer> candidates, final String packageDirectory) {
+    List<Integer> packageRoots = rootsByPackageDirectory.get(packageDirectory);
+    if (packageRoots != null) {
+      candidates.addAll(packageRoots);
+    }
+  }
+
+  private static String toPackageDirectory(final Path relativeDirectory) {
+    if (relativeDirectory == null) {
+      return "";
+    }
+    List<String> names = new ArrayList<>();
+    relativeDirectory.forEach(name -> names.add(name.toString()));
+    return String.join("/", names);
+  }
+}
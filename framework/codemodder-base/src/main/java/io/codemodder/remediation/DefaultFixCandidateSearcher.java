@@ -2,9 +2,9 @@ package io.codemodder.remediation;
 
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
-import com.github.javaparser.ast.nodeTypes.NodeWithRange;
 import io.codemodder.codetf.DetectorRule;
 import io.codemodder.codetf.UnfixedFinding;
+import io.codemodder.javaparser.NodePositionIndex;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -45,11 +45,11 @@ final class DefaultFixCandidateSearcher<T> implements FixCandidateSearcher<T> {
 
     List<UnfixedFinding> unfixedFindings = new ArrayList<>();
 
-    List<Node> nodes =
-        cu.findAll(Node.class).stream()
-            // filter by matchers
-            .filter(n -> matchers.stream().allMatch(m -> m.test(n)))
-            .toList();
+    // the index is shared with the other searchers looking at this tree, until it changes
+    NodePositionIndex nodeIndex = NodePositionIndex.forType(cu, Node.class);
+    Map<Node, Boolean> matchedNodes = new IdentityHashMap<>();
+    Predicate<Node> matchesAll =
+        n -> matchedNodes.computeIfAbsent(n, k -> matchers.stream().allMatch(m -> m.test(k)));
 
     Map<Node, List<T>> fixCandidateToIssueMapping = new IdentityHashMap<>();
     Set<T> matchedIssues = new HashSet<>();
@@ -59,9 +59,14 @@ final class DefaultFixCandidateSearcher<T> implements FixCandidateSearcher<T> {
       int issueStartLine = getStartLine.apply(issue);
       int issueEndLine = getEndLine.apply(issue).orElse(issueStartLine);
       Optional<Integer> maybeColumn = getColumn.apply(issue);
+      List<Node> candidates =
+          nodePositionMatcher.matchesOnlyNodesBeginningWithinLines()
+              ? nodeIndex.beginningBetweenLines(issueStartLine, issueEndLine)
+              : nodeIndex.all();
       List<Node> nodesForIssue =
-          nodes.stream()
-              .filter(NodeWithRange::hasRange)
+          candidates.stream()
+              // filter by matchers
+              .filter(matchesAll)
               // if column info is present, check if the node starts after the issue start
               // coordinates
               .filter(
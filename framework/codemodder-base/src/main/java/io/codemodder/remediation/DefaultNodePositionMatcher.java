@@ -30,6 +30,11 @@ class DefaultNodePositionMatcher implements NodePositionMatcher {
             new Range(new Position(startLine, startColumn), new Position(endLine, endColumn)));
   }
 
+  @Override
+  public boolean matchesOnlyNodesBeginningWithinLines() {
+    return true;
+  }
+
   private boolean inInterval(int number, int upper, int lower) {
     return number >= upper && number <= lower;
   }
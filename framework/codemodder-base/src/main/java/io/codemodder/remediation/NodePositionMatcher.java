@@ -48,4 +48,14 @@ public interface NodePositionMatcher {
    * @return
    */
   boolean match(Node node, int startLine, int endLine, int StartColumn, int EndColumn);
+
+  /**
+   * Whether the line-based {@code match} methods only ever match nodes that begin within the given
+   * lines, which lets callers look up the candidate nodes by line instead of testing every node.
+   *
+   * @return true if only nodes beginning within the given lines can match
+   */
+  default boolean matchesOnlyNodesBeginningWithinLines() {
+    return false;
+  }
 }
@@ -19,4 +19,10 @@ public final class WithoutScopePositionMatcher extends DefaultNodePositionMatche
     }
     return originalRange;
   }
+
+  /** Without its scope, a node may appear to begin on a later line than it really does. */
+  @Override
+  public boolean matchesOnlyNodesBeginningWithinLines() {
+    return false;
+  }
 }
@@ -22,9 +22,11 @@ import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.regex.Pattern;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -108,6 +110,42 @@ final class CLITest {
     assertThat(Files.readString(fooJavaFile)).contains("cloud9");
   }
 
+  @Test
+  void it_only_changes_the_changed_files() throws IOException {
+    String[] args =
+        new String[] {
+          "--dont-exit",
+          "--changed-files=module2/src/main/java/com/acme/util/Bar.java,missing/Gone.java",
+          workingRepoDir.toString()
+        };
+    Runner.run(List.of(Cloud9Changer.class), args);
+    assertThat(Files.readString(barJavaFile)).contains("cloud9");
+    assertThat(Files.readString(fooJavaFile)).doesNotContain("cloud9");
+  }
+
+  @Test
+  void it_only_changes_files_changed_since_git_ref() throws IOException, InterruptedException {
+    git("init", "-q");
+    git("add", "module1", "module2/src/main/java/com/acme/util/Bar.java");
+    git("-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "-q", "-m", "init");
+    Files.writeString(fooJavaFile, "class Foo {}");
+
+    String[] args = new String[] {"--dont-exit", "--since=HEAD", workingRepoDir.toString()};
+    Runner.run(List.of(Cloud9Changer.class), args);
+    assertThat(Files.readString(fooJavaFile)).contains("cloud9");
+    assertThat(Files.readString(barJavaFile)).doesNotContain("cloud9");
+    // untracked files count as changed, but the codemod still excludes tests
+    assertThat(Files.readString(testFile)).doesNotContain("cloud9");
+  }
+
+  private void git(final String... args) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>(List.of("git"));
+    command.addAll(List.of(args));
+    Process process =
+        new ProcessBuilder(command).directory(workingRepoDir.toFile()).inheritIO().start();
+    assertThat(process.waitFor()).isZero();
+  }
+
   /**
    * Runs the CLI with arguments that we know will cause it to fail, and asserts that the exit code
    * denotes failure and an error message is captured in the alternative stderr stream.
@@ -219,6 +257,83 @@ final class CLITest {
     assertThat(Files.notExists(tmpDir)).isTrue();
   }
 
+  @Test
+  void dry_run_keeps_changes_in_memory_without_copying() throws IOException {
+    Path normalCodetf = Files.createTempFile("normal", ".codetf");
+    Path dryRunCodetf = Files.createTempFile("dryrun", ".codetf");
+    CLI.DryRunTempDirCreationStrategy tmpDirStrategy =
+        () -> {
+          throw new AssertionError("the project shouldn't be copied");
+        };
+
+    String[] dryRunArgs = {
+      "--dry-run", "--output", dryRunCodetf.toString(), workingRepoDir.toString()
+    };
+    CLI cli =
+        new CLI(
+            dryRunArgs,
+            List.of(Ground0RegexChanger.class),
+            Clock.systemDefaultZone(),
+            new CLI.DefaultFileFinder(),
+            EncodingDetector.create(),
+            JavaParserFactory.newFactory(),
+            SourceDirectoryLister.createDefault(),
+            CodeTFReportGenerator.createDefault(),
+            tmpDirStrategy);
+    CommandLine commandLine = new CommandLine(cli).setCaseInsensitiveEnumValuesAllowed(true);
+    int code = commandLine.execute(dryRunArgs);
+    assertThat(code).isZero();
+    assertThat(Files.readString(notJavaFile)).isEqualTo("ground0");
+
+    String[] args = {"--dont-exit", "--output", normalCodetf.toString(), workingRepoDir.toString()};
+    Runner.run(List.of(Ground0RegexChanger.class), args);
+    assertThat(Files.readString(notJavaFile)).isEqualTo("cloud9");
+
+    ObjectMapper mapper = new ObjectMapper();
+    List<CodeTFResult> normalResults =
+        mapper.readValue(normalCodetf.toFile(), CodeTFReport.class).getResults();
+    List<CodeTFResult> dryRunResults =
+        mapper.readValue(dryRunCodetf.toFile(), CodeTFReport.class).getResults();
+    assertThat(dryRunResults.get(0).getChangeset()).hasSize(1);
+    assertThat(mapper.writeValueAsString(dryRunResults))
+        .isEqualTo(mapper.writeValueAsString(normalResults));
+  }
+
+  @Test
+  void report_generator_gets_the_codemod_results() throws IOException {
+    Path codetf = Files.createTempFile("codetf", ".json");
+    List<CodeTFResult> generatorResults = new ArrayList<>();
+    CodeTFReportGenerator reportGenerator =
+        (repositoryRoot, commandLine, sarifs, results, elapsed) -> {
+          generatorResults.addAll(results);
+          return CodeTFReportGenerator.createDefault()
+              .createReport(repositoryRoot, commandLine, sarifs, results, elapsed);
+        };
+
+    String[] args = {"--dont-exit", "--output", codetf.toString(), workingRepoDir.toString()};
+    CLI cli =
+        new CLI(
+            args,
+            List.of(Ground0RegexChanger.class),
+            Clock.systemDefaultZone(),
+            new CLI.DefaultFileFinder(),
+            EncodingDetector.create(),
+            JavaParserFactory.newFactory(),
+            SourceDirectoryLister.createDefault(),
+            reportGenerator,
+            () -> Files.createTempDirectory("dry-run-test"));
+    int code = new CommandLine(cli).setCaseInsensitiveEnumValuesAllowed(true).execute(args);
+    assertThat(code).isEqualTo(-1);
+
+    assertThat(generatorResults).hasSize(1);
+    assertThat(generatorResults.get(0).getChangeset()).hasSize(1);
+    ObjectMapper mapper = new ObjectMapper();
+    List<CodeTFResult> reportResults =
+        mapper.readValue(codetf.toFile(), CodeTFReport.class).getResults();
+    assertThat(mapper.writeValueAsString(reportResults))
+        .isEqualTo(mapper.writeValueAsString(generatorResults));
+  }
+
   @Test
   void file_finder_works() throws IOException {
     FileFinder finder = new CLI.DefaultFileFinder();
@@ -263,6 +378,27 @@ final class CLITest {
     }
   }
 
+  /** This codemod replaces "ground0" with "cloud9" in text files. */
+  @Codemod(
+      id = "org:java/ground0",
+      reviewGuidance = ReviewGuidance.MERGE_AFTER_REVIEW,
+      importance = Importance.LOW)
+  private static class Ground0RegexChanger extends RegexFileChanger {
+    private Ground0RegexChanger() {
+      super(Pattern.compile("ground0"), false, List.of(), UselessReportStrategy.INSTANCE);
+    }
+
+    @Override
+    public String getReplacementFor(final String matchingSnippet) {
+      return "cloud9";
+    }
+
+    @Override
+    public boolean supports(final Path file) {
+      return file.toString().endsWith(".txt");
+    }
+  }
+
   @Test
   void javaparser_factory_works() throws IOException {
     JavaParserFactory factory = JavaParserFactory.newFactory();
@@ -0,0 +1,66 @@
+package io.codemodder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.codemodder.codetf.CodeTFChangesetEntry;
+import io.codemodder.codetf.CodeTFReport;
+import io.codemodder.codetf.CodeTFReportGenerator;
+import io.codemodder.codetf.CodeTFResult;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for {@link CodeTFReportWriter}. */
+final class CodeTFReportWriterTest {
+
+  @Test
+  void it_writes_results_as_they_come(@TempDir final Path tmpDir) throws IOException {
+    Path outputFile = tmpDir.resolve("codetf.json");
+    try (CodeTFReportWriter writer = CodeTFReportWriter.open(outputFile)) {
+      writer.write(result("first", "Foo.java"));
+      writer.write(result("second", "Bar.java"));
+      CodeTFReport emptyReport =
+          CodeTFReportGenerator.createDefault()
+              .createReport(tmpDir, "--dry-run", List.of(), List.of(), 42L);
+      writer.finish(emptyReport.getRun());
+    }
+
+    CodeTFReport report = new ObjectMapper().readValue(outputFile.toFile(), CodeTFReport.class);
+    assertThat(report.getRun().getElapsed()).isEqualTo(42L);
+    assertThat(report.getResults())
+        .extracting(CodeTFResult::getCodemod)
+        .containsExactly("first", "second");
+    assertThat(report.getResults().get(1).getChangeset())
+        .extracting(CodeTFChangesetEntry::getPath, CodeTFChangesetEntry::getDiff)
+        .containsExactly(tuple("Bar.java", "--- diff"));
+  }
+
+  @Test
+  void it_deletes_unfinished_reports(@TempDir final Path tmpDir) throws IOException {
+    Path outputFile = tmpDir.resolve("codetf.json");
+    try (CodeTFReportWriter writer = CodeTFReportWriter.open(outputFile)) {
+      writer.write(result("first", "Foo.java"));
+    }
+    assertThat(outputFile).doesNotExist();
+  }
+
+  private static CodeTFResult result(final String id, final String path) {
+    return new CodeTFResult(
+        id,
+        "summary",
+        "description",
+        null,
+        null,
+        Set.of(),
+        List.of(),
+        Map.of(),
+        List.of(new CodeTFChangesetEntry(path, "--- diff", List.of())),
+        List.of());
+  }
+}
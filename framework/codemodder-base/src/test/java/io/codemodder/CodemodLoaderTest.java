@@ -81,6 +81,39 @@ final class CodemodLoaderTest {
         });
   }
 
+  @Codemod(
+      id = "test:java/cannot-be-created",
+      importance = Importance.LOW,
+      reviewGuidance = ReviewGuidance.MERGE_AFTER_CURSORY_REVIEW)
+  static class CannotBeCreated extends NoReportChanger {
+    @Inject
+    CannotBeCreated() {
+      throw new IllegalStateException("codemods that won't run shouldn't be created");
+    }
+  }
+
+  /** Confirm the codemods the regulator doesn't allow are never loaded. */
+  @Test
+  void it_only_loads_allowed_codemods(@TempDir Path tmpDir) throws IOException {
+    CodemodLoader loader =
+        new CodemodLoader(
+            List.of(ValidCodemod.class, CannotBeCreated.class),
+            CodemodRegulator.of(DefaultRuleSetting.DISABLED, List.of("pixee:java/id")),
+            tmpDir,
+            List.of("**"),
+            List.of(),
+            Files.list(tmpDir).toList(),
+            Map.of(),
+            List.of(),
+            null,
+            null,
+            null);
+
+    List<CodemodIdPair> codemods = loader.getCodemods();
+    assertThat(codemods, hasSize(1));
+    assertThat(codemods.get(0).getId(), equalTo("pixee:java/id"));
+  }
+
   @Codemod(
       id = "test:java/changes-file",
       reviewGuidance = ReviewGuidance.MERGE_AFTER_CURSORY_REVIEW,
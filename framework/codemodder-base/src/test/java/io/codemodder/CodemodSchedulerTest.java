@@ -0,0 +1,117 @@
+package io.codemodder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.codemodder.codetf.CodeTFResult;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link CodemodScheduler}. */
+final class CodemodSchedulerTest {
+
+  private final List<String> events = new CopyOnWriteArrayList<>();
+
+  @Test
+  void it_runs_disjoint_codemods_concurrently() {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    CodemodScheduler.Task a = task("a", Set.of(Path.of("A.java")), bothStarted);
+    CodemodScheduler.Task b = task("b", Set.of(Path.of("B.java")), bothStarted);
+
+    List<CodeTFResult> results = new CodemodScheduler(2).run(List.of(a, b));
+
+    // if they ran one after another, neither would have seen the other start
+    assertThat(events).containsOnly("a:concurrent", "b:concurrent");
+    assertThat(results).extracting(CodeTFResult::getCodemod).containsExactly("a", "b");
+  }
+
+  @Test
+  void it_runs_overlapping_codemods_in_order() {
+    CountDownLatch neverReleased = new CountDownLatch(2);
+    CodemodScheduler.Task a = task("a", Set.of(Path.of("A.java"), Path.of("C.java")), null);
+    CodemodScheduler.Task b = task("b", Set.of(Path.of("B.java")), null);
+    CodemodScheduler.Task c = task("c", Set.of(Path.of("C.java")), neverReleased);
+
+    List<CodeTFResult> results = new CodemodScheduler(-1).run(List.of(a, b, c));
+
+    assertThat(events.indexOf("a")).isLessThan(events.indexOf("c:alone"));
+    assertThat(results).extracting(CodeTFResult::getCodemod).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  void it_runs_exclusive_codemods_alone() {
+    CountDownLatch neverReleased = new CountDownLatch(2);
+    CodemodScheduler.Task a = task("a", Set.of(Path.of("A.java")), null);
+    CodemodScheduler.Task pom =
+        new CodemodScheduler.Task(
+            Set::of,
+            true,
+            () -> {
+              events.add("pom");
+              return List.of(result("pom"));
+            });
+    CodemodScheduler.Task b = task("b", Set.of(Path.of("B.java")), neverReleased);
+
+    List<CodeTFResult> results = new CodemodScheduler(-1).run(List.of(a, pom, b));
+
+    assertThat(events).containsExactly("a", "pom", "b:alone");
+    assertThat(results).extracting(CodeTFResult::getCodemod).containsExactly("a", "pom", "b");
+  }
+
+  @Test
+  void it_runs_serially_by_default() {
+    CodemodScheduler.Task a =
+        new CodemodScheduler.Task(
+            () -> {
+              throw new AssertionError("targets shouldn't be needed");
+            },
+            false,
+            () -> List.of(result("a")));
+
+    assertThat(new CodemodScheduler(1).run(List.of(a, a))).hasSize(2);
+  }
+
+  /**
+   * Create a task that records when it runs. If given a latch, it waits a short while for another
+   * task to count it down too, and records whether that happened.
+   */
+  private CodemodScheduler.Task task(
+      final String id, final Set<Path> targets, final CountDownLatch latch) {
+    return new CodemodScheduler.Task(
+        () -> targets,
+        false,
+        () -> {
+          if (latch == null) {
+            events.add(id);
+          } else {
+            latch.countDown();
+            try {
+              boolean concurrent = latch.await(1, TimeUnit.SECONDS);
+              events.add(id + (concurrent ? ":concurrent" : ":alone"));
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+          return List.of(result(id));
+        });
+  }
+
+  private static CodeTFResult result(final String id) {
+    return new CodeTFResult(
+        id,
+        "summary",
+        "description",
+        null,
+        null,
+        Set.of(),
+        List.of(),
+        Map.of(),
+        List.of(),
+        List.of());
+  }
+}
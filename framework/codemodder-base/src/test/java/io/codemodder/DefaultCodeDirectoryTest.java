@@ -8,6 +8,7 @@ import java.nio.file.Path;
 import java.util.Optional;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -55,6 +56,19 @@ final class DefaultCodeDirectoryTest {
     }
   }
 
+  @Test
+  void it_finds_the_first_file_when_several_match() throws IOException {
+    assertThat(codeDirectory.findFilesWithTrailingPath("file1.java"))
+        .contains(repoDir.resolve("my/other/test/file1.java"));
+
+    // the directory is only walked once, so it keeps answering from what it found then
+    Files.delete(repoDir.resolve("my/other/test/file1.java"));
+    assertThat(codeDirectory.findFilesWithTrailingPath("test/file1.java"))
+        .contains(repoDir.resolve("my/other/test/file1.java"));
+    assertThat(new DefaultCodeDirectory(repoDir).findFilesWithTrailingPath("file1.java"))
+        .contains(repoDir.resolve("src/main/file1.java"));
+  }
+
   private static Stream<Arguments> fileTests() {
     return Stream.of(
         Arguments.of("test/file1.java", "my/other/test/file1.java"),
@@ -63,6 +77,10 @@ final class DefaultCodeDirectoryTest {
         Arguments.of("main\\file1.java", "src/main/file1.java"),
         Arguments.of("src\\\\main\\file1.java", "src/main/file1.java"),
         Arguments.of("file2.java", "src/main/file2.java"),
+        Arguments.of("ile2.java", "src/main/file2.java"),
+        Arguments.of("ain/file1.java", "src/main/file1.java"),
+        Arguments.of("/main/file1.java", "src/main/file1.java"),
+        Arguments.of("main/", null),
         Arguments.of("file3.java", null));
   }
 }
@@ -22,6 +22,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -320,6 +324,98 @@ final class DefaultCodemodExecutorTest {
     assertThat(changeset.get(0)).satisfies(DefaultCodemodExecutorTest::isJavaFile1ChangedCorrectly);
   }
 
+  @Test
+  void it_uses_shared_worker_pool() {
+    ExecutorService workerPool = Executors.newSingleThreadExecutor();
+    try {
+      executor =
+          new DefaultCodemodExecutor(
+              repoDir,
+              includesEverything,
+              beforeAfterCodemod,
+              List.of(),
+              List.of(),
+              fileCache,
+              javaParserFacade,
+              encodingDetector,
+              -1,
+              -1,
+              -1,
+              workerPool,
+              CodemodResultCache.NONE,
+              FileOverlay.disk());
+
+      CodeTFResult result = executor.execute(List.of(javaFile1, javaFile2, javaFile3));
+      assertThat(result.getChangeset()).hasSize(2);
+
+      // the pool belongs to the run, so it should still be usable by the next codemod
+      assertThat(workerPool.isShutdown()).isFalse();
+      assertThat(executor.execute(List.of(javaFile1)).getChangeset()).isEmpty();
+    } finally {
+      workerPool.shutdown();
+    }
+  }
+
+  @Test
+  void it_only_skips_known_unchanged_files_for_codemods_that_depend_only_on_them() {
+    // a cache that says every file is one the codemod already found nothing to do in
+    CodemodResultCache everythingUnchanged =
+        new CodemodResultCache() {
+          @Override
+          public boolean isUnchanged(
+              final CodemodIdPair codemod, final Path file, final String contents) {
+            return true;
+          }
+
+          @Override
+          public void recordUnchanged(
+              final CodemodIdPair codemod, final Path file, final String contents) {}
+
+          @Override
+          public void save() {}
+        };
+    ExecutorService workerPool = Executors.newSingleThreadExecutor();
+    try {
+      // JavaParser codemods can depend on other files, so the cache can't be trusted for them
+      executor = createExecutor(beforeAfterCodemod, workerPool, everythingUnchanged);
+      assertThat(executor.execute(List.of(javaFile1, javaFile3)).getChangeset()).hasSize(2);
+
+      BeforeToAfterChanger fileLocalChanger =
+          new BeforeToAfterChanger() {
+            @Override
+            public boolean dependsOnlyOnFile() {
+              return true;
+            }
+          };
+      CodemodIdPair fileLocalCodemod = new CodemodIdPair("codemodder:java/id", fileLocalChanger);
+      executor = createExecutor(fileLocalCodemod, workerPool, everythingUnchanged);
+      assertThat(executor.execute(List.of(javaFile1, javaFile3)).getChangeset()).isEmpty();
+    } finally {
+      workerPool.shutdown();
+    }
+  }
+
+  private DefaultCodemodExecutor createExecutor(
+      final CodemodIdPair codemod,
+      final ExecutorService workerPool,
+      final CodemodResultCache resultCache) {
+    return new DefaultCodemodExecutor(
+        repoDir,
+        includesEverything,
+        codemod,
+        List.of(),
+        List.of(),
+        fileCache,
+        javaParserFacade,
+        encodingDetector,
+        -1,
+        -1,
+        -1,
+        workerPool,
+        resultCache,
+        FileOverlay.disk());
+  }
+
   @Test
   void it_respects_max_file_size() throws IOException {
     executor =
@@ -617,6 +713,21 @@ final class DefaultCodemodExecutorTest {
                 + " }");
   }
 
+  @Test
+  void it_gives_up_on_files_that_take_too_long() {
+    Path finished = Path.of("Finished.java");
+    Path hung = Path.of("Hung.java");
+    CompletableFuture<?> hungFuture = new CompletableFuture<>();
+    Map<Path, Future<?>> futures = new LinkedHashMap<>();
+    futures.put(finished, CompletableFuture.completedFuture(null));
+    futures.put(hung, hungFuture);
+
+    List<Path> unfinishedFiles = DefaultCodemodExecutor.awaitAll(futures, 0);
+
+    assertThat(unfinishedFiles).containsExactly(hung);
+    assertThat(hungFuture.isCancelled()).isTrue();
+  }
+
   private static void hasBeforeAfterCodemodMetadata(final CodeTFResult result) {
     assertThat(result.getCodemod()).isEqualTo("codemodder:java/id");
     assertThat(result.getDescription()).isEqualTo("before-after-description");
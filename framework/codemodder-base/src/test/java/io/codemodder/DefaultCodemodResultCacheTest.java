@@ -0,0 +1,109 @@
+package io.codemodder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class DefaultCodemodResultCacheTest {
+
+  private Path cacheDir;
+  private Path projectDir;
+  private CodemodIdPair codemod;
+
+  @BeforeEach
+  void setup(@TempDir final Path tmpDir) {
+    cacheDir = tmpDir.resolve("cache");
+    projectDir = tmpDir.resolve("project");
+    codemod = new CodemodIdPair("codemodder:java/id", new NothingToDoChanger());
+  }
+
+  @Test
+  void it_remembers_unchanged_files_between_runs() throws IOException {
+    Path file = projectDir.resolve("src/Foo.java");
+    CodemodResultCache firstRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    assertThat(firstRun.isUnchanged(codemod, file, "class Foo {}")).isFalse();
+    firstRun.recordUnchanged(codemod, file, "class Foo {}");
+    firstRun.save();
+
+    CodemodResultCache secondRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    assertThat(secondRun.isUnchanged(codemod, file, "class Foo {}")).isTrue();
+    assertThat(secondRun.isUnchanged(codemod, file, "class Foo { int i; }")).isFalse();
+    assertThat(secondRun.isUnchanged(codemod, projectDir.resolve("Foo.java"), "class Foo {}"))
+        .isFalse();
+    secondRun.save();
+
+    // the hit was carried forward, even though nothing new was recorded
+    CodemodResultCache thirdRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    assertThat(thirdRun.isUnchanged(codemod, file, "class Foo {}")).isTrue();
+  }
+
+  @Test
+  void it_keeps_files_a_partial_run_did_not_scan() throws IOException {
+    Path foo = projectDir.resolve("src/Foo.java");
+    Path bar = projectDir.resolve("src/Bar.java");
+    CodemodResultCache firstRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    firstRun.recordUnchanged(codemod, foo, "class Foo {}");
+    firstRun.recordUnchanged(codemod, bar, "class Bar {}");
+    firstRun.save();
+
+    // only Foo is scanned, and it's been changed since
+    CodemodResultCache partialRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    assertThat(partialRun.isUnchanged(codemod, foo, "class Foo { int i; }")).isFalse();
+    partialRun.save();
+
+    CodemodResultCache nextRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    assertThat(nextRun.isUnchanged(codemod, bar, "class Bar {}")).isTrue();
+    assertThat(nextRun.isUnchanged(codemod, foo, "class Foo {}")).isFalse();
+  }
+
+  @Test
+  void it_forgets_files_when_the_run_is_different() throws IOException {
+    Path file = projectDir.resolve("src/Foo.java");
+    CodemodResultCache firstRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    firstRun.recordUnchanged(codemod, file, "class Foo {}");
+    firstRun.save();
+
+    CodemodResultCache otherRun =
+        CodemodResultCache.inDirectory(cacheDir, projectDir, "different sarif");
+    assertThat(otherRun.isUnchanged(codemod, file, "class Foo {}")).isFalse();
+
+    CodemodIdPair otherCodemod = new CodemodIdPair("codemodder:java/other", codemod.getChanger());
+    CodemodResultCache sameRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    assertThat(sameRun.isUnchanged(otherCodemod, file, "class Foo {}")).isFalse();
+  }
+
+  @Test
+  void it_does_not_cache_codemods_whose_version_is_unknown() throws IOException {
+    // mocks are generated, so there's no class file to tell their version by
+    CodemodIdPair generatedCodemod =
+        new CodemodIdPair("codemodder:java/id", mock(CodeChanger.class));
+    Path file = projectDir.resolve("src/Foo.java");
+    CodemodResultCache firstRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    firstRun.recordUnchanged(generatedCodemod, file, "class Foo {}");
+    firstRun.save();
+
+    CodemodResultCache secondRun = CodemodResultCache.inDirectory(cacheDir, projectDir, "run");
+    assertThat(secondRun.isUnchanged(generatedCodemod, file, "class Foo {}")).isFalse();
+  }
+
+  private static final class NothingToDoChanger extends RawFileChanger {
+    private NothingToDoChanger() {
+      super(CodemodReporterStrategy.empty());
+    }
+
+    @Override
+    public CodemodFileScanningResult visitFile(final CodemodInvocationContext context) {
+      return CodemodFileScanningResult.none();
+    }
+
+    @Override
+    public boolean supports(final Path file) {
+      return true;
+    }
+  }
+}
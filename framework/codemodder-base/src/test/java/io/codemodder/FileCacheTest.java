@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -16,9 +18,11 @@ final class FileCacheTest {
   private Path file2;
   private Path file3;
   private FileCache fileCache;
+  private Path tmpDir;
 
   @BeforeEach
   void setup(@TempDir final Path tmpDir) throws IOException {
+    this.tmpDir = tmpDir;
     this.file1 = tmpDir.resolve("file1");
     this.file2 = tmpDir.resolve("file2");
     this.file3 = tmpDir.resolve("file3");
@@ -42,20 +46,43 @@ final class FileCacheTest {
   }
 
   @Test
-  void it_respects_max() throws IOException {
+  void it_evicts_least_recently_used_past_max() throws IOException {
     String file1Contents = fileCache.get(file1);
-    String file2Contents = fileCache.get(file2);
-
-    assertThat(file1Contents).isSameAs(file1Contents);
-    assertThat(file2Contents).isSameAs(file2Contents);
+    fileCache.get(file2);
 
+    // file2 is now the least recently used, so it's the one evicted for file3
+    assertThat(fileCache.get(file1)).isSameAs(file1Contents);
     String file3Contents = fileCache.get(file3);
-    assertThat(file3Contents).isEqualTo(fileCache.get(file3));
     assertThat(file3Contents).isEqualTo("3");
+    assertThat(fileCache.get(file3)).isSameAs(file3Contents);
+    assertThat(fileCache.get(file1)).isSameAs(file1Contents);
+
+    assertThat(fileCache.stats()).isEqualTo(new FileCache.Stats(3, 3, 1, 2, 2));
+  }
 
-    // confirm that the cache didn't retain
-    String file3ContentsAgain = fileCache.get(file3);
-    assertThat(file3Contents).isNotSameAs(file3ContentsAgain);
+  @Test
+  void it_respects_max_bytes() throws IOException {
+    Path asciiFile = tmpDir.resolve("ascii");
+    Path wideFile = tmpDir.resolve("wide");
+    Files.writeString(asciiFile, "12345");
+    Files.writeString(wideFile, "\u0100\u0101");
+    FileCache byteCache = FileCache.createWithMaxBytes(5, FileOverlay.disk());
+
+    byteCache.get(file1);
+    byteCache.get(file2);
+    assertThat(byteCache.stats().bytes()).isEqualTo(2);
+
+    // ASCII takes a byte per character, so this only fits once both of the others are evicted
+    byteCache.get(asciiFile);
+    assertThat(byteCache.stats()).isEqualTo(new FileCache.Stats(0, 3, 2, 1, 5));
+
+    // anything else takes two
+    byteCache.get(wideFile);
+    assertThat(byteCache.stats().bytes()).isEqualTo(4);
+
+    // files that have been read but evicted can still be overridden
+    byteCache.overrideEntry(file1, "x");
+    assertThat(byteCache.get(file1)).isEqualTo("x");
   }
 
   @Test
@@ -69,4 +96,111 @@ final class FileCacheTest {
     assertThrows(
         IllegalArgumentException.class, () -> fileCache.overrideEntry(file3, "irrelevant"));
   }
+
+  @Test
+  void it_detects_encoding_once_from_the_contents_first_read() throws IOException {
+    AtomicInteger detections = new AtomicInteger();
+    EncodingDetector encodingDetector =
+        new EncodingDetector() {
+          @Override
+          public Optional<String> detect(final Path file) {
+            throw new AssertionError("shouldn't read the file again");
+          }
+
+          @Override
+          public boolean detectsFromContents() {
+            return true;
+          }
+
+          @Override
+          public Optional<String> detect(final byte[] contents) {
+            detections.incrementAndGet();
+            return Optional.of(new String(contents));
+          }
+        };
+
+    fileCache.get(file1);
+    fileCache.overrideEntry(file1, "skadoodle");
+    assertThat(fileCache.getEncoding(file1, encodingDetector)).isEqualTo(Optional.of("1"));
+    assertThat(fileCache.getEncoding(file1, encodingDetector)).isEqualTo(Optional.of("1"));
+    assertThat(detections.get()).isEqualTo(1);
+  }
+
+  @Test
+  void it_asks_detectors_that_only_read_files_about_the_file() throws IOException {
+    EncodingDetector encodingDetector = file -> Optional.of(file.getFileName().toString());
+
+    fileCache.get(file1);
+    assertThat(fileCache.getEncoding(file1, encodingDetector))
+        .isEqualTo(Optional.of(file1.getFileName().toString()));
+  }
+
+  @Test
+  void it_detects_encoding_of_evicted_files_from_what_was_on_disk() throws IOException {
+    FileCache oneFileCache = FileCache.createDefault(1);
+    EncodingDetector encodingDetector = diskOrContentsDetector();
+
+    // an encoding detected before the file was evicted is kept
+    oneFileCache.get(file1);
+    assertThat(oneFileCache.getEncoding(file1, encodingDetector))
+        .isEqualTo(Optional.of("contents:1"));
+    oneFileCache.get(file2);
+    oneFileCache.overrideEntry(file1, "changed");
+    assertThat(oneFileCache.getEncoding(file1, encodingDetector))
+        .isEqualTo(Optional.of("contents:1"));
+
+    // otherwise, it's detected from the file, rather than from the changed contents
+    oneFileCache.get(file3);
+    oneFileCache.overrideEntry(file2, "changed");
+    assertThat(oneFileCache.getEncoding(file2, encodingDetector))
+        .isEqualTo(Optional.of("disk:2"));
+  }
+
+  @Test
+  void it_keeps_the_encoding_of_changed_files_however_many_are_evicted() throws IOException {
+    FileCache oneFileCache = FileCache.createDefault(1);
+    EncodingDetector encodingDetector = diskOrContentsDetector();
+
+    oneFileCache.get(file1);
+    assertThat(oneFileCache.getEncoding(file1, encodingDetector))
+        .isEqualTo(Optional.of("contents:1"));
+    oneFileCache.overrideEntry(file1, "changed");
+    oneFileCache.get(file2);
+
+    // evict more unchanged files than are remembered, so file2 is forgotten
+    for (int i = 0; i <= 10_000; i++) {
+      Path file = tmpDir.resolve("other" + i);
+      Files.writeString(file, "other");
+      oneFileCache.get(file);
+    }
+
+    oneFileCache.overrideEntry(file1, "changed again");
+    assertThat(oneFileCache.getEncoding(file1, encodingDetector))
+        .isEqualTo(Optional.of("contents:1"));
+
+    // a forgotten file can still be overridden, and its encoding is detected from the file
+    oneFileCache.overrideEntry(file2, "changed");
+    assertThat(oneFileCache.getEncoding(file2, encodingDetector))
+        .isEqualTo(Optional.of("disk:2"));
+  }
+
+  /** Detects the "encoding" as the contents it was detected from, and where they came from. */
+  private static EncodingDetector diskOrContentsDetector() {
+    return new EncodingDetector() {
+      @Override
+      public Optional<String> detect(final Path file) throws IOException {
+        return Optional.of("disk:" + Files.readString(file));
+      }
+
+      @Override
+      public boolean detectsFromContents() {
+        return true;
+      }
+
+      @Override
+      public Optional<String> detect(final byte[] contents) {
+        return Optional.of("contents:" + new String(contents));
+      }
+    };
+  }
 }
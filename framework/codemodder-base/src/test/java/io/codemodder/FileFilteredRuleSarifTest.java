@@ -0,0 +1,71 @@
+package io.codemodder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.contrastsecurity.sarif.Artifact;
+import com.contrastsecurity.sarif.ArtifactLocation;
+import com.contrastsecurity.sarif.Location;
+import com.contrastsecurity.sarif.PhysicalLocation;
+import com.contrastsecurity.sarif.Result;
+import com.contrastsecurity.sarif.Run;
+import com.contrastsecurity.sarif.SarifSchema210;
+import com.contrastsecurity.sarif.Tool;
+import com.contrastsecurity.sarif.ToolComponent;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link FileFilteredRuleSarif}. */
+final class FileFilteredRuleSarifTest {
+
+  @Test
+  void it_keeps_everything_but_the_results_in_other_files(@TempDir final Path repositoryRoot) {
+    Result inFoo = resultAt("src/main/java/Foo.java");
+    Result inBar = resultAt("src/main/java/Bar.java");
+    Run run =
+        new Run()
+            .withTool(new Tool().withDriver(new ToolComponent().withName("tool")))
+            .withArtifacts(
+                Set.of(
+                    new Artifact()
+                        .withLocation(new ArtifactLocation().withUri("src/main/java/Foo.java"))))
+            .withResults(List.of(inFoo, inBar));
+    SarifSchema210 sarif =
+        new SarifSchema210().withVersion(SarifSchema210.Version._2_1_0).withRuns(List.of(run));
+    RuleSarif ruleSarif = mock(RuleSarif.class);
+    when(ruleSarif.rawDocument()).thenReturn(sarif);
+
+    RuleSarif filtered =
+        new FileFilteredRuleSarif(
+            ruleSarif,
+            CodeDirectory.from(repositoryRoot),
+            List.of(repositoryRoot.resolve("src/main/java/Foo.java")));
+
+    SarifSchema210 filteredSarif = filtered.rawDocument();
+    assertThat(filteredSarif.getVersion()).isEqualTo(SarifSchema210.Version._2_1_0);
+    Run filteredRun = filteredSarif.getRuns().get(0);
+    assertThat(filteredRun.getTool().getDriver().getName()).isEqualTo("tool");
+    assertThat(filteredRun.getArtifacts())
+        .singleElement()
+        .extracting(artifact -> artifact.getLocation().getUri())
+        .isEqualTo("src/main/java/Foo.java");
+    assertThat(filteredRun.getResults()).containsExactly(inFoo);
+
+    // the document it wraps may be shared, so it's left alone
+    assertThat(run.getResults()).containsExactly(inFoo, inBar);
+  }
+
+  private static Result resultAt(final String uri) {
+    return new Result()
+        .withLocations(
+            List.of(
+                new Location()
+                    .withPhysicalLocation(
+                        new PhysicalLocation()
+                            .withArtifactLocation(new ArtifactLocation().withUri(uri)))));
+  }
+}
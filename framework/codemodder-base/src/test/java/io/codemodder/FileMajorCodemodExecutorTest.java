@@ -0,0 +1,231 @@
+package io.codemodder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import io.codemodder.codetf.CodeTFChangesetEntry;
+import io.codemodder.codetf.CodeTFResult;
+import io.codemodder.javaparser.JavaParserChanger;
+import io.codemodder.javaparser.JavaParserFacade;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for {@link FileMajorCodemodExecutor}. */
+final class FileMajorCodemodExecutorTest {
+
+  private Path repoDir;
+  private Path javaFile1;
+  private Path javaFile2;
+  private AtomicInteger parses;
+  private JavaParserFacade javaParserFacade;
+  private FileCache fileCache;
+  private ExecutorService workerPool;
+
+  @BeforeEach
+  void setup(final @TempDir Path tmpDir) throws IOException {
+    this.repoDir = tmpDir;
+    javaFile1 = repoDir.resolve("Test1.java");
+    Files.write(javaFile1, List.of("class Test1 {", "  void a() {}", "  void b() {}", "}"));
+    javaFile2 = repoDir.resolve("Test2.java");
+    Files.write(javaFile2, List.of("class Test2 {", "  void b() {}", "}"));
+
+    parses = new AtomicInteger();
+    JavaParserFacade delegate = JavaParserFacade.from(JavaParser::new);
+    javaParserFacade =
+        file -> {
+          parses.incrementAndGet();
+          return delegate.parseJavaFile(file);
+        };
+    fileCache = FileCache.createDefault();
+    workerPool = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  void shutdown() {
+    workerPool.shutdown();
+  }
+
+  @Test
+  void it_parses_once_and_reports_per_codemod() throws IOException {
+    List<DefaultCodemodExecutor> executors =
+        List.of(
+            createExecutor(new CodemodIdPair("codemodder:java/a", new RenamingChanger("a", "c"))),
+            createExecutor(new CodemodIdPair("codemodder:java/b", new RenamingChanger("b", "d"))));
+    FileMajorCodemodExecutor executor =
+        new FileMajorCodemodExecutor(
+            repoDir,
+            executors,
+            javaParserFacade,
+            fileCache,
+            EncodingDetector.create(),
+            FileOverlay.disk(),
+            workerPool);
+
+    List<CodeTFResult> results = executor.execute(List.of(javaFile1, javaFile2));
+
+    // each file should only have been parsed once, regardless of the number of codemods
+    assertThat(parses.get()).isEqualTo(2);
+
+    assertThat(results).hasSize(2);
+    CodeTFResult aResult = results.get(0);
+    assertThat(aResult.getCodemod()).isEqualTo("codemodder:java/a");
+    assertThat(aResult.getFailedFiles()).isEmpty();
+    assertThat(aResult.getChangeset()).hasSize(1);
+    assertThat(aResult.getChangeset().get(0).getDiff())
+        .isEqualTo(
+            "--- Test1.java\n"
+                + "+++ Test1.java\n"
+                + "@@ -1,4 +1,4 @@\n"
+                + " class Test1 {\n"
+                + "-  void a() {}\n"
+                + "+  void c() {}\n"
+                + "   void b() {}\n"
+                + " }");
+
+    // the second codemod's diff should be relative to the first codemod's changes
+    CodeTFResult bResult = results.get(1);
+    assertThat(bResult.getCodemod()).isEqualTo("codemodder:java/b");
+    List<CodeTFChangesetEntry> bChangeset = bResult.getChangeset();
+    assertThat(bChangeset).hasSize(2);
+    CodeTFChangesetEntry test1Entry =
+        bChangeset.stream().filter(e -> e.getPath().equals("Test1.java")).findFirst().orElseThrow();
+    assertThat(test1Entry.getDiff())
+        .isEqualTo(
+            "--- Test1.java\n"
+                + "+++ Test1.java\n"
+                + "@@ -1,4 +1,4 @@\n"
+                + " class Test1 {\n"
+                + "   void c() {}\n"
+                + "-  void b() {}\n"
+                + "+  void d() {}\n"
+                + " }");
+
+    // the files should reflect all the changes
+    assertThat(Files.readAllLines(javaFile1))
+        .containsExactly("class Test1 {", "  void c() {}", "  void d() {}", "}");
+    assertThat(Files.readAllLines(javaFile2))
+        .containsExactly("class Test2 {", "  void d() {}", "}");
+  }
+
+  @Test
+  void it_discards_changes_from_failing_codemod() throws IOException {
+    List<DefaultCodemodExecutor> executors =
+        List.of(
+            createExecutor(new CodemodIdPair("codemodder:java/a", new RenamingChanger("a", "c"))),
+            createExecutor(new CodemodIdPair("codemodder:java/fail", new FailingChanger())),
+            createExecutor(new CodemodIdPair("codemodder:java/b", new RenamingChanger("b", "d"))));
+    FileMajorCodemodExecutor executor =
+        new FileMajorCodemodExecutor(
+            repoDir,
+            executors,
+            javaParserFacade,
+            fileCache,
+            EncodingDetector.create(),
+            FileOverlay.disk(),
+            workerPool);
+
+    List<CodeTFResult> results = executor.execute(List.of(javaFile1));
+
+    assertThat(results.get(0).getChangeset()).hasSize(1);
+    assertThat(results.get(1).getFailedFiles()).containsExactly("Test1.java");
+    assertThat(results.get(2).getChangeset()).hasSize(1);
+    assertThat(Files.readAllLines(javaFile1))
+        .containsExactly("class Test1 {", "  void c() {}", "  void d() {}", "}");
+  }
+
+  @Test
+  void it_finds_target_files_on_the_worker_pool() {
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    RenamingChanger changer =
+        new RenamingChanger("a", "c") {
+          @Override
+          public boolean supports(final Path file) {
+            threads.add(Thread.currentThread().getName());
+            return super.supports(file);
+          }
+        };
+    FileMajorCodemodExecutor executor =
+        new FileMajorCodemodExecutor(
+            repoDir,
+            List.of(createExecutor(new CodemodIdPair("codemodder:java/a", changer))),
+            javaParserFacade,
+            fileCache,
+            EncodingDetector.create(),
+            FileOverlay.disk(),
+            workerPool);
+
+    List<CodeTFResult> results = executor.execute(List.of(javaFile1));
+
+    assertThat(results.get(0).getChangeset()).hasSize(1);
+    assertThat(threads).isNotEmpty().doesNotContain(Thread.currentThread().getName());
+  }
+
+  private DefaultCodemodExecutor createExecutor(final CodemodIdPair codemod) {
+    return new DefaultCodemodExecutor(
+        repoDir,
+        IncludesExcludes.any(),
+        codemod,
+        List.of(),
+        List.of(),
+        fileCache,
+        javaParserFacade,
+        EncodingDetector.create(),
+        -1,
+        -1,
+        -1);
+  }
+
+  /** Renames methods with a given name. */
+  private static class RenamingChanger extends JavaParserChanger {
+    private final String from;
+    private final String to;
+
+    RenamingChanger(final String from, final String to) {
+      super(new EmptyReporter());
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public CodemodFileScanningResult visit(
+        final CodemodInvocationContext context, final CompilationUnit cu) {
+      List<CodemodChange> changes = new ArrayList<>();
+      cu.findAll(MethodDeclaration.class).stream()
+          .filter(md -> md.getNameAsString().equals(from))
+          .forEach(
+              md -> {
+                md.setName(to);
+                changes.add(CodemodChange.from(md.getBegin().get().line));
+              });
+      return CodemodFileScanningResult.withOnlyChanges(changes);
+    }
+  }
+
+  /** Messes up the tree and then fails. */
+  private static class FailingChanger extends JavaParserChanger {
+    FailingChanger() {
+      super(new EmptyReporter());
+    }
+
+    @Override
+    public CodemodFileScanningResult visit(
+        final CodemodInvocationContext context, final CompilationUnit cu) {
+      cu.findAll(MethodDeclaration.class).forEach(md -> md.setName("broken"));
+      throw new IllegalStateException("intentional failure");
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package io.codemodder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+final class LazyLoadingRuleSarifTest {
+
+  @Test
+  void it_only_loads_once_when_used_from_many_threads() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    LazyLoadingRuleSarif ruleSarif =
+        new LazyLoadingRuleSarif(
+            () -> {
+              loads.incrementAndGet();
+              return RuleSarif.EMPTY;
+            });
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> rules = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        rules.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return ruleSarif.getRule();
+                }));
+      }
+      start.countDown();
+      for (Future<String> rule : rules) {
+        assertThat(rule.get()).isEmpty();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  void it_fails_when_nothing_is_loaded() {
+    LazyLoadingRuleSarif ruleSarif = new LazyLoadingRuleSarif(() -> null);
+    assertThatThrownBy(ruleSarif::getDriver).isInstanceOf(IllegalStateException.class);
+  }
+}
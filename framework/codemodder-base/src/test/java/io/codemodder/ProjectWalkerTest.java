@@ -0,0 +1,52 @@
+package io.codemodder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link ProjectWalker}. */
+final class ProjectWalkerTest {
+
+  @Test
+  void it_finds_files_and_source_directories_in_one_walk(@TempDir final Path projectDir)
+      throws IOException {
+    Path pom = write(projectDir.resolve("pom.xml"));
+    Path foo = write(projectDir.resolve("app/src/main/java/acme/Foo.java"));
+    Path fooTest = write(projectDir.resolve("app/src/test/java/acme/FooTest.java"));
+    Path readme = write(projectDir.resolve("app/README.md"));
+    Path bar = write(projectDir.resolve("lib/src/main/java/acme/Bar.java"));
+    Path targetPom = write(projectDir.resolve("lib/target/pom.xml"));
+    Path generated = write(projectDir.resolve("lib/target/src/main/java/acme/Gen.java"));
+    write(projectDir.resolve("lib/target/classes/acme/Bar.class"));
+    write(projectDir.resolve(".git/HEAD"));
+
+    IncludesExcludes includesExcludes =
+        IncludesExcludes.withSettings(projectDir.toFile(), List.of(), List.of("**/target/**"));
+    ProjectWalker.Contents contents = ProjectWalker.walk(projectDir, includesExcludes);
+
+    assertThat(contents.files()).containsExactly(readme, foo, fooTest, bar, targetPom, pom);
+
+    // the source directories are the same ones the lister finds
+    List<SourceDirectory> listed =
+        SourceDirectoryLister.createDefault()
+            .listJavaSourceDirectories(List.of(projectDir.toFile()));
+    assertThat(contents.sourceDirectories())
+        .extracting(SourceDirectory::path)
+        .containsExactlyElementsOf(listed.stream().map(SourceDirectory::path).toList());
+    assertThat(contents.sourceDirectories())
+        .extracting(SourceDirectory::files)
+        .containsExactly(
+            List.of(foo.toString()), List.of(bar.toString()), List.of(generated.toString()));
+  }
+
+  private static Path write(final Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, "");
+    return file;
+  }
+}
@@ -0,0 +1,76 @@
+package io.codemodder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.UnifiedDiffUtils;
+import com.github.difflib.patch.Patch;
+import com.github.difflib.patch.PatchFailedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link RegionDiff}. */
+final class RegionDiffTest {
+
+  private static final List<String> original =
+      IntStream.rangeClosed(1, 1000).mapToObj(i -> "line " + i).toList();
+
+  @Test
+  void it_matches_full_diff_for_reported_and_unreported_changes() throws PatchFailedException {
+    List<String> changed = new ArrayList<>(original);
+    changed.set(899, "changed 900");
+    changed.set(499, "changed 500");
+    changed.add(500, "added after 500");
+    changed.add(2, "import acme.Foo;");
+
+    // the added import isn't reported
+    Patch<String> patch = RegionDiff.diff(original, changed, List.of(500, 900));
+
+    assertThat(patch.applyTo(original)).isEqualTo(changed);
+    assertThat(unifiedDiff(patch)).isEqualTo(unifiedDiff(DiffUtils.diff(original, changed)));
+  }
+
+  @Test
+  void it_handles_changes_at_the_edges() throws PatchFailedException {
+    List<String> changed = new ArrayList<>(original);
+    changed.remove(999);
+    changed.set(0, "changed 1");
+
+    Patch<String> patch = RegionDiff.diff(original, changed, List.of(1));
+
+    assertThat(patch.applyTo(original)).isEqualTo(changed);
+    assertThat(RegionDiff.diff(original, original, List.of(5)).getDeltas()).isEmpty();
+  }
+
+  @Test
+  void it_always_produces_a_working_patch() throws PatchFailedException {
+    Random random = new Random(42);
+    for (int run = 0; run < 200; run++) {
+      List<String> changed = new ArrayList<>(original);
+      List<Integer> reported = new ArrayList<>();
+      int edits = 1 + random.nextInt(6);
+      for (int edit = 0; edit < edits; edit++) {
+        int line = random.nextInt(changed.size());
+        switch (random.nextInt(3)) {
+          case 0 -> changed.set(line, "changed " + run + " " + edit);
+          case 1 -> changed.add(line, "line " + (1 + random.nextInt(1000)));
+          default -> changed.remove(line);
+        }
+        if (random.nextBoolean()) {
+          reported.add(line + 1 + random.nextInt(5) - 2);
+        }
+      }
+
+      Patch<String> patch = RegionDiff.diff(original, changed, reported);
+
+      assertThat(patch.applyTo(original)).isEqualTo(changed);
+    }
+  }
+
+  private static List<String> unifiedDiff(final Patch<String> patch) {
+    return UnifiedDiffUtils.generateUnifiedDiff("Foo.java", "Foo.java", original, patch, 3);
+  }
+}
@@ -0,0 +1,45 @@
+package io.codemodder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.contrastsecurity.sarif.ArtifactLocation;
+import com.contrastsecurity.sarif.Location;
+import com.contrastsecurity.sarif.PhysicalLocation;
+import com.contrastsecurity.sarif.Result;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link SarifResultIndex}. */
+final class SarifResultIndexTest {
+
+  @Test
+  void it_finds_results_by_relative_and_absolute_uris(@TempDir final Path repositoryRoot) {
+    Result relative = resultAt("src/main/java/Foo.java");
+    Result unnormalized = resultAt("./src/main/java/../java/Foo.java");
+    Result absolute = resultAt(repositoryRoot.resolve("src/main/java/Foo.java").toUri().toString());
+    Result other = resultAt("src/main/java/Bar.java");
+    Result noLocation = new Result();
+
+    SarifResultIndex index =
+        SarifResultIndex.build(
+            repositoryRoot, List.of(relative, unnormalized, absolute, other, noLocation));
+
+    assertThat(index.get(repositoryRoot.resolve("src/main/java/Foo.java")))
+        .containsExactly(relative, unnormalized, absolute);
+    assertThat(index.get(repositoryRoot.resolve("src/main/java/Bar.java")))
+        .containsExactly(other);
+    assertThat(index.get(repositoryRoot.resolve("src/main/java/Baz.java"))).isEmpty();
+  }
+
+  private static Result resultAt(final String uri) {
+    return new Result()
+        .withLocations(
+            List.of(
+                new Location()
+                    .withPhysicalLocation(
+                        new PhysicalLocation()
+                            .withArtifactLocation(new ArtifactLocation().withUri(uri)))));
+  }
+}
@@ -3,6 +3,7 @@ package io.codemodder.javaparser;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import io.codemodder.SourceDirectory;
 import java.io.IOException;
@@ -11,6 +12,7 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.List;
+import javax.inject.Provider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -18,6 +20,8 @@ import org.junit.jupiter.api.io.TempDir;
 final class DefaultJavaParserFacadeTest {
 
   private DefaultJavaParserFacade parser;
+  private DefaultJavaParserFacade cachingParser;
+  private CompilationUnitCache cache;
   private Path javaFile;
 
   @BeforeEach
@@ -32,15 +36,17 @@ final class DefaultJavaParserFacadeTest {
                 """;
     Files.writeString(javaFile, javaCode);
     var srcDirs = List.of(SourceDirectory.createDefault(tmpDir, List.of(javaFile.toString())));
-    this.parser =
-        new DefaultJavaParserFacade(
-            () -> {
-              try {
-                return JavaParserFactory.newFactory().create(srcDirs);
-              } catch (IOException e) {
-                throw new UncheckedIOException(e);
-              }
-            });
+    Provider<JavaParser> parserProvider =
+        () -> {
+          try {
+            return JavaParserFactory.newFactory().create(srcDirs);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        };
+    this.parser = new DefaultJavaParserFacade(parserProvider);
+    this.cache = CompilationUnitCache.createDefault(1024 * 1024);
+    this.cachingParser = new DefaultJavaParserFacade(parserProvider, cache);
   }
 
   @Test
@@ -62,4 +68,46 @@ final class DefaultJavaParserFacadeTest {
     Files.delete(javaFile);
     assertThrows(NoSuchFileException.class, () -> parser.parseJavaFile(javaFile));
   }
+
+  @Test
+  void it_reuses_unchanged_compilation_units() throws IOException {
+    CompilationUnit cu = cachingParser.parseJavaFile(javaFile);
+    assertThat(cu.getStorage().orElseThrow().getPath()).isEqualTo(javaFile);
+    assertThat(cachingParser.parseJavaFile(javaFile)).isSameAs(cu);
+    assertThat(cache.stats()).isEqualTo(new CompilationUnitCache.Stats(1, 1, 0, 1));
+  }
+
+  @Test
+  void it_reparses_when_file_changes() throws IOException {
+    CompilationUnit cu = cachingParser.parseJavaFile(javaFile);
+    Files.writeString(javaFile, "package com.acme.util;\npublic class Bar {}\n");
+    CompilationUnit changed = cachingParser.parseJavaFile(javaFile);
+    assertThat(changed).isNotSameAs(cu);
+    assertThat(changed.getType(0).getNameAsString()).isEqualTo("Bar");
+  }
+
+  @Test
+  void it_reparses_when_tree_modified() throws IOException {
+    CompilationUnit cu = cachingParser.parseJavaFile(javaFile);
+    cu.getType(0).setName("Bar");
+    CompilationUnit reparsed = cachingParser.parseJavaFile(javaFile);
+    assertThat(reparsed).isNotSameAs(cu);
+    assertThat(reparsed.getType(0).getNameAsString()).isEqualTo("Foo");
+  }
+
+  @Test
+  void it_reparses_when_invalidated() throws IOException {
+    CompilationUnit cu = cachingParser.parseJavaFile(javaFile);
+    cachingParser.invalidate(javaFile);
+    assertThat(cachingParser.parseJavaFile(javaFile)).isNotSameAs(cu);
+    assertThat(cache.stats().missCount()).isEqualTo(2);
+  }
+
+  @Test
+  void it_fails_loudly_with_cache() throws IOException {
+    Files.writeString(javaFile, "bad code");
+    assertThrows(JavaParseException.class, () -> cachingParser.parseJavaFile(javaFile));
+    Files.delete(javaFile);
+    assertThrows(NoSuchFileException.class, () -> cachingParser.parseJavaFile(javaFile));
+  }
 }
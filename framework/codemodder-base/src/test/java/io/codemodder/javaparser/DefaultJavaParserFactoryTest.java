@@ -0,0 +1,87 @@
+package io.codemodder.javaparser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import io.codemodder.SourceDirectory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class DefaultJavaParserFactoryTest {
+
+  private List<SourceDirectory> sourceDirectories;
+  private Path fooFile;
+
+  @BeforeEach
+  void setup(@TempDir Path tmpDir) throws IOException {
+    Path module1 = tmpDir.resolve("module1/src/main/java");
+    fooFile = write(module1, "com/acme/Foo.java", "package com.acme; class Foo { Bar bar; }");
+    Path module2 = tmpDir.resolve("module2/src/main/java");
+    Path barFile =
+        write(module2, "com/acme/Bar.java", "package com.acme; class Bar {} class Helper {}");
+    Path module3 = tmpDir.resolve("module3/src/main/java");
+    Path bazFile = write(module3, "org/other/Baz.java", "package org.other; class Baz {}");
+    sourceDirectories =
+        List.of(
+            SourceDirectory.createDefault(module1, List.of(fooFile.toString())),
+            SourceDirectory.createDefault(module2, List.of(barFile.toString())),
+            SourceDirectory.createDefault(module3, List.of(bazFile.toString())));
+  }
+
+  @Test
+  void it_only_considers_source_directories_with_matching_packages() {
+    SourceTypeIndex index = SourceTypeIndex.build(sourceDirectories);
+    assertThat(index.candidateRoots("com.acme.Bar")).containsExactly(0, 1);
+    assertThat(index.candidateRoots("com.acme.Bar.Inner")).containsExactly(0, 1);
+    assertThat(index.candidateRoots("org.other.Baz")).containsExactly(2);
+    assertThat(index.candidateRoots("java.lang.String")).isEmpty();
+  }
+
+  @Test
+  void it_resolves_types_across_source_directories_from_many_threads() throws Exception {
+    JavaParserFactory factory = JavaParserFactory.newFactory();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<String>> resolved =
+          List.of(
+              executor.submit(() -> resolveFieldType(factory.create(sourceDirectories))),
+              executor.submit(() -> resolveFieldType(factory.create(sourceDirectories))));
+      for (Future<String> future : resolved) {
+        assertThat(future.get()).isEqualTo("com.acme.Bar");
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void it_resolves_types_declared_in_other_files() throws IOException {
+    Files.writeString(fooFile, "package com.acme; class Foo { Helper helper; }");
+    JavaParser parser = JavaParserFactory.newFactory().create(sourceDirectories);
+    assertThat(resolveFieldType(parser)).isEqualTo("com.acme.Helper");
+  }
+
+  private String resolveFieldType(final JavaParser parser) throws IOException {
+    CompilationUnit cu = parser.parse(fooFile).getResult().orElseThrow();
+    FieldDeclaration field = cu.findFirst(FieldDeclaration.class).orElseThrow();
+    return field.getElementType().resolve().describe();
+  }
+
+  private static Path write(final Path root, final String relativePath, final String code)
+      throws IOException {
+    Path file = root.resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, code);
+    return file;
+  }
+}
@@ -111,6 +111,7 @@ final class JavaParserCodemodRunnerTest {
     when(context.lineIncludesExcludes()).thenReturn(new LineIncludesExcludes.MatchesEverything());
     when(context.path()).thenReturn(javaFile);
     when(context.contents()).thenReturn(javaCode);
+    when(context.fileOverlay()).thenReturn(FileOverlay.disk());
     CodeDirectory dir = mock(CodeDirectory.class);
     when(dir.asPath()).thenReturn(tmpDir);
     when(context.codeDirectory()).thenReturn(dir);
@@ -146,6 +147,7 @@ final class JavaParserCodemodRunnerTest {
     when(context.lineIncludesExcludes()).thenReturn(new LineIncludesExcludes.MatchesEverything());
     when(context.path()).thenReturn(javaFile);
     when(context.contents()).thenReturn(javaCode);
+    when(context.fileOverlay()).thenReturn(FileOverlay.disk());
     CodeDirectory dir = mock(CodeDirectory.class);
     when(dir.asPath()).thenReturn(tmpDir);
     when(context.codeDirectory()).thenReturn(dir);
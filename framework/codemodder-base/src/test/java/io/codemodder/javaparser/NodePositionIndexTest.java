@@ -0,0 +1,61 @@
+package io.codemodder.javaparser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+final class NodePositionIndexTest {
+
+  private CompilationUnit cu;
+
+  @BeforeEach
+  void setup() {
+    cu =
+        StaticJavaParser.parse(
+            """
+            class Foo {
+              void a() {
+                Runtime.getRuntime().exec("ls");
+              }
+              void b() {
+                System.out.println("b");
+              }
+            }
+            """);
+  }
+
+  @Test
+  void it_finds_nodes_by_begin_line() {
+    NodePositionIndex index = NodePositionIndex.forType(cu, MethodCallExpr.class);
+    assertThat(index.all()).hasSize(3);
+
+    List<Node> onLine3 = index.beginningOnLine(3);
+    assertThat(onLine3)
+        .extracting(n -> ((MethodCallExpr) n).getNameAsString())
+        .containsExactly("exec", "getRuntime");
+    assertThat(index.beginningOnLine(4)).isEmpty();
+    assertThat(index.beginningBetweenLines(3, 6)).hasSize(3);
+    assertThat(index.beginningBetweenLines(6, 3)).isEmpty();
+  }
+
+  @Test
+  void it_shares_index_until_modified() {
+    NodePositionIndex index = NodePositionIndex.forType(cu, MethodDeclaration.class);
+    assertThat(NodePositionIndex.forType(cu, MethodDeclaration.class)).isSameAs(index);
+    assertThat(NodePositionIndex.forType(cu, MethodCallExpr.class)).isNotSameAs(index);
+
+    cu.findFirst(MethodDeclaration.class).orElseThrow().remove();
+
+    NodePositionIndex rebuilt = NodePositionIndex.forType(cu, MethodDeclaration.class);
+    assertThat(rebuilt).isNotSameAs(index);
+    assertThat(rebuilt.all()).hasSize(1);
+    assertThat(NodePositionIndex.forType(cu, MethodDeclaration.class)).isSameAs(rebuilt);
+  }
+}
@@ -12,8 +12,7 @@ final class AppScanRuleSarif implements RuleSarif {
 
   private final SarifSchema210 sarif;
   private final String messageText;
-  private final Map<Path, List<Result>> resultsCache;
-  private final AppScanSarifLocationData sarifLocationData;
+  private final Map<Path, List<Result>> resultsByPath;
 
   /**
    * Creates an {@link AppScanRuleSarif} that has already done the work of mapping AppScan SARIF
@@ -25,8 +24,8 @@ final class AppScanRuleSarif implements RuleSarif {
       final AppScanSarifLocationData sarifLocationData) {
     this.sarif = Objects.requireNonNull(sarif);
     this.messageText = Objects.requireNonNull(messageText);
-    this.resultsCache = new HashMap<>();
-    this.sarifLocationData = Objects.requireNonNull(sarifLocationData);
+    this.resultsByPath =
+        indexResultsByPath(sarif, messageText, Objects.requireNonNull(sarifLocationData));
   }
 
   @Override
@@ -45,28 +44,42 @@ final class AppScanRuleSarif implements RuleSarif {
    */
   @Override
   public List<Result> getResultsByLocationPath(final Path path) {
+    return resultsByPath.getOrDefault(path, List.of());
+  }
 
-    Map<Path, Set<Integer>> artifactLocationIndices =
-        sarifLocationData.getArtifactLocationIndices();
-    return resultsCache.computeIfAbsent(
-        path,
-        p ->
-            sarif.getRuns().stream()
-                .flatMap(run -> run.getResults().stream())
-                .filter(result -> result.getMessage().getText().equals(messageText))
-                .filter(
-                    result ->
-                        artifactLocationIndices.get(path) != null
-                            && artifactLocationIndices
-                                .getOrDefault(path, Set.of())
-                                .contains(
-                                    result
-                                        .getLocations()
-                                        .get(0)
-                                        .getPhysicalLocation()
-                                        .getArtifactLocation()
-                                        .getIndex()))
-                .toList());
+  /**
+   * Index the results for this rule by the source files their artifact locations were mapped to, so
+   * lookups don't need to scan every result.
+   */
+  private static Map<Path, List<Result>> indexResultsByPath(
+      final SarifSchema210 sarif,
+      final String messageText,
+      final AppScanSarifLocationData sarifLocationData) {
+    Map<Integer, List<Path>> pathsByArtifactIndex = new HashMap<>();
+    for (var entry : sarifLocationData.getArtifactLocationIndices().entrySet()) {
+      for (Integer index : entry.getValue()) {
+        pathsByArtifactIndex.computeIfAbsent(index, k -> new ArrayList<>()).add(entry.getKey());
+      }
+    }
+    Map<Path, List<Result>> resultsByPath = new HashMap<>();
+    sarif.getRuns().stream()
+        .flatMap(run -> run.getResults().stream())
+        .filter(result -> result.getMessage().getText().equals(messageText))
+        .forEach(
+            result -> {
+              Integer artifactIndex =
+                  result
+                      .getLocations()
+                      .get(0)
+                      .getPhysicalLocation()
+                      .getArtifactLocation()
+                      .getIndex();
+              for (Path path : pathsByArtifactIndex.getOrDefault(artifactIndex, List.of())) {
+                resultsByPath.computeIfAbsent(path, k -> new ArrayList<>()).add(result);
+              }
+            });
+    resultsByPath.replaceAll((path, results) -> List.copyOf(results));
+    return Map.copyOf(resultsByPath);
   }
 
   @Override
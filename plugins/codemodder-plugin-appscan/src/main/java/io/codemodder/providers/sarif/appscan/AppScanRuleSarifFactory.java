@@ -5,6 +5,7 @@ import io.codemodder.CodeDirectory;
 import io.codemodder.RuleSarif;
 import io.codemodder.RuleSarifFactory;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** A factory for building {@link AppScanRuleSarif}s. */
 public final class AppScanRuleSarifFactory implements RuleSarifFactory {
@@ -13,7 +14,7 @@ public final class AppScanRuleSarifFactory implements RuleSarifFactory {
   private final Map<SarifSchema210, AppScanSarifLocationData> sarifLocationDataCache;
 
   public AppScanRuleSarifFactory() {
-    this.sarifLocationDataCache = new HashMap<>();
+    this.sarifLocationDataCache = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -24,11 +25,9 @@ public final class AppScanRuleSarifFactory implements RuleSarifFactory {
       final SarifSchema210 sarif,
       final CodeDirectory codeDirectory) {
     if (AppScanRuleSarif.toolName.equals(toolName)) {
-      AppScanSarifLocationData sarifLocationData = sarifLocationDataCache.get(sarif);
-      if (sarifLocationData == null) {
-        sarifLocationData = new AppScanSarifLocationData(sarif, codeDirectory);
-        sarifLocationDataCache.put(sarif, sarifLocationData);
-      }
+      AppScanSarifLocationData sarifLocationData =
+          sarifLocationDataCache.computeIfAbsent(
+              sarif, s -> new AppScanSarifLocationData(s, codeDirectory));
       return Optional.of(new AppScanRuleSarif(messageText, sarif, sarifLocationData));
     }
     return Optional.empty();
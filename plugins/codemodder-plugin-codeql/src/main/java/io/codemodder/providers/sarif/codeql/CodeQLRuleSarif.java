@@ -3,30 +3,46 @@ package io.codemodder.providers.sarif.codeql;
 import com.contrastsecurity.sarif.*;
 import io.codemodder.CodeDirectory;
 import io.codemodder.RuleSarif;
-import java.io.IOException;
-import java.nio.file.Files;
+import io.codemodder.SarifResultIndex;
 import java.nio.file.Path;
 import java.util.*;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /** {@inheritDoc} An implementation of the {@link RuleSarif} for SARIFs produced by CodeQL. */
 public final class CodeQLRuleSarif implements RuleSarif {
 
   private final SarifSchema210 sarif;
   private final String ruleId;
-  private final Map<Path, List<Result>> resultsCache;
-  private final Path repositoryRoot;
+  private final SarifResultIndex resultsByPath;
 
   public CodeQLRuleSarif(
       final String ruleId, final SarifSchema210 sarif, final CodeDirectory codeDirectory) {
+    this(
+        ruleId,
+        sarif,
+        sarif.getRuns().stream()
+            .flatMap(
+                run ->
+                    run.getResults().stream()
+                        .filter(result -> ruleId.equals(extractRuleId(result, run))))
+            .toList(),
+        codeDirectory);
+  }
+
+  /**
+   * @param ruleResults the results in the document for the given rule, if they've already been
+   *     found
+   */
+  public CodeQLRuleSarif(
+      final String ruleId,
+      final SarifSchema210 sarif,
+      final List<Result> ruleResults,
+      final CodeDirectory codeDirectory) {
     this.sarif = Objects.requireNonNull(sarif);
     this.ruleId = Objects.requireNonNull(ruleId);
-    this.repositoryRoot = codeDirectory.asPath();
-    this.resultsCache = new HashMap<>();
+    this.resultsByPath = SarifResultIndex.build(codeDirectory.asPath(), ruleResults);
   }
 
-  private String extractRuleId(final Result result, final Run run) {
+  private static String extractRuleId(final Result result, final Run run) {
     if (result.getRuleId() == null) {
       var toolIndex = result.getRule().getToolComponent().getIndex();
       var ruleIndex = result.getRule().getIndex();
@@ -50,39 +66,7 @@ public final class CodeQLRuleSarif implements RuleSarif {
 
   @Override
   public List<Result> getResultsByLocationPath(final Path path) {
-    if (resultsCache.containsKey(path)) {
-      return resultsCache.get(path);
-    }
-    List<Result> results =
-        sarif.getRuns().stream()
-            .flatMap(
-                run ->
-                    run.getResults().stream()
-                        .filter(result -> ruleId.equals(extractRuleId(result, run))))
-            .filter(
-                result -> {
-                  String uri =
-                      result
-                          .getLocations()
-                          .get(0)
-                          .getPhysicalLocation()
-                          .getArtifactLocation()
-                          .getUri();
-                  try {
-                    Path uriPath = Path.of(uri);
-                    if (Files.exists(repositoryRoot.resolve(uriPath))) {
-                      return Files.isSameFile(path, repositoryRoot.resolve(uriPath));
-                    } else {
-                      return false;
-                    }
-                  } catch (IOException e) { // this should never happen
-                    logger.error("Problem inspecting SARIF to find code results", e);
-                    return false;
-                  }
-                })
-            .toList();
-    resultsCache.put(path, results);
-    return results;
+    return resultsByPath.get(path);
   }
 
   @Override
@@ -101,6 +85,4 @@ public final class CodeQLRuleSarif implements RuleSarif {
   }
 
   static final String toolName = "CodeQL";
-
-  private static final Logger logger = LoggerFactory.getLogger(CodeQLRuleSarif.class);
 }
@@ -1,9 +1,11 @@
 package io.codemodder.providers.sarif.codeql;
 
+import com.contrastsecurity.sarif.Result;
 import com.contrastsecurity.sarif.SarifSchema210;
 import io.codemodder.CodeDirectory;
 import io.codemodder.RuleSarif;
 import io.codemodder.RuleSarifFactory;
+import java.util.List;
 import java.util.Optional;
 
 /** A factory for building {@link CodeQLRuleSarif}s. */
@@ -21,4 +23,18 @@ public final class CodeQLRuleSarifFactory implements RuleSarifFactory {
     }
     return Optional.empty();
   }
+
+  @Override
+  public Optional<RuleSarif> build(
+      final String toolName,
+      final String rule,
+      final String messageText,
+      final SarifSchema210 sarif,
+      final List<Result> ruleResults,
+      final CodeDirectory codeDirectory) {
+    if (CodeQLRuleSarif.toolName.equals(toolName)) {
+      return Optional.of(new CodeQLRuleSarif(rule, sarif, ruleResults, codeDirectory));
+    }
+    return Optional.empty();
+  }
 }
@@ -0,0 +1,70 @@
+package io.codemodder.providers.sarif.codeql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.contrastsecurity.sarif.Result;
+import io.codemodder.*;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class CodeQLSarifParsingTest {
+
+  private static final Path sarifFile =
+      Path.of("src/test/resources/conflicting-sarifs/codeql-0.sarif");
+
+  private static final Path calendarTag =
+      Path.of(
+          "app/src/main/java/org/apache/roller/weblogger/ui/core/tags/calendar",
+          "CalendarTag.java");
+
+  @Test
+  void it_skips_flows_unless_asked(@TempDir final Path tempDir) {
+    RuleSarif withoutFlows = parseXss(SarifParser.create(false), tempDir);
+    RuleSarif withFlows = parseXss(SarifParser.create(true), tempDir);
+
+    List<Result> resultsWithoutFlows =
+        withoutFlows.getResultsByLocationPath(tempDir.resolve(calendarTag));
+    assertThat(resultsWithoutFlows).hasSize(7).allMatch(result -> result.getCodeFlows() == null);
+    assertThat(withoutFlows.getRegionsFromResultsByRule(tempDir.resolve(calendarTag)))
+        .isEqualTo(withFlows.getRegionsFromResultsByRule(tempDir.resolve(calendarTag)));
+    assertThat(withFlows.getResultsByLocationPath(tempDir.resolve(calendarTag)))
+        .allMatch(result -> result.getCodeFlows().size() == 4);
+  }
+
+  @Test
+  void it_parses_many_files(@TempDir final Path tempDir) {
+    List<Path> sarifFiles =
+        List.of(
+            sarifFile,
+            Path.of("src/test/resources/conflicting-sarifs/codeql-1.sarif"),
+            Path.of("src/test/resources/conflicting-sarifs/codeql-2.sarif"));
+    List<RuleSarif> serial =
+        sarifFiles.stream()
+            .flatMap(
+                file ->
+                    SarifParser.create()
+                        .parseIntoMap(List.of(file), CodeDirectory.from(tempDir))
+                        .get("CodeQL")
+                        .stream())
+            .toList();
+
+    List<RuleSarif> parallel =
+        SarifParser.create().parseIntoMap(sarifFiles, CodeDirectory.from(tempDir)).get("CodeQL");
+
+    assertThat(parallel)
+        .extracting(RuleSarif::getRule)
+        .containsExactlyElementsOf(serial.stream().map(RuleSarif::getRule).toList());
+  }
+
+  private static RuleSarif parseXss(final SarifParser parser, final Path tempDir) {
+    Map<String, List<RuleSarif>> ruleSarifs =
+        parser.parseIntoMap(List.of(sarifFile), CodeDirectory.from(tempDir));
+    return ruleSarifs.get("CodeQL").stream()
+        .filter(ruleSarif -> "java/xss".equals(ruleSarif.getRule()))
+        .findFirst()
+        .orElseThrow();
+  }
+}
@@ -2,6 +2,7 @@ package io.codemodder.plugins.maven;
 
 import io.codemodder.DependencyGAV;
 import io.codemodder.DependencyUpdateResult;
+import io.codemodder.FileOverlay;
 import io.codemodder.codetf.CodeTFChangesetEntry;
 import io.codemodder.plugins.maven.operator.POMDocument;
 import io.codemodder.plugins.maven.operator.POMOperator;
@@ -29,6 +30,9 @@ final class DefaultPOMDependencyUpdater implements POMDependencyUpdater {
 
   private final CodeTFGenerator codeTFGenerator;
 
+  /** Where the POM files are read from, so changes written through the modifier are seen. */
+  private final FileOverlay fileOverlay;
+
   private List<CodeTFChangesetEntry> changesets;
 
   private List<DependencyGAV> skippedDependencies;
@@ -51,9 +55,34 @@ final class DefaultPOMDependencyUpdater implements POMDependencyUpdater {
       final CodeTFGenerator codeTFGenerator,
       final PomFileFinder pomFileFinder,
       final MavenProvider.PomModifier pomModifier) {
+    this(codeTFGenerator, pomFileFinder, pomModifier, FileOverlay.disk());
+  }
+
+  /**
+   * Constructs a POMDependencyUpdater that reads POM files through the given overlay.
+   *
+   * @param codeTFGenerator The CodeTFGenerator for generating CodeTFChangesetEntries.
+   * @param pomFileFinder The PomFileFinder for locating POM files.
+   * @param pomModifier The MavenProvider.PomModifier for modifying POM files.
+   * @param fileOverlay The FileOverlay the POM files are read from.
+   */
+  DefaultPOMDependencyUpdater(
+      final CodeTFGenerator codeTFGenerator,
+      final PomFileFinder pomFileFinder,
+      final MavenProvider.PomModifier pomModifier,
+      final FileOverlay fileOverlay) {
     this.pomFileFinder = Objects.requireNonNull(pomFileFinder);
     this.pomModifier = Objects.requireNonNull(pomModifier);
     this.codeTFGenerator = Objects.requireNonNull(codeTFGenerator);
+    this.fileOverlay = Objects.requireNonNull(fileOverlay);
+  }
+
+  /** The poms are written to the overlay in place of the modifier, so the project isn't touched. */
+  @Override
+  public Optional<POMDependencyUpdater> withFileOverlay(final FileOverlay fileOverlay) {
+    return Optional.of(
+        new DefaultPOMDependencyUpdater(
+            codeTFGenerator, pomFileFinder, fileOverlay::write, fileOverlay));
   }
 
   /**
@@ -80,7 +109,7 @@ final class DefaultPOMDependencyUpdater implements POMDependencyUpdater {
     }
 
     final Path pomFile = maybePomFile.get();
-    final POMOperator pomOperator = new POMOperator(pomFile, projectDir);
+    final POMOperator pomOperator = new POMOperator(pomFile, projectDir, fileOverlay);
 
     changesets = new ArrayList<>();
     skippedDependencies = new ArrayList<>();
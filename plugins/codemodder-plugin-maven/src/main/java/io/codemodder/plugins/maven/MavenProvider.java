@@ -6,6 +6,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.slf4j.Logger;
@@ -57,10 +60,32 @@ public final class MavenProvider implements ProjectProvider {
   private final POMDependencyUpdater pomDependencyUpdater;
   private final PomFileFinder pomFileFinder;
 
+  /** Where the poms are read from. */
+  private final FileOverlay fileOverlay;
+
+  /**
+   * The dependencies found for each pom, which are the same for every file it builds, so they're
+   * only calculated once until a pom is updated.
+   */
+  private final Map<Path, Collection<DependencyGAV>> dependenciesByPom;
+
+  /** Keeps poms from being read for the cache while they're being updated. */
+  private final ReadWriteLock pomLock;
+
   MavenProvider(
       final PomFileFinder pomFileFinder, final POMDependencyUpdater pomDependencyUpdater) {
+    this(pomFileFinder, pomDependencyUpdater, FileOverlay.disk());
+  }
+
+  MavenProvider(
+      final PomFileFinder pomFileFinder,
+      final POMDependencyUpdater pomDependencyUpdater,
+      final FileOverlay fileOverlay) {
     this.pomFileFinder = Objects.requireNonNull(pomFileFinder);
     this.pomDependencyUpdater = Objects.requireNonNull(pomDependencyUpdater);
+    this.fileOverlay = Objects.requireNonNull(fileOverlay);
+    this.dependenciesByPom = new ConcurrentHashMap<>();
+    this.pomLock = new ReentrantReadWriteLock();
   }
 
   MavenProvider(
@@ -101,20 +126,53 @@ public final class MavenProvider implements ProjectProvider {
         new DefaultArtifactInjectionPositionFinder());
   }
 
+  /**
+   * Finds the nearest pom.xml by walking up from the file's directory. What's found for each
+   * directory is remembered, so the files in a directory, and the directories under it, don't walk
+   * the file system again.
+   */
   @VisibleForTesting
   static class DefaultPomFileFinder implements PomFileFinder {
+
+    private final Map<DirectoryInProject, Optional<Path>> pomsByDirectory =
+        new ConcurrentHashMap<>();
+
     @Override
     public Optional<Path> findForFile(final Path projectDir, final Path file) throws IOException {
-      Path parent = file.getParent();
-      while (parent != null && !Files.isSameFile(projectDir.getParent(), parent)) {
-        Path pomPath = parent.resolve("pom.xml");
-        if (Files.exists(pomPath)) {
-          return Optional.of(pomPath);
-        }
-        parent = parent.getParent();
+      return findForDirectory(projectDir, file.getParent());
+    }
+
+    private Optional<Path> findForDirectory(final Path projectDir, final Path directory)
+        throws IOException {
+      if (directory == null) {
+        return Optional.empty();
       }
-      return Optional.empty();
+      DirectoryInProject key = new DirectoryInProject(projectDir, directory);
+      Optional<Path> pom = pomsByDirectory.get(key);
+      if (pom != null) {
+        return pom;
+      }
+      if (Files.isSameFile(projectDir.getParent(), directory)) {
+        pom = Optional.empty();
+      } else {
+        Path pomPath = directory.resolve("pom.xml");
+        pom =
+            Files.exists(pomPath)
+                ? Optional.of(pomPath)
+                : findForDirectory(projectDir, directory.getParent());
+      }
+      pomsByDirectory.put(key, pom);
+      return pom;
     }
+
+    private record DirectoryInProject(Path projectDir, Path directory) {}
+  }
+
+  @Override
+  public Optional<ProjectProvider> withFileOverlay(final FileOverlay fileOverlay) {
+    return pomDependencyUpdater
+        .withFileOverlay(fileOverlay)
+        .map(updater -> new MavenProvider(pomFileFinder, updater, fileOverlay));
   }
 
   /**
@@ -127,7 +185,27 @@ public final class MavenProvider implements ProjectProvider {
     String dependenciesStr =
         dependencies.stream().map(DependencyGAV::toString).collect(Collectors.joining(","));
     LOG.trace("Updating dependencies for {} in {}: {}", file, projectDir, dependenciesStr);
-    return pomDependencyUpdater.execute(projectDir, file, dependencies);
+    pomLock.writeLock().lock();
+    try {
+      DependencyUpdateResult result = pomDependencyUpdater.execute(projectDir, file, dependencies);
+      if (!result.packageChanges().isEmpty() || !result.erroredFiles().isEmpty()) {
+        // a child pom's dependencies come from its parents too, so forget them all
+        dependenciesByPom.clear();
+      }
+      return result;
+    } finally {
+      pomLock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Optional<Path> findManifest(final Path projectDir, final Path file) {
+    try {
+      return pomFileFinder.findForFile(projectDir, file);
+    } catch (IOException e) {
+      LOG.warn("Couldn't find the pom for {}", file, e);
+      return Optional.empty();
+    }
   }
 
   @Override
@@ -140,14 +218,28 @@ public final class MavenProvider implements ProjectProvider {
       }
 
       final Path pomFile = maybePomFile.get();
-      final POMOperator pomOperator = new POMOperator(pomFile, projectDir);
-
-      return pomOperator.getAllFoundDependencies();
+      pomLock.readLock().lock();
+      try {
+        return dependenciesByPom.computeIfAbsent(
+            pomFile, pom -> findAllDependencies(projectDir, pom));
+      } finally {
+        pomLock.readLock().unlock();
+      }
     } catch (Exception e) {
       LOG.warn("Not all Maven dependencies could be found", e);
     }
     return Collections.emptyList();
   }
 
+  private Collection<DependencyGAV> findAllDependencies(final Path projectDir, final Path pomFile) {
+    try {
+      final POMOperator pomOperator = new POMOperator(pomFile, projectDir, fileOverlay);
+      return List.copyOf(pomOperator.getAllFoundDependencies());
+    } catch (Exception e) {
+      LOG.warn("Not all Maven dependencies could be found", e);
+      return List.of();
+    }
+  }
+
   private static final Logger LOG = LoggerFactory.getLogger(MavenProvider.class);
 }
@@ -2,10 +2,20 @@ package io.codemodder.plugins.maven;
 
 import io.codemodder.DependencyGAV;
 import io.codemodder.DependencyUpdateResult;
+import io.codemodder.FileOverlay;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
 
 interface POMDependencyUpdater {
 
   DependencyUpdateResult execute(Path projectDir, Path file, List<DependencyGAV> dependencies);
+
+  /**
+   * Return an updater that reads and writes the poms through the given overlay, but is otherwise
+   * the same as this one, or empty if this updater can only work with the files on disk.
+   */
+  default Optional<POMDependencyUpdater> withFileOverlay(final FileOverlay fileOverlay) {
+    return Optional.empty();
+  }
 }
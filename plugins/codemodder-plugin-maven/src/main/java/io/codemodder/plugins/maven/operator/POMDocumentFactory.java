@@ -1,5 +1,6 @@
 package io.codemodder.plugins.maven.operator;
 
+import io.codemodder.FileOverlay;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -55,6 +56,26 @@ class POMDocumentFactory {
     return load(fileUrl);
   }
 
+  /**
+   * Loads a POM document from the provided file, as it currently is in the given overlay.
+   *
+   * @param filePath The file representing the POM document.
+   * @param fileOverlay The overlay holding the current contents of the file.
+   * @return A new instance of {@link POMDocument} representing the loaded POM.
+   * @throws IOException If an I/O error occurs while reading the file.
+   * @throws DocumentException If an error occurs while parsing the POM document.
+   * @throws URISyntaxException If there is an issue with the URI syntax.
+   */
+  public static POMDocument load(Path filePath, FileOverlay fileOverlay)
+      throws IOException, DocumentException, URISyntaxException {
+    byte[] originalPom = fileOverlay.readAllBytes(filePath);
+
+    SAXReader saxReader = new SAXReader();
+    Document pomDocument = saxReader.read(new ByteArrayInputStream(originalPom));
+
+    return new POMDocument(originalPom, filePath.toUri().toURL(), pomDocument);
+  }
+
   /**
    * Loads a POM document from the provided URL.
    *
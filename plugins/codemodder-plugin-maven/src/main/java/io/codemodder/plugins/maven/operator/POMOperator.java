@@ -2,6 +2,7 @@ package io.codemodder.plugins.maven.operator;
 
 import com.github.zafarkhaja.semver.Version;
 import io.codemodder.DependencyGAV;
+import io.codemodder.FileOverlay;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
@@ -18,6 +19,11 @@ public class POMOperator {
     this.pomScanner = new POMScanner(pomFile, projectDir);
   }
 
+  /** Create an operator that reads the POMs as they currently are in the given overlay. */
+  public POMOperator(final Path pomFile, final Path projectDir, final FileOverlay fileOverlay) {
+    this.pomScanner = new POMScanner(pomFile, projectDir, fileOverlay);
+  }
+
   public POMScanner getPomScanner() {
     return pomScanner;
   }
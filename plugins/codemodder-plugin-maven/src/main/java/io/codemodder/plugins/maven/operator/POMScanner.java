@@ -1,5 +1,6 @@
 package io.codemodder.plugins.maven.operator;
 
+import io.codemodder.FileOverlay;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -29,12 +30,20 @@ class POMScanner {
 
   private final Path originalPath;
   private final Path topLevelDirectory;
+  private final FileOverlay fileOverlay;
 
   private Path lastPath;
 
   public POMScanner(final Path originalPath, final Path topLevelDirectory) {
+    this(originalPath, topLevelDirectory, FileOverlay.disk());
+  }
+
+  /** Create a scanner that reads the POMs as they currently are in the given overlay. */
+  public POMScanner(
+      final Path originalPath, final Path topLevelDirectory, final FileOverlay fileOverlay) {
     this.originalPath = originalPath;
     this.topLevelDirectory = topLevelDirectory;
+    this.fileOverlay = Objects.requireNonNull(fileOverlay);
   }
 
   /**
@@ -46,7 +55,7 @@ class POMScanner {
    * @throws URISyntaxException If there is an issue with the URI syntax.
    */
   public ProjectModelFactory scanFrom() throws DocumentException, IOException, URISyntaxException {
-    POMDocument pomFile = POMDocumentFactory.load(originalPath);
+    POMDocument pomFile = POMDocumentFactory.load(originalPath, fileOverlay);
     List<POMDocument> parentPomFiles = new ArrayList<>();
 
     Queue<Element> pomFileQueue = new LinkedList<>();
@@ -94,7 +103,7 @@ class POMScanner {
         break;
       }
 
-      POMDocument newPomFile = POMDocumentFactory.load(newPath);
+      POMDocument newPomFile = POMDocumentFactory.load(newPath, fileOverlay);
 
       processParentAndRelativePathElements(newPomFile);
 
@@ -411,6 +411,69 @@ final class MavenProviderTest {
     assertThat(updatedPomContents).isEqualToIgnoringWhitespace(simplePomAfterChanges);
   }
 
+  @Test
+  void it_remembers_dependencies_until_a_pom_is_updated() throws IOException {
+    Files.writeString(module1Pom, simplePom);
+    MavenProvider provider = new MavenProvider();
+
+    Collection<DependencyGAV> dependencies = provider.getAllDependencies(projectDir, marsJavaFile);
+    assertThat(dependencies).doesNotContain(marsDependency1);
+    assertThat(provider.getAllDependencies(projectDir, venusJavaFile)).isSameAs(dependencies);
+
+    provider.updateDependencies(projectDir, marsJavaFile, List.of(marsDependency1));
+
+    assertThat(provider.getAllDependencies(projectDir, venusJavaFile)).contains(marsDependency1);
+  }
+
+  @Test
+  void it_keeps_pom_updates_in_file_overlay() throws IOException {
+    Files.writeString(module1Pom, simplePom);
+    FileOverlay fileOverlay = FileOverlay.inMemory();
+    ProjectProvider provider = new MavenProvider().withFileOverlay(fileOverlay).orElseThrow();
+
+    DependencyUpdateResult result =
+        provider.updateDependencies(
+            projectDir, module1Pom, List.of(marsDependency1, marsDependency2, venusDependency));
+
+    assertThat(result.packageChanges()).hasSize(3);
+    assertThat(Files.readString(module1Pom)).isEqualTo(simplePom);
+    assertThat(fileOverlay.readString(module1Pom))
+        .isEqualToIgnoringWhitespace(simplePomAfterChanges);
+    assertThat(provider.getAllDependencies(projectDir, marsJavaFile)).contains(marsDependency1);
+  }
+
+  @Test
+  void it_keeps_its_collaborators_in_file_overlay() throws IOException {
+    // the configured finder says Venus is built by module2, rather than the module1 pom it's under
+    Files.writeString(module2Pom, simplePom);
+    FileOverlay fileOverlay = FileOverlay.inMemory();
+    MavenProvider mavenProvider = new MavenProvider(pomModifier, pomFileFinder, defaultDescriptor);
+    ProjectProvider provider = mavenProvider.withFileOverlay(fileOverlay).orElseThrow();
+
+    DependencyUpdateResult result =
+        provider.updateDependencies(projectDir, venusJavaFile, List.of(marsDependency1));
+
+    assertThat(result.packageChanges())
+        .singleElement()
+        .extracting(CodeTFChangesetEntry::getPath)
+        .isEqualTo("module2/pom.xml");
+    assertThat(Files.readString(module2Pom)).isEqualTo(simplePom);
+    assertThat(fileOverlay.readString(module2Pom)).isNotEqualTo(simplePom);
+  }
+
+  @Test
+  void it_needs_an_updater_that_can_use_a_file_overlay() {
+    MavenProvider provider = new MavenProvider(pomFileFinder, mock(POMDependencyUpdater.class));
+    assertThat(provider.withFileOverlay(FileOverlay.inMemory())).isEmpty();
+  }
+
+  @Test
+  void it_finds_the_manifest_dependencies_are_added_to() {
+    MavenProvider provider = new MavenProvider(pomModifier, pomFileFinder, defaultDescriptor);
+    assertThat(provider.findManifest(projectDir, marsJavaFile)).contains(module1Pom);
+    assertThat(provider.findManifest(projectDir, cloud9JavaFile)).isEmpty();
+  }
+
   @Test
   void it_finds_correct_poms() throws IOException {
     PomFileFinder pomFinder = new MavenProvider.DefaultPomFileFinder();
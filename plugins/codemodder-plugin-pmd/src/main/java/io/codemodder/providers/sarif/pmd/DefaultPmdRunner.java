@@ -1,10 +1,6 @@
 package io.codemodder.providers.sarif.pmd;
 
 import com.contrastsecurity.sarif.SarifSchema210;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -12,17 +8,10 @@ import net.sourceforge.pmd.PMDConfiguration;
 import net.sourceforge.pmd.PmdAnalysis;
 import net.sourceforge.pmd.lang.LanguageRegistry;
 import net.sourceforge.pmd.lang.rule.RulePriority;
-import net.sourceforge.pmd.renderers.SarifRenderer;
 import net.sourceforge.pmd.util.log.PmdReporter;
 
 final class DefaultPmdRunner implements PmdRunner {
 
-  private final ObjectMapper objectMapper;
-
-  DefaultPmdRunner() {
-    this.objectMapper = new ObjectMapper();
-  }
-
   @Override
   public SarifSchema210 run(
       final List<String> ruleIds, final Path projectDir, final List<Path> includedFiles) {
@@ -30,7 +19,6 @@ final class DefaultPmdRunner implements PmdRunner {
     PMDConfiguration config = new PMDConfiguration();
     config.setDefaultLanguageVersion(LanguageRegistry.PMD.getLanguageVersionById("java", null));
     config.setMinimumPriority(RulePriority.LOW);
-    config.setReportFormat(SarifRenderer.NAME);
     config.setReporter(PmdReporter.quiet());
 
     // create the XML that configures the rules to run based on what codemods need
@@ -54,28 +42,16 @@ final class DefaultPmdRunner implements PmdRunner {
         ruleIds.stream().map(ruleEntryFormat::formatted).collect(Collectors.joining("\n"));
     String rulesXml = rulesXmlFormat.formatted(ruleXmlEntries);
 
-    try {
-      // write the XML file containing the rules
-      Path rulesXmlFile = Files.createTempFile("pmd-rules", ".xml");
-      Files.writeString(rulesXmlFile, rulesXml);
-      config.addRuleSet(rulesXmlFile.toAbsolutePath().toString());
-
-      // create the SARIF file for PMD to write
-      Path sarifFile = Files.createTempFile("pmd", ".sarif");
-      config.setReportFile(sarifFile);
-
-      // calculate the source directories for PMD to scan (only looks for src/main/java now)
-      includedFiles.forEach(config::addInputPath);
-
-      // run the analysis
-      try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
-        pmd.performAnalysis();
-      }
+    // calculate the source directories for PMD to scan (only looks for src/main/java now)
+    includedFiles.forEach(config::addInputPath);
 
-      // capture the sarif
-      return objectMapper.readValue(sarifFile.toFile(), SarifSchema210.class);
-    } catch (IOException e) {
-      throw new UncheckedIOException("pmd scan failed", e);
+    // run the analysis, collecting the violations in memory instead of in a SARIF file
+    SarifResultCollector resultCollector = new SarifResultCollector();
+    try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+      pmd.addRuleSet(pmd.newRuleSetLoader().loadFromString("pmd-rules.xml", rulesXml));
+      pmd.addListener(resultCollector);
+      pmd.performAnalysis();
     }
+    return resultCollector.toSarif();
   }
 }
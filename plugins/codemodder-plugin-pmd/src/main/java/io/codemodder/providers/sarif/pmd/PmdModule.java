@@ -1,7 +1,9 @@
 package io.codemodder.providers.sarif.pmd;
 
 import com.contrastsecurity.sarif.Result;
+import com.contrastsecurity.sarif.Run;
 import com.contrastsecurity.sarif.SarifSchema210;
+import com.google.common.base.Suppliers;
 import com.google.inject.AbstractModule;
 import io.codemodder.*;
 import io.github.classgraph.*;
@@ -9,6 +11,7 @@ import java.lang.reflect.Executable;
 import java.lang.reflect.Parameter;
 import java.nio.file.*;
 import java.util.*;
+import java.util.function.Supplier;
 import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,10 +28,18 @@ public final class PmdModule extends AbstractModule {
       final Path codeDirectory,
       final List<Path> includedFiles,
       final List<Class<? extends CodeChanger>> codemodTypes) {
+    this(codeDirectory, includedFiles, codemodTypes, PmdRunner.createDefault());
+  }
+
+  PmdModule(
+      final Path codeDirectory,
+      final List<Path> includedFiles,
+      final List<Class<? extends CodeChanger>> codemodTypes,
+      final PmdRunner pmdRunner) {
     this.codemodTypes = Objects.requireNonNull(codemodTypes);
     this.codeDirectory = Objects.requireNonNull(codeDirectory);
     this.includedFiles = Objects.requireNonNull(includedFiles);
-    this.pmdRunner = PmdRunner.createDefault();
+    this.pmdRunner = Objects.requireNonNull(pmdRunner);
   }
 
   @Override
@@ -73,7 +84,9 @@ public final class PmdModule extends AbstractModule {
               }
 
               PmdScan pmdScan = param.getAnnotation(PmdScan.class);
-              scanTargets.add(new PmdScanTarget(codemodType, pmdScan));
+              boolean willRun =
+                  codemodTypes.contains(param.getDeclaringExecutable().getDeclaringClass());
+              scanTargets.add(new PmdScanTarget(pmdScan, willRun));
             });
 
         LOG.trace("Finished scanning codemod package: {}", packageName);
@@ -86,59 +99,76 @@ public final class PmdModule extends AbstractModule {
       return;
     }
 
-    SarifSchema210 allRulesBatchedRun =
-        pmdRunner.run(
-            scanTargets.stream().map(PmdScanTarget::pmdScan).map(PmdScan::ruleId).toList(),
-            codeDirectory,
-            includedFiles);
-
-    List<String> ruleIdsFoundInBatchScan =
-        allRulesBatchedRun.getRuns().get(0).getResults().stream().map(Result::getRuleId).toList();
+    /*
+     * PMD is run once with the rules of all the codemods that will run, and the results are split
+     * up by the rule that found them, so every codemod shares the one pass over the files. It's
+     * only run once a codemod asks for its results. The rules of other codemods in the same
+     * packages are only run, on their own, if something asks for their results.
+     */
+    List<String> batchedRuleIds =
+        scanTargets.stream()
+            .filter(PmdScanTarget::willRun)
+            .map(PmdScanTarget::pmdScan)
+            .map(PmdScan::ruleId)
+            .toList();
+    Supplier<Map<String, RuleSarif>> allRulesBatchedRun =
+        Suppliers.memoize(() -> runPmd(batchedRuleIds));
 
     for (PmdScanTarget scanTarget : scanTargets) {
       final String ruleId = scanTarget.pmdScan.ruleId();
-      if (ruleIdsFoundInBatchScan.stream().noneMatch(r -> ruleId.endsWith("/" + r))) {
-        LOG.trace("Rule {} was not found in batch scan, skipping", ruleId);
-        bind(RuleSarif.class).annotatedWith(scanTarget.pmdScan).toInstance(RuleSarif.EMPTY);
-        continue;
+      int lastSlash = ruleId.lastIndexOf("/");
+      if (lastSlash == -1) {
+        throw new IllegalStateException("unexpected rule id: " + ruleId);
       }
+      String trimmedRuleId = ruleId.substring(lastSlash + 1);
+      Supplier<Map<String, RuleSarif>> run =
+          scanTarget.willRun ? allRulesBatchedRun : () -> runPmd(List.of(ruleId));
       RuleSarif sarif =
-          new LazyLoadingRuleSarif(
-              () -> {
-                LOG.trace("Running pmd for rule: {}", ruleId);
-                SarifSchema210 rawSarifFromRun =
-                    pmdRunner.run(List.of(ruleId), codeDirectory, includedFiles);
-                LOG.trace("Finished running pmd for rule: {}", ruleId);
-                int lastSlash = ruleId.lastIndexOf("/");
-                if (lastSlash == -1) {
-                  throw new IllegalStateException("unexpected rule id: " + ruleId);
-                }
-                String trimmedRuleId = ruleId.substring(lastSlash + 1);
-                Map<String, List<Result>> resultsByFile = new HashMap<>();
-                List<Result> allResults = rawSarifFromRun.getRuns().get(0).getResults();
-                for (Result result : allResults) {
-                  String filePath =
-                      result
-                          .getLocations()
-                          .get(0)
-                          .getPhysicalLocation()
-                          .getArtifactLocation()
-                          .getUri();
-                  String normalizedFilePath =
-                      filePath.startsWith("file://") ? filePath.substring(7) : filePath;
-                  List<Result> resultsForFile =
-                      resultsByFile.computeIfAbsent(normalizedFilePath, k -> new ArrayList<>());
-                  resultsForFile.add(result);
-                }
-                return new PmdRuleSarif(
-                    trimmedRuleId, rawSarifFromRun, resultsByFile, this.codeDirectory);
-              });
-
+          new LazyLoadingRuleSarif(() -> run.get().getOrDefault(trimmedRuleId, RuleSarif.EMPTY));
       this.bind(RuleSarif.class).annotatedWith(scanTarget.pmdScan).toInstance(sarif);
     }
   }
 
-  record PmdScanTarget(Class<? extends CodeChanger> codemodType, PmdScan pmdScan) {}
+  /** Run PMD with the given rules, and split up the results by the rule that found them. */
+  private Map<String, RuleSarif> runPmd(final List<String> ruleIds) {
+    SarifSchema210 sarif = pmdRunner.run(ruleIds, codeDirectory, includedFiles);
+
+    Map<String, List<Result>> resultsByRule = new HashMap<>();
+    for (Result result : sarif.getRuns().get(0).getResults()) {
+      resultsByRule.computeIfAbsent(result.getRuleId(), k -> new ArrayList<>()).add(result);
+    }
+
+    Map<String, RuleSarif> sarifsByRule = new HashMap<>();
+    resultsByRule.forEach(
+        (ruleId, ruleResults) ->
+            sarifsByRule.put(
+                ruleId,
+                new PmdRuleSarif(
+                    ruleId,
+                    onlyResults(sarif, ruleResults),
+                    SarifResultIndex.build(codeDirectory, ruleResults))));
+    return sarifsByRule;
+  }
+
+  /**
+   * Create a copy of the document with only the given results, as it would have been if only their
+   * rule had been run.
+   */
+  private static SarifSchema210 onlyResults(
+      final SarifSchema210 sarif, final List<Result> results) {
+    Run run = sarif.getRuns().get(0);
+    Run ruleRun =
+        new Run()
+            .withTool(run.getTool())
+            .withInvocations(run.getInvocations())
+            .withResults(results);
+    return new SarifSchema210()
+        .with$schema(sarif.get$schema())
+        .withVersion(sarif.getVersion())
+        .withRuns(List.of(ruleRun));
+  }
+
+  record PmdScanTarget(PmdScan pmdScan, boolean willRun) {}
 
   private static final Logger LOG = LoggerFactory.getLogger(PmdModule.class);
 }
@@ -4,27 +4,22 @@ import com.contrastsecurity.sarif.Region;
 import com.contrastsecurity.sarif.Result;
 import com.contrastsecurity.sarif.SarifSchema210;
 import io.codemodder.RuleSarif;
+import io.codemodder.SarifResultIndex;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 final class PmdRuleSarif implements RuleSarif {
 
   private final SarifSchema210 sarif;
   private final String ruleId;
-  private final Map<String, List<Result>> resultsByFile;
-  private final Path repositoryRoot;
+  private final SarifResultIndex resultsByFile;
 
   PmdRuleSarif(
-      final String ruleId,
-      final SarifSchema210 sarif,
-      final Map<String, List<Result>> resultsByFile,
-      final Path repositoryRoot) {
+      final String ruleId, final SarifSchema210 sarif, final SarifResultIndex resultsByFile) {
     this.ruleId = Objects.requireNonNull(ruleId);
     this.sarif = Objects.requireNonNull(sarif);
     this.resultsByFile = Objects.requireNonNull(resultsByFile);
-    this.repositoryRoot = repositoryRoot;
   }
 
   @Override
@@ -36,8 +31,7 @@ final class PmdRuleSarif implements RuleSarif {
 
   @Override
   public List<Result> getResultsByLocationPath(final Path path) {
-    String absolutePath = path.toAbsolutePath().toString();
-    return resultsByFile.getOrDefault(absolutePath, List.of());
+    return resultsByFile.get(path);
   }
 
   @Override
@@ -0,0 +1,123 @@
+package io.codemodder.providers.sarif.pmd;
+
+import com.contrastsecurity.sarif.ArtifactLocation;
+import com.contrastsecurity.sarif.Location;
+import com.contrastsecurity.sarif.Message;
+import com.contrastsecurity.sarif.MultiformatMessageString;
+import com.contrastsecurity.sarif.PhysicalLocation;
+import com.contrastsecurity.sarif.Region;
+import com.contrastsecurity.sarif.ReportingDescriptor;
+import com.contrastsecurity.sarif.Result;
+import com.contrastsecurity.sarif.Run;
+import com.contrastsecurity.sarif.SarifSchema210;
+import com.contrastsecurity.sarif.Tool;
+import com.contrastsecurity.sarif.ToolComponent;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RulePriority;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
+import net.sourceforge.pmd.reporting.RuleViolation;
+
+/**
+ * Collects the violations PMD finds while it analyzes files, so they can be turned into SARIF in
+ * memory, rather than rendered to a SARIF file and read back.
+ */
+final class SarifResultCollector implements GlobalAnalysisListener {
+
+  private final Queue<RuleViolation> violations = new ConcurrentLinkedQueue<>();
+
+  @Override
+  public FileAnalysisListener startFileAnalysis(final TextFile file) {
+    // files are analyzed in parallel, so every listener adds to the same thread-safe queue
+    return violations::add;
+  }
+
+  @Override
+  public void close() {}
+
+  /**
+   * Build a SARIF document from the violations collected, like the one PMD would have rendered,
+   * with the results ordered by file and position.
+   */
+  SarifSchema210 toSarif() {
+    List<RuleViolation> sortedViolations =
+        violations.stream().sorted(RuleViolation.DEFAULT_COMPARATOR).toList();
+    Map<String, Integer> ruleIndexes = new HashMap<>();
+    Set<ReportingDescriptor> rules = new LinkedHashSet<>();
+    List<Result> results = new ArrayList<>(sortedViolations.size());
+    for (RuleViolation violation : sortedViolations) {
+      Rule rule = violation.getRule();
+      int ruleIndex =
+          ruleIndexes.computeIfAbsent(
+              rule.getName(),
+              name -> {
+                rules.add(toReportingDescriptor(rule));
+                return rules.size() - 1;
+              });
+      results.add(toResult(violation, ruleIndex));
+    }
+
+    ToolComponent driver =
+        new ToolComponent()
+            .withName("PMD")
+            .withVersion(PMDVersion.VERSION)
+            .withInformationUri(URI.create("https://docs.pmd-code.org/latest/"))
+            .withRules(rules);
+    Run run = new Run().withTool(new Tool().withDriver(driver)).withResults(results);
+    return new SarifSchema210()
+        .with$schema(URI.create("https://json.schemastore.org/sarif-2.1.0.json"))
+        .withVersion(SarifSchema210.Version._2_1_0)
+        .withRuns(List.of(run));
+  }
+
+  private static ReportingDescriptor toReportingDescriptor(final Rule rule) {
+    ReportingDescriptor descriptor =
+        new ReportingDescriptor()
+            .withId(rule.getName())
+            .withShortDescription(new MultiformatMessageString().withText(rule.getMessage()));
+    if (rule.getExternalInfoUrl() != null) {
+      descriptor = descriptor.withHelpUri(URI.create(rule.getExternalInfoUrl()));
+    }
+    return descriptor;
+  }
+
+  private static Result toResult(final RuleViolation violation, final int ruleIndex) {
+    Region region =
+        new Region()
+            .withStartLine(violation.getBeginLine())
+            .withStartColumn(violation.getBeginColumn())
+            .withEndLine(violation.getEndLine())
+            .withEndColumn(violation.getEndColumn());
+    PhysicalLocation physicalLocation =
+        new PhysicalLocation()
+            .withArtifactLocation(
+                new ArtifactLocation().withUri(violation.getFileId().getUriString()))
+            .withRegion(region);
+    return new Result()
+        .withRuleId(violation.getRule().getName())
+        .withRuleIndex(ruleIndex)
+        .withLevel(toLevel(violation.getRule().getPriority()))
+        .withMessage(new Message().withText(violation.getDescription()))
+        .withLocations(List.of(new Location().withPhysicalLocation(physicalLocation)));
+  }
+
+  /** Map the priority the way PMD's own SARIF renderer does. */
+  private static Result.Level toLevel(final RulePriority priority) {
+    return switch (priority) {
+      case HIGH, MEDIUM_HIGH -> Result.Level.ERROR;
+      case MEDIUM -> Result.Level.WARNING;
+      case MEDIUM_LOW, LOW -> Result.Level.NOTE;
+    };
+  }
+}
@@ -7,6 +7,7 @@ import static org.hamcrest.Matchers.notNullValue;
 import com.contrastsecurity.sarif.Region;
 import com.contrastsecurity.sarif.Result;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -15,6 +16,7 @@ import io.codemodder.javaparser.ChangesResult;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
 import org.junit.jupiter.api.Test;
@@ -45,6 +47,97 @@ final class PmdModuleTest {
     assertThat(regions.size(), is(1));
   }
 
+  @Test
+  void it_runs_pmd_once_for_all_rules(@TempDir final Path tmpDir) throws IOException {
+    Path javaSourceDir = Files.createDirectories(tmpDir.resolve("src/main/java"));
+    Path multipleDeclarationsFile = javaSourceDir.resolve("MultipleDeclarations.java");
+    Files.writeString(
+        multipleDeclarationsFile,
+        """
+                    package com.acme.util;
+                    public abstract class MultipleDeclarations {
+                        public String a, b, c;
+                    }
+                    """);
+    Path missingOverrideFile = javaSourceDir.resolve("IsMissingOverride.java");
+    Files.writeString(
+        missingOverrideFile,
+        """
+                    package com.acme.util;
+                    public class IsMissingOverride implements Runnable {
+                        public void run() {}
+                    }
+                    """);
+
+    PmdRunner pmdRunner = PmdRunner.createDefault();
+    List<List<String>> pmdRuns = new ArrayList<>();
+    PmdModule module =
+        new PmdModule(
+            tmpDir,
+            List.of(multipleDeclarationsFile, missingOverrideFile),
+            List.of(UsesPmdCodemod.class, UsesOtherPmdCodemod.class),
+            (ruleIds, codeDir, includedFiles) -> {
+              pmdRuns.add(ruleIds);
+              return pmdRunner.run(ruleIds, codeDir, includedFiles);
+            });
+    Injector injector = Guice.createInjector(module);
+
+    RuleSarif declarationsSarif = injector.getInstance(UsesPmdCodemod.class).ruleSarif;
+    assertThat(declarationsSarif.getRule(), is("OneDeclarationPerLine"));
+    assertThat(
+        declarationsSarif.getRegionsFromResultsByRule(multipleDeclarationsFile).size(), is(1));
+    assertThat(declarationsSarif.getRegionsFromResultsByRule(missingOverrideFile).size(), is(0));
+
+    RuleSarif overrideSarif = injector.getInstance(UsesOtherPmdCodemod.class).ruleSarif;
+    assertThat(overrideSarif.getRule(), is("MissingOverride"));
+    assertThat(overrideSarif.getRegionsFromResultsByRule(missingOverrideFile).size(), is(1));
+    assertThat(overrideSarif.rawDocument().getRuns().get(0).getResults().size(), is(1));
+
+    assertThat(pmdRuns.size(), is(1));
+    assertThat(pmdRuns.get(0).size(), is(2));
+  }
+
+  @Test
+  void it_only_runs_pmd_for_codemods_that_will_run(@TempDir final Path tmpDir)
+      throws IOException {
+    Path javaSourceDir = Files.createDirectories(tmpDir.resolve("src/main/java"));
+    Path missingOverrideFile = javaSourceDir.resolve("IsMissingOverride.java");
+    Files.writeString(
+        missingOverrideFile,
+        """
+                    package com.acme.util;
+                    public class IsMissingOverride implements Runnable {
+                        public void run() {}
+                    }
+                    """);
+
+    PmdRunner pmdRunner = PmdRunner.createDefault();
+    List<List<String>> pmdRuns = new ArrayList<>();
+    PmdModule module =
+        new PmdModule(
+            tmpDir,
+            List.of(missingOverrideFile),
+            List.of(UsesPmdCodemod.class),
+            (ruleIds, codeDir, includedFiles) -> {
+              pmdRuns.add(ruleIds);
+              return pmdRunner.run(ruleIds, codeDir, includedFiles);
+            });
+    Injector injector = Guice.createInjector(module);
+    assertThat(pmdRuns.size(), is(0));
+
+    // only the rules of the codemods that will run are in the batch
+    RuleSarif declarationsSarif = injector.getInstance(UsesPmdCodemod.class).ruleSarif;
+    assertThat(declarationsSarif.getRegionsFromResultsByRule(missingOverrideFile).size(), is(0));
+    assertThat(
+        pmdRuns, is(List.of(List.of("category/java/bestpractices.xml/OneDeclarationPerLine"))));
+
+    // the other codemod in this package still gets its results if something asks for them
+    RuleSarif overrideSarif = injector.getInstance(UsesOtherPmdCodemod.class).ruleSarif;
+    assertThat(overrideSarif.getRegionsFromResultsByRule(missingOverrideFile).size(), is(1));
+    assertThat(pmdRuns.size(), is(2));
+    assertThat(pmdRuns.get(1), is(List.of("category/java/bestpractices.xml/MissingOverride")));
+  }
+
   @Codemod(
       id = "pmd:java/my-pmd-codemod",
       importance = Importance.HIGH,
@@ -69,4 +162,28 @@ final class PmdModuleTest {
       return ChangesResult.changesApplied;
     }
   }
+
+  @Codemod(
+      id = "pmd:java/my-other-pmd-codemod",
+      importance = Importance.HIGH,
+      reviewGuidance = ReviewGuidance.MERGE_AFTER_CURSORY_REVIEW)
+  static class UsesOtherPmdCodemod extends SarifPluginJavaParserChanger<MethodDeclaration> {
+    private final RuleSarif ruleSarif;
+
+    @Inject
+    UsesOtherPmdCodemod(
+        @PmdScan(ruleId = "category/java/bestpractices.xml/MissingOverride") RuleSarif ruleSarif) {
+      super(ruleSarif, MethodDeclaration.class, CodemodReporterStrategy.empty());
+      this.ruleSarif = ruleSarif;
+    }
+
+    @Override
+    public ChangesResult onResultFound(
+        final CodemodInvocationContext context,
+        final CompilationUnit cu,
+        final MethodDeclaration node,
+        Result result) {
+      return ChangesResult.changesApplied;
+    }
+  }
 }
@@ -8,15 +8,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 final class DefaultSemgrepRunner implements SemgrepRunner {
 
   private final ObjectMapper objectMapper;
+  private final String semgrepCommand;
 
   DefaultSemgrepRunner() {
+    this("semgrep");
+  }
+
+  /** Create a runner that runs the given command in place of semgrep, like a fake for tests. */
+  DefaultSemgrepRunner(final String semgrepCommand) {
     this.objectMapper = new ObjectMapper();
+    this.semgrepCommand = Objects.requireNonNull(semgrepCommand);
   }
 
   @Override
@@ -27,17 +35,50 @@ final class DefaultSemgrepRunner implements SemgrepRunner {
       final List<String> excludePatterns)
       throws IOException {
     Path repositoryPath = repository.toAbsolutePath();
+    LOG.trace("Repository: {}", dumpInfo(repositoryPath));
+    return run(ruleYamls, List.of(repositoryPath.toString()), -1, includePatterns, excludePatterns);
+  }
+
+  @Override
+  public SarifSchema210 run(
+      final List<Path> ruleYamls,
+      final Path repository,
+      final List<Path> files,
+      final int jobs,
+      final List<String> includePatterns,
+      final List<String> excludePatterns)
+      throws IOException {
+    List<String> targets = files.stream().map(file -> file.toAbsolutePath().toString()).toList();
+    return run(ruleYamls, targets, jobs, includePatterns, excludePatterns);
+  }
+
+  @Override
+  public boolean scansOnlyGivenFiles() {
+    return true;
+  }
+
+  private SarifSchema210 run(
+      final List<Path> ruleYamls,
+      final List<String> targets,
+      final int jobs,
+      final List<String> includePatterns,
+      final List<String> excludePatterns)
+      throws IOException {
     Path sarifFile = Files.createTempFile("semgrep", ".sarif");
 
-    LOG.trace("Repository: {}", dumpInfo(repositoryPath));
     List<String> args = new ArrayList<>();
-    args.add("semgrep");
+    args.add(semgrepCommand);
     args.add("--no-error");
     args.add("--dataflow-traces");
     args.add("--sarif");
     args.add("-o");
     args.add(sarifFile.toAbsolutePath().toString());
 
+    if (jobs != -1) {
+      args.add("--jobs");
+      args.add(String.valueOf(jobs));
+    }
+
     for (String includedFilePath : includePatterns) {
       args.add("--include");
       args.add(includedFilePath);
@@ -53,7 +94,7 @@ final class DefaultSemgrepRunner implements SemgrepRunner {
       args.add(ruleYaml.toString());
     }
 
-    args.add(repositoryPath.toString());
+    args.addAll(targets);
 
     LOG.trace("Process arguments: {}", args);
     /*
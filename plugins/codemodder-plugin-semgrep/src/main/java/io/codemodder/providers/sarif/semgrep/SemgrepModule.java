@@ -1,12 +1,10 @@
 package io.codemodder.providers.sarif.semgrep;
 
-import com.contrastsecurity.sarif.Result;
 import com.contrastsecurity.sarif.SarifSchema210;
 import com.google.inject.AbstractModule;
 import io.codemodder.*;
 import io.github.classgraph.*;
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Parameter;
 import java.nio.file.Files;
@@ -27,6 +25,7 @@ public final class SemgrepModule extends AbstractModule {
   private final List<String> includePatterns;
   private final List<String> excludePatterns;
   private final SemgrepRuleFactory semgrepRuleFactory;
+  private final List<Path> includedFiles;
 
   public SemgrepModule(
       final Path codeDirectory,
@@ -49,13 +48,57 @@ public final class SemgrepModule extends AbstractModule {
       final List<Class<? extends CodeChanger>> codemodTypes,
       final List<RuleSarif> sarifs,
       final SemgrepRuleFactory semgrepRuleFactory) {
+    this(
+        codeDirectory,
+        includePatterns,
+        excludePatterns,
+        codemodTypes,
+        sarifs,
+        semgrepRuleFactory,
+        SemgrepRunner.createDefault());
+  }
+
+  SemgrepModule(
+      final Path codeDirectory,
+      final List<String> includePatterns,
+      final List<String> excludePatterns,
+      final List<Class<? extends CodeChanger>> codemodTypes,
+      final List<RuleSarif> sarifs,
+      final SemgrepRuleFactory semgrepRuleFactory,
+      final SemgrepRunner semgrepRunner) {
+    this(
+        codeDirectory,
+        includePatterns,
+        excludePatterns,
+        codemodTypes,
+        sarifs,
+        semgrepRuleFactory,
+        semgrepRunner,
+        null);
+  }
+
+  /**
+   * Create a module that only scans the given files, split into shards that are scanned at the same
+   * time. If the files aren't known (null), the whole code directory is scanned at once, and if
+   * there are none, nothing is scanned.
+   */
+  SemgrepModule(
+      final Path codeDirectory,
+      final List<String> includePatterns,
+      final List<String> excludePatterns,
+      final List<Class<? extends CodeChanger>> codemodTypes,
+      final List<RuleSarif> sarifs,
+      final SemgrepRuleFactory semgrepRuleFactory,
+      final SemgrepRunner semgrepRunner,
+      final List<Path> includedFiles) {
     this.codemodTypes = Objects.requireNonNull(codemodTypes);
     this.codeDirectory = Objects.requireNonNull(codeDirectory);
     this.includePatterns = Objects.requireNonNull(includePatterns);
     this.excludePatterns = Objects.requireNonNull(excludePatterns);
-    this.semgrepRunner = SemgrepRunner.createDefault();
+    this.semgrepRunner = Objects.requireNonNull(semgrepRunner);
     this.sarifs = Objects.requireNonNull(sarifs);
     this.semgrepRuleFactory = Objects.requireNonNull(semgrepRuleFactory);
+    this.includedFiles = includedFiles;
   }
 
   @Override
@@ -131,9 +174,21 @@ public final class SemgrepModule extends AbstractModule {
               }
 
               SemgrepScan semgrepScan = param.getAnnotation(SemgrepScan.class);
-              SemgrepRule rule =
-                  semgrepRuleFactory.createRule(codemodType, semgrepScan, packageName);
-              rules.add(rule);
+              if (codemodTypes.contains(param.getDeclaringExecutable().getDeclaringClass())) {
+                SemgrepRule rule =
+                    semgrepRuleFactory.createRule(codemodType, semgrepScan, packageName);
+                rules.add(rule);
+              } else {
+                // the codemod won't run, so its rule is only scanned for if something asks for it
+                RuleSarif ruleSarif =
+                    new LazyLoadingRuleSarif(
+                        () ->
+                            createSarifProvider(
+                                    semgrepRuleFactory.createRule(
+                                        codemodType, semgrepScan, packageName))
+                                .get());
+                bind(RuleSarif.class).annotatedWith(semgrepScan).toInstance(ruleSarif);
+              }
             });
 
         LOG.trace("Finished scanning codemod package: {}", packageName);
@@ -150,38 +205,75 @@ public final class SemgrepModule extends AbstractModule {
     }
 
     /*
-     * To avoid running semgrep and eating heavy, redundant file I/O for every codemod, we'll run it once with all rules, calculate which rules didn't "hit", and then storing an empty result for them. This will allow us to only run Semgrep on the rules for which we have evidence will hit. Given that we don't expect most projects to hit most codemods, this is a big time-savings.
+     * To avoid running semgrep and eating heavy, redundant file I/O for every codemod, we run it once with all rules, and split the results up by the rule they came from. Rules that didn't "hit" get an empty result. Only a rule whose results can't be told apart from another's (because the ids are the same, or one ends with the other) gets its own scan, and only if it hit. The batch only has the rules of the codemods that will run.
+     *
+     * When we know which files will be inspected, they're split into shards that are scanned at the same time, and a codemod can start on the files of the first shards while the rest are still being scanned.
      */
-    final List<String> rawRulesFoundInBatchRun;
-    try {
-      SarifSchema210 allRulesSarif =
-          semgrepRunner.run(
-              rules.stream().map(SemgrepRule::yaml).toList(),
-              codeDirectory,
-              includePatterns,
-              excludePatterns);
-      rawRulesFoundInBatchRun =
-          allRulesSarif.getRuns().get(0).getResults().stream().map(Result::getRuleId).toList();
-    } catch (IOException e) {
-      throw new UncheckedIOException("problem running batched execution", e);
-    }
+    Set<String> ambiguousRuleIds = findAmbiguousRuleIds(rules);
+    List<SemgrepRule> unambiguousRules =
+        rules.stream().filter(rule -> !ambiguousRuleIds.contains(rule.ruleId())).toList();
+    ShardedSemgrepScan allRulesScan =
+        ShardedSemgrepScan.start(
+            semgrepRunner,
+            rules.stream().map(SemgrepRule::yaml).toList(),
+            unambiguousRules.stream().map(SemgrepRule::ruleId).toList(),
+            codeDirectory,
+            includedFiles,
+            includePatterns,
+            excludePatterns);
+    // only the rules that may be scanned again need their rule files after the scan
+    allRulesScan.whenDone(() -> unambiguousRules.forEach(rule -> deleteYaml(rule.yaml())));
 
     for (SemgrepRule rule : rules) {
       SemgrepScan semgrepScan = rule.semgrepScan();
-      if (rawRulesFoundInBatchRun.stream().anyMatch(r -> r.endsWith("." + rule.ruleId()))) {
-        SemgrepSarifProvider semgrepSarifProvider =
-            new SemgrepSarifProvider(
-                codeDirectory,
-                includePatterns,
-                excludePatterns,
-                semgrepRunner,
-                rule.yaml(),
-                rule.ruleId());
-        LazyLoadingRuleSarif lazyLoadingRuleSarif = new LazyLoadingRuleSarif(semgrepSarifProvider);
-        bind(RuleSarif.class).annotatedWith(semgrepScan).toInstance(lazyLoadingRuleSarif);
+      RuleSarif ruleSarif;
+      if (ambiguousRuleIds.contains(rule.ruleId())) {
+        SemgrepSarifProvider semgrepSarifProvider = createSarifProvider(rule);
+        ruleSarif =
+            new LazyLoadingRuleSarif(
+                () ->
+                    allRulesScan.allResults().stream()
+                            .anyMatch(
+                                result ->
+                                    SingleSemgrepRuleSarif.isResultForRule(result, rule.ruleId()))
+                        ? semgrepSarifProvider.get()
+                        : RuleSarif.EMPTY);
       } else {
-        bind(RuleSarif.class).annotatedWith(semgrepScan).toInstance(RuleSarif.EMPTY);
+        ruleSarif = allRulesScan.ruleSarif(rule.ruleId());
       }
+      bind(RuleSarif.class).annotatedWith(semgrepScan).toInstance(ruleSarif);
+    }
+  }
+
+  /** Create a provider that scans for the given rule on its own. */
+  private SemgrepSarifProvider createSarifProvider(final SemgrepRule rule) {
+    return new SemgrepSarifProvider(
+        codeDirectory, includePatterns, excludePatterns, semgrepRunner, rule.yaml(), rule.ruleId());
+  }
+
+  /**
+   * Find the ids of the rules whose results in a batch run can't be told apart from those of
+   * another rule, because the other rule has the same id, or an id that ends with it.
+   */
+  private static Set<String> findAmbiguousRuleIds(final List<SemgrepRule> rules) {
+    Set<String> ambiguousRuleIds = new HashSet<>();
+    for (SemgrepRule rule : rules) {
+      for (SemgrepRule other : rules) {
+        if (other != rule
+            && (other.ruleId().equals(rule.ruleId())
+                || other.ruleId().endsWith("." + rule.ruleId()))) {
+          ambiguousRuleIds.add(rule.ruleId());
+        }
+      }
+    }
+    return ambiguousRuleIds;
+  }
+
+  private static void deleteYaml(final Path yaml) {
+    try {
+      Files.deleteIfExists(yaml);
+    } catch (IOException e) {
+      LOG.warn("Failed to delete temporary file: {}", yaml, e);
     }
   }
 
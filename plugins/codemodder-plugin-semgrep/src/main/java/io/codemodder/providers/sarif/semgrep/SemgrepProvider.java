@@ -29,7 +29,9 @@ public final class SemgrepProvider implements CodemodProvider {
             excludePaths,
             codemodTypes,
             sarifs,
-            new DefaultSemgrepRuleFactory()));
+            new DefaultSemgrepRuleFactory(),
+            SemgrepRunner.createDefault(),
+            includedFiles));
   }
 
   @Override
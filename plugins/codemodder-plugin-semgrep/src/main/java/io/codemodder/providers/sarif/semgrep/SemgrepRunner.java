@@ -1,6 +1,8 @@
 package io.codemodder.providers.sarif.semgrep;
 
+import com.contrastsecurity.sarif.Run;
 import com.contrastsecurity.sarif.SarifSchema210;
+import io.codemodder.SarifResultIndex;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
@@ -19,6 +21,41 @@ public interface SemgrepRunner {
       List<Path> yamls, Path codeDir, List<String> includePatterns, List<String> excludePatterns)
       throws IOException;
 
+  /**
+   * Execute semgrep on only some of the files in the code directory, so a scan can be split into
+   * shards that run at the same time. The default runs the whole scan and keeps only the results
+   * for the given files, so runners that can scan only some files should override it, along with
+   * {@link #scansOnlyGivenFiles()}.
+   *
+   * @param yamls the file(s) where the rule(s) are stored
+   * @param codeDir the directory containing the code to be run on
+   * @param files the files in the code directory to scan
+   * @param jobs how many jobs semgrep should run at once, or -1 for its default
+   * @return the resulting SARIF
+   */
+  default SarifSchema210 run(
+      List<Path> yamls,
+      Path codeDir,
+      List<Path> files,
+      int jobs,
+      List<String> includePatterns,
+      List<String> excludePatterns)
+      throws IOException {
+    SarifSchema210 sarif = run(yamls, codeDir, includePatterns, excludePatterns);
+    Run run = sarif.getRuns().get(0);
+    SarifResultIndex resultsByFile = SarifResultIndex.build(codeDir, run.getResults());
+    run.setResults(files.stream().flatMap(file -> resultsByFile.get(file).stream()).toList());
+    return sarif;
+  }
+
+  /**
+   * Returns true if {@link #run(List, Path, List, int, List, List)} scans only the given files. If
+   * not, a scan isn't split into shards, since each shard would scan everything.
+   */
+  default boolean scansOnlyGivenFiles() {
+    return false;
+  }
+
   static SemgrepRunner createDefault() {
     return new DefaultSemgrepRunner();
   }
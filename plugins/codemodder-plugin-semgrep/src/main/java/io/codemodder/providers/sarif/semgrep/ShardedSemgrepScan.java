@@ -0,0 +1,390 @@
+package io.codemodder.providers.sarif.semgrep;
+
+import com.contrastsecurity.sarif.Region;
+import com.contrastsecurity.sarif.Result;
+import com.contrastsecurity.sarif.Run;
+import com.contrastsecurity.sarif.SarifSchema210;
+import io.codemodder.RuleSarif;
+import io.codemodder.SarifResultIndex;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Semgrep scan whose files are split into shards, which are scanned by several semgrep processes
+ * at once. As each process finishes, its results are indexed by rule, so the results for a file can
+ * be looked up as soon as the shard it's in is done, without waiting for the rest of the scan.
+ *
+ * <p>When there's no list of files to split up, the whole directory is scanned as one shard. So are
+ * all the files, when the runner can't scan only some of them. When the list is empty, nothing is
+ * scanned, and every rule has no results.
+ *
+ * <p>A semgrep process that fails is logged as soon as it does, and the failure is thrown again to
+ * whoever asks for the results of its files.
+ */
+final class ShardedSemgrepScan {
+
+  private final List<CompletableFuture<ShardResults>> shards;
+  private final Map<Path, CompletableFuture<ShardResults>> shardsByFile;
+
+  private ShardedSemgrepScan(
+      final List<CompletableFuture<ShardResults>> shards,
+      final Map<Path, CompletableFuture<ShardResults>> shardsByFile) {
+    this.shards = shards;
+    this.shardsByFile = shardsByFile;
+  }
+
+  /**
+   * Start scanning the given files, in shards sized for the number of processors.
+   *
+   * @param files the files to scan, or null to scan the whole code directory
+   * @param ruleIds the ids of the rules whose results should be indexed, which must each match only
+   *     the results of their own rule
+   */
+  static ShardedSemgrepScan start(
+      final SemgrepRunner semgrepRunner,
+      final List<Path> yamls,
+      final List<String> ruleIds,
+      final Path codeDirectory,
+      final List<Path> files,
+      final List<String> includePatterns,
+      final List<String> excludePatterns) {
+    int parallelism = Math.min(MAX_PARALLEL_SHARDS, Runtime.getRuntime().availableProcessors());
+    int filesPerShard =
+        Math.max(
+            MIN_FILES_PER_SHARD,
+            Math.min(
+                MAX_FILES_PER_SHARD, ceilDiv(files != null ? files.size() : 0, parallelism * 2)));
+    return start(
+        semgrepRunner,
+        yamls,
+        ruleIds,
+        codeDirectory,
+        files,
+        includePatterns,
+        excludePatterns,
+        parallelism,
+        filesPerShard);
+  }
+
+  /**
+   * Start scanning the given files, or the whole code directory if they're null, in shards of at
+   * most the given number of files, with at most the given number of semgrep processes running at
+   * once.
+   */
+  static ShardedSemgrepScan start(
+      final SemgrepRunner semgrepRunner,
+      final List<Path> yamls,
+      final List<String> ruleIds,
+      final Path codeDirectory,
+      final List<Path> files,
+      final List<String> includePatterns,
+      final List<String> excludePatterns,
+      final int parallelism,
+      final int filesPerShard) {
+    Objects.requireNonNull(semgrepRunner);
+    Objects.requireNonNull(yamls);
+    Objects.requireNonNull(ruleIds);
+    Objects.requireNonNull(codeDirectory);
+    Objects.requireNonNull(includePatterns);
+    Objects.requireNonNull(excludePatterns);
+    if (files != null && files.isEmpty()) {
+      LOG.debug("No files to run semgrep on");
+      return new ShardedSemgrepScan(List.of(), Map.of());
+    }
+    // a runner that would scan everything for each shard gets a single shard
+    List<List<Path>> fileShards =
+        files == null
+            ? List.of()
+            : semgrepRunner.scansOnlyGivenFiles()
+                ? split(files, filesPerShard)
+                : List.of(List.copyOf(files));
+    int processes = Math.max(1, Math.min(parallelism, fileShards.size()));
+    int jobs =
+        fileShards.size() > 1
+            ? Math.max(1, Runtime.getRuntime().availableProcessors() / processes)
+            : -1;
+    LOG.debug(
+        "Running semgrep on {} in {} shards",
+        files != null ? files.size() + " files" : "the whole directory",
+        Math.max(1, fileShards.size()));
+
+    ExecutorService shardPool =
+        Executors.newFixedThreadPool(
+            processes,
+            runnable -> {
+              Thread thread = new Thread(runnable, "semgrep-shard");
+              thread.setDaemon(true);
+              return thread;
+            });
+    List<CompletableFuture<ShardResults>> shards = new ArrayList<>();
+    Map<Path, CompletableFuture<ShardResults>> shardsByFile = new HashMap<>();
+    if (fileShards.isEmpty()) {
+      shards.add(
+          logIfFailed(
+              CompletableFuture.supplyAsync(
+                  () ->
+                      runShard(
+                          () ->
+                              semgrepRunner.run(
+                                  yamls, codeDirectory, includePatterns, excludePatterns),
+                          ruleIds,
+                          codeDirectory),
+                  shardPool),
+              "the whole directory"));
+    }
+    for (List<Path> fileShard : fileShards) {
+      CompletableFuture<ShardResults> shard =
+          logIfFailed(
+              CompletableFuture.supplyAsync(
+                  () ->
+                      runShard(
+                          () ->
+                              semgrepRunner.run(
+                                  yamls,
+                                  codeDirectory,
+                                  fileShard,
+                                  jobs,
+                                  includePatterns,
+                                  excludePatterns),
+                          ruleIds,
+                          codeDirectory),
+                  shardPool),
+              fileShard.size() + " files");
+      shards.add(shard);
+      fileShard.forEach(file -> shardsByFile.put(normalize(file), shard));
+    }
+    // the threads finish the shards already submitted, and then go away
+    shardPool.shutdown();
+    return new ShardedSemgrepScan(List.copyOf(shards), shardsByFile);
+  }
+
+  /** Get the results of one of the rules whose results are indexed. */
+  RuleSarif ruleSarif(final String ruleId) {
+    return shards.isEmpty() ? RuleSarif.EMPTY : new ShardedRuleSarif(ruleId);
+  }
+
+  /** Get the results of every rule, waiting for the whole scan to finish. */
+  List<Result> allResults() {
+    List<Result> results = new ArrayList<>();
+    for (CompletableFuture<ShardResults> shard : shards) {
+      results.addAll(await(shard).run().getResults());
+    }
+    return results;
+  }
+
+  /** Run the given action once the whole scan is done, whether it succeeded or not. */
+  void whenDone(final Runnable action) {
+    CompletableFuture.allOf(shards.toArray(CompletableFuture[]::new))
+        .whenComplete((ignored, e) -> action.run());
+  }
+
+  /**
+   * Log the failure of a shard once, when it happens, since it's otherwise only seen by the
+   * codemods that ask for the results of its files.
+   */
+  private static CompletableFuture<ShardResults> logIfFailed(
+      final CompletableFuture<ShardResults> shard, final String scanned) {
+    shard.whenComplete(
+        (results, e) -> {
+          if (e != null) {
+            LOG.error("Semgrep failed to scan {}, so there are no results for them", scanned, e);
+          }
+        });
+    return shard;
+  }
+
+  private static ShardResults runShard(
+      final SemgrepRun semgrepRun, final List<String> ruleIds, final Path codeDirectory) {
+    SarifSchema210 sarif;
+    try {
+      sarif = semgrepRun.run();
+    } catch (IOException e) {
+      throw new UncheckedIOException("problem running batched execution", e);
+    }
+    Run run = sarif.getRuns().get(0);
+    Map<String, List<Result>> resultsByRule = new HashMap<>();
+    for (Result result : run.getResults()) {
+      for (String ruleId : ruleIds) {
+        if (SingleSemgrepRuleSarif.isResultForRule(result, ruleId)) {
+          resultsByRule.computeIfAbsent(ruleId, k -> new ArrayList<>()).add(result);
+        }
+      }
+    }
+    Map<String, SarifResultIndex> indexesByRule = new HashMap<>();
+    resultsByRule.forEach(
+        (ruleId, results) ->
+            indexesByRule.put(ruleId, SarifResultIndex.build(codeDirectory, results)));
+    return new ShardResults(sarif, run, resultsByRule, indexesByRule);
+  }
+
+  /** Split the files into shards of at most the given size, keeping them in order. */
+  private static List<List<Path>> split(final List<Path> files, final int filesPerShard) {
+    List<List<Path>> fileShards = new ArrayList<>();
+    List<Path> fileShard = new ArrayList<>();
+    int argumentLength = 0;
+    for (Path file : files) {
+      int fileArgumentLength = file.toAbsolutePath().toString().length() + 1;
+      if (!fileShard.isEmpty()
+          && (fileShard.size() == filesPerShard
+              || argumentLength + fileArgumentLength > MAX_SHARD_ARGUMENT_LENGTH)) {
+        fileShards.add(List.copyOf(fileShard));
+        fileShard.clear();
+        argumentLength = 0;
+      }
+      fileShard.add(file);
+      argumentLength += fileArgumentLength;
+    }
+    if (!fileShard.isEmpty()) {
+      fileShards.add(List.copyOf(fileShard));
+    }
+    return fileShards;
+  }
+
+  private static ShardResults await(final CompletableFuture<ShardResults> shard) {
+    try {
+      return shard.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private static Path normalize(final Path file) {
+    return file.toAbsolutePath().normalize();
+  }
+
+  private static int ceilDiv(final int dividend, final int divisor) {
+    return (dividend + divisor - 1) / divisor;
+  }
+
+  /** A run of semgrep over one shard. */
+  private interface SemgrepRun {
+    SarifSchema210 run() throws IOException;
+  }
+
+  /** The results of one shard, and the index of each rule's results in it. */
+  private record ShardResults(
+      SarifSchema210 sarif,
+      Run run,
+      Map<String, List<Result>> resultsByRule,
+      Map<String, SarifResultIndex> indexesByRule) {}
+
+  /**
+   * The results of one rule, which only waits for the shard a file is in to look up its results.
+   * Files that weren't in any shard, or that are reached by another path, wait for the whole scan.
+   */
+  private final class ShardedRuleSarif implements RuleSarif {
+
+    private final String ruleId;
+    private volatile SarifSchema210 rawDocument;
+
+    private ShardedRuleSarif(final String ruleId) {
+      this.ruleId = Objects.requireNonNull(ruleId);
+    }
+
+    @Override
+    public List<Region> getRegionsFromResultsByRule(final Path path) {
+      return getResultsByLocationPath(path).stream()
+          .map(result -> result.getLocations().get(0).getPhysicalLocation().getRegion())
+          .toList();
+    }
+
+    @Override
+    public List<Result> getResultsByLocationPath(final Path path) {
+      CompletableFuture<ShardResults> shard = shardsByFile.get(normalize(path));
+      if (shard != null) {
+        return resultsIn(await(shard), path);
+      }
+      List<Result> results = new ArrayList<>();
+      for (CompletableFuture<ShardResults> otherShard : shards) {
+        results.addAll(resultsIn(await(otherShard), path));
+      }
+      return results;
+    }
+
+    private List<Result> resultsIn(final ShardResults shardResults, final Path path) {
+      SarifResultIndex index = shardResults.indexesByRule().get(ruleId);
+      return index != null ? index.get(path) : List.of();
+    }
+
+    @Override
+    public SarifSchema210 rawDocument() {
+      if (rawDocument == null) {
+        synchronized (this) {
+          if (rawDocument == null) {
+            rawDocument = buildRawDocument();
+          }
+        }
+      }
+      return rawDocument;
+    }
+
+    /**
+     * Build a document with only this rule's results, as it would have been if only this rule had
+     * been run, waiting for the whole scan to finish.
+     */
+    private SarifSchema210 buildRawDocument() {
+      List<Result> results = new ArrayList<>();
+      ShardResults first = null;
+      for (CompletableFuture<ShardResults> shard : shards) {
+        ShardResults shardResults = await(shard);
+        first = first != null ? first : shardResults;
+        results.addAll(shardResults.resultsByRule().getOrDefault(ruleId, List.of()));
+      }
+      Run run = first.run();
+      Run ruleRun =
+          new Run()
+              .withTool(run.getTool())
+              .withInvocations(run.getInvocations())
+              .withOriginalUriBaseIds(run.getOriginalUriBaseIds())
+              .withResults(results);
+      return new SarifSchema210()
+          .with$schema(first.sarif().get$schema())
+          .withVersion(first.sarif().getVersion())
+          .withRuns(List.of(ruleRun));
+    }
+
+    @Override
+    public String getRule() {
+      return ruleId;
+    }
+
+    @Override
+    public String getDriver() {
+      return await(shards.get(0)).run().getTool().getDriver().getName();
+    }
+  }
+
+  /** The most semgrep processes that are run at once. */
+  private static final int MAX_PARALLEL_SHARDS = 4;
+
+  /** Fewer files than this aren't worth starting another semgrep process for. */
+  private static final int MIN_FILES_PER_SHARD = 500;
+
+  /** Shards are kept small enough that the first ones finish long before the whole scan. */
+  private static final int MAX_FILES_PER_SHARD = 5000;
+
+  /**
+   * The most characters the files of a shard take up on the command line. The arguments and the
+   * environment of a process share a limit (ARG_MAX), which is 256 KiB on older macOS releases and
+   * at least 1 MiB on newer ones and on Linux, so this leaves half of the smallest for the rest of
+   * the command line and the environment.
+   */
+  private static final int MAX_SHARD_ARGUMENT_LENGTH = 128 * 1024;
+
+  private static final Logger LOG = LoggerFactory.getLogger(ShardedSemgrepScan.class);
+}
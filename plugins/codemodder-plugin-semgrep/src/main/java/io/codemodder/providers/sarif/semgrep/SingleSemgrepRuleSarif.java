@@ -4,12 +4,9 @@ import com.contrastsecurity.sarif.Region;
 import com.contrastsecurity.sarif.Result;
 import com.contrastsecurity.sarif.SarifSchema210;
 import io.codemodder.RuleSarif;
-import java.io.IOException;
-import java.nio.file.Files;
+import io.codemodder.SarifResultIndex;
 import java.nio.file.Path;
 import java.util.*;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * {@inheritDoc}
@@ -22,15 +19,31 @@ final class SingleSemgrepRuleSarif implements RuleSarif {
 
   private final SarifSchema210 sarif;
   private final String ruleId;
-  private final Map<Path, List<Result>> resultsCache;
-  private final Path repositoryRoot;
+  private final SarifResultIndex resultsByPath;
 
   SingleSemgrepRuleSarif(
       final String ruleId, final SarifSchema210 sarif, final Path codeDirectory) {
     this.sarif = Objects.requireNonNull(sarif);
     this.ruleId = Objects.requireNonNull(ruleId);
-    this.repositoryRoot = Objects.requireNonNull(codeDirectory);
-    this.resultsCache = new HashMap<>();
+    this.resultsByPath =
+        SarifResultIndex.build(
+            codeDirectory,
+            sarif.getRuns().get(0).getResults().stream()
+                .filter(result -> isResultForRule(result, ruleId))
+                .toList());
+  }
+
+  /**
+   * Returns true if the result is for the given rule.
+   *
+   * <p>The default Semgrep rules have a rule id reported that is what you'd expect. When you run
+   * your own custom rules locally, they'll contain part of the file system path to the rule.
+   *
+   * <p>Because this provides support for both types, we need this check to account for which type
+   * of rule id we're dealing with.
+   */
+  static boolean isResultForRule(final Result result, final String ruleId) {
+    return result.getRuleId().endsWith("." + ruleId) || result.getRuleId().equals(ruleId);
   }
 
   @Override
@@ -52,47 +65,11 @@ final class SingleSemgrepRuleSarif implements RuleSarif {
 
   @Override
   public List<Result> getResultsByLocationPath(final Path path) {
-    if (resultsCache.containsKey(path)) {
-      return resultsCache.get(path);
-    }
-    List<Result> results =
-        sarif.getRuns().get(0).getResults().stream()
-            /*
-             * The default Semgrep rules have a rule id reported that is what you'd expect. When you run
-             * your own custom rules locally, they'll contain part of the file system path to the rule.
-             *
-             * Because this provides support for both types, we need this check to account for which type
-             * of rule id we're dealing with.
-             */
-            .filter(
-                result ->
-                    result.getRuleId().endsWith("." + ruleId) || result.getRuleId().equals(ruleId))
-            .filter(
-                result -> {
-                  String uri =
-                      result
-                          .getLocations()
-                          .get(0)
-                          .getPhysicalLocation()
-                          .getArtifactLocation()
-                          .getUri();
-                  try {
-                    return Files.isSameFile(path, repositoryRoot.resolve(uri));
-                  } catch (IOException e) {
-                    // this can happen if the file referenced in SARIF doesn't exist (like in tests)
-                    log.debug("Couldn't find file referenced in SARIF", e);
-                    return false;
-                  }
-                })
-            .toList();
-    resultsCache.put(path, results);
-    return results;
+    return resultsByPath.get(path);
   }
 
   @Override
   public String getDriver() {
     return sarif.getRuns().get(0).getTool().getDriver().getName();
   }
-
-  private static final Logger log = LoggerFactory.getLogger(SingleSemgrepRuleSarif.class);
 }
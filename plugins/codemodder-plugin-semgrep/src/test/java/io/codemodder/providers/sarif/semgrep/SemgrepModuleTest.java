@@ -4,8 +4,15 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.contrastsecurity.sarif.ArtifactLocation;
+import com.contrastsecurity.sarif.Location;
+import com.contrastsecurity.sarif.PhysicalLocation;
 import com.contrastsecurity.sarif.Region;
 import com.contrastsecurity.sarif.Result;
+import com.contrastsecurity.sarif.Run;
+import com.contrastsecurity.sarif.SarifSchema210;
+import com.contrastsecurity.sarif.Tool;
+import com.contrastsecurity.sarif.ToolComponent;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.google.inject.Guice;
@@ -17,6 +24,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -222,6 +230,61 @@ final class SemgrepModuleTest {
         () -> DefaultSemgrepRuleFactory.detectSingleRuleFromYaml("rules:\n  - pattern: baz\n"));
   }
 
+  @Test
+  void it_splits_the_batch_run_by_rule(@TempDir Path tmpDir) throws IOException {
+    Path javaFile = Files.writeString(tmpDir.resolve("HasThing.java"), "class Foo {}");
+    List<List<Path>> semgrepRuns = new ArrayList<>();
+    SemgrepRunner semgrepRunner =
+        (yamls, codeDir, includePatterns, excludePatterns) -> {
+          semgrepRuns.add(yamls);
+          Run run =
+              new Run()
+                  .withTool(new Tool().withDriver(new ToolComponent().withName("semgrep")))
+                  .withResults(
+                      List.of(
+                          resultAt("tmp.implicit-yaml-path", "HasThing.java", 2),
+                          resultAt("tmp.explicit-yaml-path", "HasThing.java", 3)));
+          return new SarifSchema210().withRuns(List.of(run));
+        };
+    SemgrepModule module =
+        new SemgrepModule(
+            tmpDir,
+            List.of("**"),
+            List.of(),
+            List.of(UsesImplicitYamlPath.class),
+            List.of(),
+            new DefaultSemgrepRuleFactory(),
+            semgrepRunner);
+    Injector injector = Guice.createInjector(module);
+
+    // this rule's results come straight from the batch run
+    RuleSarif ruleSarif = injector.getInstance(UsesImplicitYamlPath.class).ruleSarif;
+    List<Region> regions = ruleSarif.getRegionsFromResultsByRule(javaFile);
+    assertThat(regions.size(), is(1));
+    assertThat(regions.get(0).getStartLine(), is(2));
+    assertThat(semgrepRuns.size(), is(1));
+
+    // the other codemods in this package weren't asked for, so their rules are only scanned on use
+    SarifPluginJavaParserChanger<ObjectCreationExpr> explicit =
+        (SarifPluginJavaParserChanger<ObjectCreationExpr>)
+            injector.getInstance(UsesExplicitYamlPath.class);
+    assertThat(explicit.sarif.getRegionsFromResultsByRule(javaFile).size(), is(1));
+    assertThat(semgrepRuns.size(), is(2));
+    assertThat(semgrepRuns.get(1).size(), is(1));
+  }
+
+  private static Result resultAt(final String ruleId, final String uri, final int line) {
+    return new Result()
+        .withRuleId(ruleId)
+        .withLocations(
+            List.of(
+                new Location()
+                    .withPhysicalLocation(
+                        new PhysicalLocation()
+                            .withArtifactLocation(new ArtifactLocation().withUri(uri))
+                            .withRegion(new Region().withStartLine(line)))));
+  }
+
   private SemgrepModule createModule(
       final Path dir, final List<Class<? extends CodeChanger>> codemodTypes) {
     return new SemgrepModule(dir, List.of("**"), List.of(), codemodTypes);
@@ -0,0 +1,179 @@
+package io.codemodder.providers.sarif.semgrep;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import com.contrastsecurity.sarif.ArtifactLocation;
+import com.contrastsecurity.sarif.Location;
+import com.contrastsecurity.sarif.PhysicalLocation;
+import com.contrastsecurity.sarif.Region;
+import com.contrastsecurity.sarif.Result;
+import com.contrastsecurity.sarif.Run;
+import com.contrastsecurity.sarif.SarifSchema210;
+import com.contrastsecurity.sarif.Tool;
+import com.contrastsecurity.sarif.ToolComponent;
+import io.codemodder.RuleSarif;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisabledOnOs(OS.WINDOWS)
+final class ShardedSemgrepScanTest {
+
+  /**
+   * Stands in for semgrep, reporting a "find-foo" result for every file it's given, and a
+   * "find-bar" result for the files with "Bar" in their name. It logs the files of each run.
+   */
+  private static final String FAKE_SEMGREP =
+      """
+      #!/bin/bash
+      out=""
+      jobs=""
+      files=()
+      while [ $# -gt 0 ]; do
+        case "$1" in
+          -o) out="$2"; shift 2;;
+          --jobs) jobs="$2"; shift 2;;
+          --config|--include|--exclude) shift 2;;
+          --*) shift;;
+          *) files+=("$1"); shift;;
+        esac
+      done
+      echo "$jobs ${files[*]}" >> "%s"
+      {
+        printf '{"runs":[{"tool":{"driver":{"name":"semgrep"}},"results":['
+        sep=""
+        for f in "${files[@]}"; do
+          printf '%%s{"ruleId":"rules.find-foo","locations":[{"physicalLocation":{"artifactLocation":{"uri":"%%s"},"region":{"startLine":1}}}]}' "$sep" "$f"
+          sep=","
+          if [[ "$f" == *Bar* ]]; then
+            printf ',{"ruleId":"rules.find-bar","locations":[{"physicalLocation":{"artifactLocation":{"uri":"%%s"},"region":{"startLine":2}}}]}' "$f"
+          fi
+        done
+        printf ']}]}'
+      } > "$out"
+      """;
+
+  @Test
+  void it_scans_shards_and_indexes_each_by_rule(@TempDir final Path tmpDir) throws IOException {
+    Path codeDir = Files.createDirectories(tmpDir.resolve("repo"));
+    Path foo = Files.writeString(codeDir.resolve("Foo.java"), "class Foo {}");
+    Path bar = Files.writeString(codeDir.resolve("Bar.java"), "class Bar {}");
+    Path baz = Files.writeString(codeDir.resolve("Baz.java"), "class Baz {}");
+    Path log = tmpDir.resolve("semgrep.log");
+    Path fakeSemgrep = Files.writeString(tmpDir.resolve("semgrep"), FAKE_SEMGREP.formatted(log));
+    assertThat(fakeSemgrep.toFile().setExecutable(true), is(true));
+
+    ShardedSemgrepScan scan =
+        ShardedSemgrepScan.start(
+            new DefaultSemgrepRunner(fakeSemgrep.toString()),
+            List.of(tmpDir.resolve("rules.yaml")),
+            List.of("find-foo", "find-bar"),
+            codeDir,
+            List.of(foo, bar, baz),
+            List.of("**"),
+            List.of(),
+            2,
+            1);
+
+    RuleSarif fooSarif = scan.ruleSarif("find-foo");
+    assertThat(fooSarif.getResultsByLocationPath(foo).size(), is(1));
+    assertThat(fooSarif.getResultsByLocationPath(bar).size(), is(1));
+    assertThat(fooSarif.getResultsByLocationPath(baz).size(), is(1));
+    assertThat(fooSarif.rawDocument().getRuns().get(0).getResults().size(), is(3));
+    assertThat(fooSarif.getDriver(), equalTo("semgrep"));
+
+    RuleSarif barSarif = scan.ruleSarif("find-bar");
+    assertThat(barSarif.getResultsByLocationPath(foo), is(empty()));
+    assertThat(barSarif.getRegionsFromResultsByRule(bar).get(0).getStartLine(), is(2));
+    assertThat(barSarif.rawDocument().getRuns().get(0).getResults().size(), is(1));
+    assertThat(scan.allResults().size(), is(4));
+
+    // every file was scanned in its own shard, with the processors split between the processes
+    List<String> runs = Files.readAllLines(log);
+    assertThat(runs.size(), is(3));
+    for (String run : runs) {
+      String[] jobsAndFiles = run.split(" ");
+      assertThat(Integer.parseInt(jobsAndFiles[0]), greaterThan(0));
+      assertThat(jobsAndFiles.length, is(2));
+    }
+  }
+
+  @Test
+  void it_scans_once_when_the_runner_cannot_scan_only_some_files(@TempDir final Path tmpDir)
+      throws IOException {
+    Path codeDir = Files.createDirectories(tmpDir.resolve("repo"));
+    Path foo = Files.writeString(codeDir.resolve("Foo.java"), "class Foo {}");
+    Path bar = Files.writeString(codeDir.resolve("Bar.java"), "class Bar {}");
+    AtomicInteger runs = new AtomicInteger();
+    SemgrepRunner wholeDirectoryRunner =
+        (yamls, dir, includePatterns, excludePatterns) -> {
+          runs.incrementAndGet();
+          Result result =
+              new Result()
+                  .withRuleId("rules.find-foo")
+                  .withLocations(
+                      List.of(
+                          new Location()
+                              .withPhysicalLocation(
+                                  new PhysicalLocation()
+                                      .withArtifactLocation(
+                                          new ArtifactLocation().withUri("Foo.java"))
+                                      .withRegion(new Region().withStartLine(1)))));
+          Run run =
+              new Run()
+                  .withTool(new Tool().withDriver(new ToolComponent().withName("semgrep")))
+                  .withResults(List.of(result));
+          return new SarifSchema210().withRuns(List.of(run));
+        };
+
+    ShardedSemgrepScan scan =
+        ShardedSemgrepScan.start(
+            wholeDirectoryRunner,
+            List.of(tmpDir.resolve("rules.yaml")),
+            List.of("find-foo"),
+            codeDir,
+            List.of(foo, bar),
+            List.of("**"),
+            List.of(),
+            2,
+            1);
+
+    RuleSarif fooSarif = scan.ruleSarif("find-foo");
+    assertThat(fooSarif.getResultsByLocationPath(foo).size(), is(1));
+    assertThat(fooSarif.getResultsByLocationPath(bar), is(empty()));
+    assertThat(runs.get(), is(1));
+  }
+
+  @Test
+  void it_scans_nothing_when_there_are_no_files(@TempDir final Path tmpDir) throws IOException {
+    Path codeDir = Files.createDirectories(tmpDir.resolve("repo"));
+    Path foo = Files.writeString(codeDir.resolve("Foo.java"), "class Foo {}");
+    AtomicInteger runs = new AtomicInteger();
+    SemgrepRunner wholeDirectoryRunner =
+        (yamls, dir, includePatterns, excludePatterns) -> {
+          runs.incrementAndGet();
+          throw new IOException("shouldn't scan anything");
+        };
+
+    ShardedSemgrepScan scan =
+        ShardedSemgrepScan.start(
+            wholeDirectoryRunner,
+            List.of(tmpDir.resolve("rules.yaml")),
+            List.of("find-foo"),
+            codeDir,
+            List.of(),
+            List.of("**"),
+            List.of());
+
+    assertThat(scan.ruleSarif("find-foo").getResultsByLocationPath(foo), is(empty()));
+    assertThat(scan.allResults(), is(empty()));
+    assertThat(runs.get(), is(0));
+  }
+}
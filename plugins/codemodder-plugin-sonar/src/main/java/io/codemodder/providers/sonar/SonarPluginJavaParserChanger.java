@@ -7,6 +7,7 @@ import io.codemodder.*;
 import io.codemodder.codetf.FixedFinding;
 import io.codemodder.javaparser.ChangesResult;
 import io.codemodder.javaparser.JavaParserChanger;
+import io.codemodder.javaparser.NodePositionIndex;
 import io.codemodder.sonar.model.SonarFinding;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -60,39 +61,47 @@ public abstract class SonarPluginJavaParserChanger<T extends Node, S extends Son
   @Override
   public CodemodFileScanningResult visit(
       final CodemodInvocationContext context, final CompilationUnit cu) {
-    final List<? extends Node> allNodes = nodeCollector.collectNodes(cu, nodeType);
+    final NodePositionIndex nodeIndex =
+        nodeCollector == NodeCollector.ALL_FROM_TYPE
+            ? NodePositionIndex.forType(cu, nodeType)
+            : NodePositionIndex.of(nodeCollector.collectNodes(cu, nodeType));
     List<? extends SonarFinding> findings = ruleFinding.getResultsByPath(context.path());
 
     List<CodemodChange> codemodChanges = new ArrayList<>();
+    if (nodeIndex.all().isEmpty()) {
+      return CodemodFileScanningResult.withOnlyChanges(codemodChanges);
+    }
     for (SonarFinding sonarFinding : findings) {
-      for (Node node : allNodes) {
-        Position start =
-            new Position(
-                sonarFinding.getTextRange().getStartLine(),
-                sonarFinding.getTextRange().getStartOffset() + 1);
-        Position end =
-            new Position(
-                sonarFinding.getTextRange().getEndLine(),
-                sonarFinding.getTextRange().getEndOffset() + 1);
-        SourceCodeRegion region = new SourceCodeRegion(start, end);
+      Position start =
+          new Position(
+              sonarFinding.getTextRange().getStartLine(),
+              sonarFinding.getTextRange().getStartOffset() + 1);
+      Position end =
+          new Position(
+              sonarFinding.getTextRange().getEndLine(),
+              sonarFinding.getTextRange().getEndOffset() + 1);
+      SourceCodeRegion region = new SourceCodeRegion(start, end);
+      if (!context.lineIncludesExcludes().matches(region.start().line())) {
+        continue;
+      }
+      List<Node> candidates =
+          regionNodeMatcher.matchesOnlyOnRegionStartLine()
+              ? nodeIndex.beginningOnLine(region.start().line())
+              : nodeIndex.all();
+      for (Node node : candidates) {
         if (!nodeType.isAssignableFrom(node.getClass())) {
           continue;
         }
-        if (context.lineIncludesExcludes().matches(region.start().line())) {
-          if (node.getRange().isPresent()) {
-            Range range = node.getRange().get();
-            if (regionNodeMatcher.matches(region, range)) {
-              ChangesResult changeSuccessful =
-                  onFindingFound(context, cu, (T) node, (S) sonarFinding);
+        Range range = node.getRange().get();
+        if (regionNodeMatcher.matches(region, range)) {
+          ChangesResult changeSuccessful = onFindingFound(context, cu, (T) node, (S) sonarFinding);
 
-              if (changeSuccessful.areChangesApplied()) {
-                codemodChanges.add(
-                    CodemodChange.from(
-                        region.start().line(),
-                        changeSuccessful.getDependenciesRequired(),
-                        new FixedFinding(sonarFinding.getKey(), this.detectorRule())));
-              }
-            }
+          if (changeSuccessful.areChangesApplied()) {
+            codemodChanges.add(
+                CodemodChange.from(
+                    region.start().line(),
+                    changeSuccessful.getDependenciesRequired(),
+                    new FixedFinding(sonarFinding.getKey(), this.detectorRule())));
           }
         }
       }